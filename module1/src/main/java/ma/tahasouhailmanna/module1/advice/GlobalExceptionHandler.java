@@ -1,6 +1,11 @@
 package ma.tahasouhailmanna.module1.advice;
 
 import jakarta.validation.ConstraintViolationException;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.ChangeTokenExpiredException;
+import ma.tahasouhailmanna.module1.exception.InsufficientStockException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -34,6 +39,42 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
 
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleResourceNotFound(ResourceNotFoundException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errors);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", "Resource was modified concurrently, reload it and retry");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Map<String, String>> handleInsufficientStock(InsufficientStockException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
+    // Suppressions purgées depuis ce jeton : le client repart d'une synchronisation complète
+    @ExceptionHandler(ChangeTokenExpiredException.class)
+    public ResponseEntity<Map<String, String>> handleChangeTokenExpired(ChangeTokenExpiredException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).body(errors);
+    }
+
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(BadRequestException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+
     @ExceptionHandler(RestClientResponseException.class)
     public ResponseEntity<Map<String, String>> handleRestClientResponse(RestClientResponseException ex) {
         Map<String, String> errors = new HashMap<>();
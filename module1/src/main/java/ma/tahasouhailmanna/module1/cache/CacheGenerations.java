@@ -0,0 +1,115 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Compteurs de génération par portée ("listing", "category:x", ...) stockés dans Redis.
+ * Une clé de cache qui embarque la génération devient inatteignable dès que celle-ci est incrémentée :
+ * invalidation en un INCR, sans KEYS/SCAN ; les anciennes entrées expirent avec leur TTL.
+ * <p>
+ * Chaque portée est un hash Redis {n, epoch} : epoch est tiré au hasard quand la clé n'existe pas. Si Redis perd
+ * le compteur (redémarrage sans persistance, éviction), n repart de 0 sous un autre epoch : les versions déjà
+ * servies (clés de cache, ETag de la liste) ne désignent jamais un autre contenu.
+ */
+public class CacheGenerations {
+    private static final String KEY_PREFIX = "cache:generation:";
+    private static final String COUNTER = "n";
+    private static final String EPOCH = "epoch";
+    // Borne la durée pendant laquelle un nœud qui aurait raté un message garde une génération périmée
+    private static final Duration LOCAL_TTL = Duration.ofSeconds(5);
+
+    private final Function<String, Generation> loader;
+    private final Function<String, Generation> incrementer;
+    private final CacheInvalidationPublisher publisher;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Generation> local = Caffeine.newBuilder()
+            .expireAfterWrite(LOCAL_TTL)
+            .maximumSize(10_000)
+            .build();
+
+    public CacheGenerations(StringRedisTemplate redisTemplate, CacheInvalidationPublisher publisher) {
+        this(scope -> load(redisTemplate.opsForHash(), KEY_PREFIX + scope, null),
+                scope -> load(redisTemplate.opsForHash(), KEY_PREFIX + scope,
+                        redisTemplate.<String, String>opsForHash().increment(KEY_PREFIX + scope, COUNTER, 1)),
+                publisher);
+    }
+
+    CacheGenerations(Function<String, Generation> loader, Function<String, Generation> incrementer,
+                     CacheInvalidationPublisher publisher) {
+        this.loader = loader;
+        this.incrementer = incrementer;
+        this.publisher = publisher;
+    }
+
+    // Forme texte epoch-n, à intégrer telle quelle aux clés et ETag
+    public String current(String scope) {
+        return local.get(scope, loader).toString();
+    }
+
+    /**
+     * Incrémente la génération après le commit de la transaction courante (immédiatement s'il n'y en a pas),
+     * pour qu'aucune lecture concurrente ne remette en cache un état antérieur au commit sous la nouvelle clé.
+     */
+    public void bump(String scope) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpNow(scope);
+                }
+            });
+        } else {
+            bumpNow(scope);
+        }
+    }
+
+    private void bumpNow(String scope) {
+        Generation generation = incrementer.apply(scope);
+        if (generation != null) {
+            onGeneration(scope, generation);
+            publisher.publishGeneration(scope, generation.toString());
+        }
+    }
+
+    // Même epoch : la plus grande valeur l'emporte (messages reçus dans le désordre) ; nouvel epoch : remplacé
+    void onGeneration(String scope, Generation generation) {
+        local.asMap().merge(scope, generation, (current, received) ->
+                current.epoch().equals(received.epoch()) && current.value() >= received.value() ? current : received);
+    }
+
+    // Epoch posé s'il manque (HSETNX : un seul gagnant entre nœuds), puis relu avec le compteur
+    private static Generation load(HashOperations<String, String, String> hash, String key, Long incremented) {
+        hash.putIfAbsent(key, EPOCH, Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36));
+        List<String> values = hash.multiGet(key, List.of(EPOCH, COUNTER));
+        long value = incremented != null ? incremented : values.get(1) == null ? 0 : Long.parseLong(values.get(1));
+        return new Generation(values.get(0), value);
+    }
+
+    record Generation(String epoch, long value) {
+        // null si le texte n'est pas de la forme epoch-n
+        static Generation parse(String text) {
+            int dash = text.lastIndexOf('-');
+            if (dash <= 0) {
+                return null;
+            }
+            try {
+                return new Generation(text.substring(0, dash), Long.parseLong(text.substring(dash + 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return epoch + "-" + value;
+        }
+    }
+}
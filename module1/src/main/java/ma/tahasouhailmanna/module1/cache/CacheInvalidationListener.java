@@ -0,0 +1,51 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+
+public class CacheInvalidationListener implements MessageListener {
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheGenerations generations;
+    private final String nodeId;
+
+    public CacheInvalidationListener(TwoLevelCacheManager cacheManager, CacheGenerations generations, String nodeId) {
+        this.cacheManager = cacheManager;
+        this.generations = generations;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        handle(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    void handle(String payload) {
+        String[] parts = payload.split("\n", 4);
+        if (parts.length < 4 || parts[0].equals(nodeId) || parts[1].length() != 1) {
+            return;
+        }
+        if (parts[1].charAt(0) == CacheInvalidationPublisher.GENERATION) {
+            CacheGenerations.Generation generation = CacheGenerations.Generation.parse(parts[3]);
+            // Message mal formé : ignoré, le TTL local rattrapera
+            if (generation != null) {
+                generations.onGeneration(parts[2], generation);
+            }
+            return;
+        }
+        TwoLevelCache cache = cacheManager.getLocalCache(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if (parts[1].charAt(0) == CacheInvalidationPublisher.CLEAR) {
+            cache.clearLocal();
+        } else if (parts[1].charAt(0) == CacheInvalidationPublisher.EVICT_ALL) {
+            for (String key : parts[3].split("\n")) {
+                cache.evictLocal(key);
+            }
+        } else {
+            cache.evictLocal(parts[3]);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Diffuse sur Redis pub/sub les invalidations faites sur ce nœud, pour que les autres
+ * instances purgent leur niveau local.
+ * Format du message : {@code nodeId \n op \n cacheName \n key} avec op = E (evict) ou C (clear),
+ * {@code nodeId \n M \n cacheName \n key1 \n key2 ...} pour plusieurs clés d'un coup (invalidations groupées),
+ * ou {@code nodeId \n G \n scope \n epoch-n} pour une nouvelle génération de clés.
+ */
+@Slf4j
+public class CacheInvalidationPublisher {
+    static final char EVICT = 'E';
+    static final char CLEAR = 'C';
+    static final char EVICT_ALL = 'M';
+    static final char GENERATION = 'G';
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CacheInvalidationPublisher(StringRedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void publishEvict(String cacheName, String key) {
+        publish(EVICT, cacheName, key);
+    }
+
+    // Un seul message pour toutes les clés
+    public void publishEvictAll(String cacheName, Collection<String> keys) {
+        if (!keys.isEmpty()) {
+            publish(EVICT_ALL, cacheName, String.join("\n", keys));
+        }
+    }
+
+    public void publishClear(String cacheName) {
+        publish(CLEAR, cacheName, "");
+    }
+
+    public void publishGeneration(String scope, String generation) {
+        publish(GENERATION, scope, generation);
+    }
+
+    private void publish(char op, String name, String key) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + '\n' + op + '\n' + name + '\n' + key);
+        } catch (RuntimeException e) {
+            // Le TTL du niveau local borne l'incohérence si le message est perdu
+            log.warn("Cache invalidation not published for {}: {}", name, e.getMessage());
+        }
+    }
+}
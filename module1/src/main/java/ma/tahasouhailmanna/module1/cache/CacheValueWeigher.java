@@ -0,0 +1,50 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import org.springframework.data.domain.Page;
+
+import java.util.Collection;
+
+/**
+ * Estimation grossière de l'empreinte mémoire d'une valeur en cache, en octets.
+ */
+public class CacheValueWeigher implements Weigher<String, Object> {
+    private static final int OBJECT_OVERHEAD = 64;
+
+    @Override
+    public int weigh(String key, Object value) {
+        long weight = 2L * key.length() + weigh(value);
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    static long weigh(Object value) {
+        if (value instanceof Page<?> page) {
+            return OBJECT_OVERHEAD + weigh(page.getContent());
+        }
+        if (value instanceof Collection<?> values) {
+            long total = OBJECT_OVERHEAD;
+            for (Object v : values) {
+                total += weigh(v);
+            }
+            return total;
+        }
+        if (value instanceof ProductDTO dto) {
+            // id, price, version (boîtés) et updatedAt
+            return OBJECT_OVERHEAD + 16 + 16 + 16 + 24
+                    + chars(dto.getName()) + chars(dto.getDescription()) + chars(dto.getCategory());
+        }
+        if (value instanceof CachedResponse response) {
+            return OBJECT_OVERHEAD + response.body().length
+                    + (response.gzipped() != null ? response.gzipped().length : 0) + chars(response.etag());
+        }
+        if (value instanceof CharSequence s) {
+            return OBJECT_OVERHEAD + 2L * s.length();
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+}
@@ -0,0 +1,29 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Corps de réponse HTTP prêt à écrire, avec ses validateurs (ETag, Last-Modified ou -1)
+ * et, au-delà du seuil, sa variante gzip.
+ */
+public record CachedResponse(String contentType, String etag, long lastModified, byte[] body, byte[] gzipped) {
+
+    public static CachedResponse of(String contentType, String etag, long lastModified, byte[] body,
+                                    int gzipThreshold) {
+        return new CachedResponse(contentType, etag, lastModified, body,
+                body.length >= gzipThreshold ? gzip(body) : null);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,45 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import java.time.Duration;
+
+/**
+ * Dimensionnement du niveau local (L1) d'un cache : nombre maximal d'entrées et durée de vie,
+ * ou budget en octets (poids estimé des valeurs) si {@code maxBytes > 0}.
+ * {@code refreshAhead} (optionnel) active le rafraîchissement anticipé des entrées chargées par ce nœud.
+ */
+public record LocalCacheSpec(long maxEntries, Duration ttl, long maxBytes, RefreshAhead refreshAhead) {
+
+    public LocalCacheSpec(long maxEntries, Duration ttl) {
+        this(maxEntries, ttl, 0, null);
+    }
+
+    public LocalCacheSpec(long maxEntries, Duration ttl, long maxBytes) {
+        this(maxEntries, ttl, maxBytes, null);
+    }
+
+    public LocalCacheSpec withRefreshAhead(Duration remoteTtl, double window) {
+        return new LocalCacheSpec(maxEntries, ttl, maxBytes, new RefreshAhead(remoteTtl, window));
+    }
+
+    /**
+     * Dans la dernière fraction {@code window} du TTL Redis, chaque lecture a une probabilité croissante
+     * (de 0 à 1) de recharger l'entrée : les rechargements s'étalent au lieu de tomber tous à l'expiration.
+     */
+    public record RefreshAhead(Duration remoteTtl, double window) {
+
+        public RefreshAhead {
+            if (window <= 0 || window > 1) {
+                throw new IllegalArgumentException("Refresh-ahead window must be in (0, 1]");
+            }
+        }
+
+        boolean shouldRefresh(long ageNanos, double random) {
+            long ttlNanos = remoteTtl.toNanos();
+            long start = (long) (ttlNanos * (1 - window));
+            if (ageNanos <= start) {
+                return false;
+            }
+            return random < (double) (ageNanos - start) / (ttlNanos - start);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lectures et écritures groupées sur un cache : un seul aller-retour réseau pour N clés.
+ */
+public interface MultiKeyCache {
+
+    // Une valeur par clé, dans l'ordre des clés ; null si absente
+    List<Object> getAll(List<?> keys);
+
+    void putAll(Map<?, ?> entries);
+
+    void evictAll(Collection<?> keys);
+}
@@ -0,0 +1,89 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RedisCache} avec lectures groupées (MGET), écritures groupées (SET PX en pipeline) et invalidations
+ * groupées (un seul DEL).
+ * Clés, sérialisation et TTL identiques à {@link #get(Object)} et {@link #put(Object, Object)}.
+ */
+public class MultiKeyRedisCache extends RedisCache implements MultiKeyCache {
+    private final RedisConnectionFactory connectionFactory;
+
+    public MultiKeyRedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfiguration,
+                              RedisConnectionFactory connectionFactory) {
+        super(name, cacheWriter, cacheConfiguration);
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public List<Object> getAll(List<?> keys) {
+        List<Object> values = new ArrayList<>(keys.size());
+        if (keys.isEmpty()) {
+            return values;
+        }
+        byte[][] redisKeys = new byte[keys.size()][];
+        for (int i = 0; i < redisKeys.length; i++) {
+            redisKeys[i] = serializeCacheKey(createCacheKey(keys.get(i)));
+        }
+        List<byte[]> raw;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            raw = connection.stringCommands().mGet(redisKeys);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] bytes = raw == null ? null : raw.get(i);
+            values.add(bytes == null ? null : deserializeCacheValue(bytes));
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            try {
+                entries.forEach((key, value) -> {
+                    Object cacheValue = preProcessCacheValue(value);
+                    if (cacheValue == null) {
+                        return;
+                    }
+                    Duration ttl = getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+                    connection.stringCommands().set(serializeCacheKey(createCacheKey(key)),
+                            serializeCacheValue(cacheValue), expiration(ttl), SetOption.upsert());
+                });
+            } finally {
+                connection.closePipeline();
+            }
+        }
+    }
+
+    @Override
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        byte[][] redisKeys = keys.stream().map(key -> serializeCacheKey(createCacheKey(key))).toArray(byte[][]::new);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(redisKeys);
+        }
+    }
+
+    private static Expiration expiration(Duration ttl) {
+        return ttl == null || ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl);
+    }
+}
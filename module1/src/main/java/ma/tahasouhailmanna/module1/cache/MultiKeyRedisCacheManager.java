@@ -0,0 +1,30 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.util.Map;
+
+/**
+ * {@link RedisCacheManager} dont les caches sont des {@link MultiKeyRedisCache}.
+ */
+public class MultiKeyRedisCacheManager extends RedisCacheManager {
+    private final RedisConnectionFactory connectionFactory;
+
+    public MultiKeyRedisCacheManager(RedisConnectionFactory connectionFactory,
+                                     RedisCacheConfiguration defaultCacheConfiguration,
+                                     Map<String, RedisCacheConfiguration> initialCacheConfigurations) {
+        super(RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), defaultCacheConfiguration,
+                initialCacheConfigurations);
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    protected RedisCache createRedisCache(String name, RedisCacheConfiguration cacheConfiguration) {
+        return new MultiKeyRedisCache(name, getCacheWriter(),
+                cacheConfiguration != null ? cacheConfiguration : getDefaultCacheConfiguration(), connectionFactory);
+    }
+}
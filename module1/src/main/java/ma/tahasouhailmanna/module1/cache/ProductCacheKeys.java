@@ -0,0 +1,136 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import ma.tahasouhailmanna.module1.config.ProductSearchCacheProperties;
+import ma.tahasouhailmanna.module1.criteria.ProductCriteria;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Clés versionnées des caches "products" et "productSearch" (utilisées en SpEL : {@code @productCacheKeys.all()}).
+ * Une écriture n'invalide que la liste complète, les recherches et les catégories touchées ;
+ * {@link #catalogChanged()} invalide tout d'un coup quand les catégories concernées ne sont pas connues.
+ */
+public class ProductCacheKeys {
+    static final String CATALOG = "catalog";
+    static final String LISTING = "listing";
+    static final String CATEGORY = "category:";
+    private static final String QUANTITY = "quantity";
+
+    private final CacheGenerations generations;
+    private final ProductSearchCacheProperties searchProperties;
+
+    public ProductCacheKeys(CacheGenerations generations, ProductSearchCacheProperties searchProperties) {
+        this.generations = generations;
+        this.searchProperties = searchProperties;
+    }
+
+    public String all() {
+        return "all:" + catalogVersion();
+    }
+
+    // Change à chaque écriture sur le catalogue, et à chaque perte des compteurs Redis (epoch) : sert aussi d'ETag
+    // à la liste complète (lu en local, sans SQL)
+    public String catalogVersion() {
+        return generations.current(CATALOG) + "." + generations.current(LISTING);
+    }
+
+    // Cache "productResponses" : évincé avec l'entrée "product" du même id
+    public String productResponse(Long id) {
+        return "id:" + id;
+    }
+
+    public String category(String category) {
+        String scope = CATEGORY + normalize(category);
+        return scope + ":" + generation(scope);
+    }
+
+    /**
+     * Clé d'une recherche multi-critères : critères normalisés + page + tri.
+     * Filtrée par catégorie, elle ne suit que la génération de cette catégorie.
+     */
+    public String search(ProductCriteria criteria, Pageable pageable) {
+        ProductCriteria c = criteria == null ? new ProductCriteria() : criteria.normalized();
+        String scope = c.getCategory() != null ? CATEGORY + c.getCategory() : LISTING;
+        StringBuilder key = new StringBuilder("search:").append(generation(scope))
+                .append(":n=").append(encode(c.getName()))
+                .append("&d=").append(encode(c.getDescription()))
+                .append("&c=").append(encode(c.getCategory()))
+                .append("&p=").append(c.getMinPrice()).append('~').append(c.getMaxPrice())
+                .append("&q=").append(c.getMinQuantity()).append('~').append(c.getMaxQuantity())
+                .append('#').append(pageable.getPageNumber()).append(',').append(pageable.getPageSize());
+        for (Sort.Order order : pageable.getSort()) {
+            key.append(',').append(order.getProperty()).append(':').append(order.getDirection());
+            if (order.isIgnoreCase()) {
+                key.append(":i");
+            }
+        }
+        return key.toString();
+    }
+
+    public String textSearch(String text, ProductCriteria criteria, Pageable pageable) {
+        return "text:" + encode(normalize(text)) + ":" + search(criteria, pageable);
+    }
+
+    public String name(String name) {
+        return "name:" + generation(LISTING) + ":" + encode(normalize(name));
+    }
+
+    public String description(String description) {
+        return "description:" + generation(LISTING) + ":" + encode(normalize(description));
+    }
+
+    public String priceBetween(Double min, Double max) {
+        return "price:" + generation(LISTING) + ":" + min + "~" + max;
+    }
+
+    /**
+     * Pages profondes ou très larges : rarement rejouées, elles ne feraient qu'évincer les autres.
+     * Filtre ou tri sur la quantité : le stock change à chaque réservation sans toucher aux générations
+     * (une invalidation par réservation viderait les listes en continu), ces recherches vont toujours en base.
+     */
+    public boolean searchCacheable(ProductCriteria criteria, Pageable pageable) {
+        return pageable.isPaged()
+                && pageable.getPageNumber() <= searchProperties.getMaxPageNumber()
+                && pageable.getPageSize() <= searchProperties.getMaxPageSize()
+                && (criteria == null || (criteria.getMinQuantity() == null && criteria.getMaxQuantity() == null))
+                && pageable.getSort().getOrderFor(QUANTITY) == null;
+    }
+
+    public boolean withinSearchBudget(Collection<?> result) {
+        return result != null && result.size() <= searchProperties.getMaxResults();
+    }
+
+    public void productsChanged(String... categories) {
+        generations.bump(LISTING);
+        Set<String> scopes = new LinkedHashSet<>();
+        for (String category : categories) {
+            scopes.add(CATEGORY + normalize(category));
+        }
+        scopes.forEach(generations::bump);
+    }
+
+    public void catalogChanged() {
+        generations.bump(CATALOG);
+    }
+
+    private String generation(String scope) {
+        return generations.current(CATALOG) + "." + generations.current(scope);
+    }
+
+    // findByCategoryIgnoreCase : même clé quelle que soit la casse
+    static String normalize(String category) {
+        return category == null ? "" : category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Les termes saisis ne doivent pas pouvoir imiter un séparateur de la clé
+    private static String encode(String value) {
+        return value == null ? "" : URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,395 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductPage;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Sérialiseur des valeurs de cache produit : format binaire compact et versionné pour {@link ProductDTO},
+ * les listes de ProductDTO, {@link ProductPage} et {@link CachedResponse} ; toute autre valeur passe par le sérialiseur JSON.
+ * <p>
+ * En-tête : octet magique (jamais le premier octet d'un JSON), version du format, drapeaux (compression).
+ * Les entrées JSON déjà présentes dans Redis restent lisibles ; une version inconnue est traitée comme un défaut de cache.
+ */
+@Slf4j
+public class ProductCacheSerializer implements RedisSerializer<Object> {
+    static final byte MAGIC = (byte) 0xB7;
+    // 1 : format initial ; 2 : version et updatedAt des produits, lastModified des réponses.
+    // Tout changement de disposition incrémente la version : les nœuds d'un déploiement progressif
+    // voient les entrées de l'autre format comme des défauts de cache au lieu de les mal décoder
+    static final byte VERSION = 2;
+    private static final byte FLAG_DEFLATE = 1;
+    private static final int HEADER_LENGTH = 3;
+
+    private static final byte TYPE_PRODUCT = 1;
+    private static final byte TYPE_LIST = 2;
+    private static final byte TYPE_PAGE = 3;
+    private static final byte TYPE_RESPONSE = 4;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_NAME = 1 << 1;
+    private static final int HAS_DESCRIPTION = 1 << 2;
+    private static final int HAS_CATEGORY = 1 << 3;
+    private static final int HAS_PRICE = 1 << 4;
+    private static final int HAS_VERSION = 1 << 5;
+    private static final int HAS_UPDATED_AT = 1 << 6;
+
+    private final RedisSerializer<Object> json;
+    private final boolean writeBinary;
+    private final int compressionThreshold;
+
+    public ProductCacheSerializer(RedisSerializer<Object> json, boolean writeBinary, int compressionThreshold) {
+        this.json = json;
+        this.writeBinary = writeBinary;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (!writeBinary || !isSupported(value)) {
+            return json.serialize(value);
+        }
+        Output out = new Output(256);
+        out.skip(HEADER_LENGTH);
+        writeValue(out, value);
+        // Corps de réponse déjà compressés en gzip au-delà de leur propre seuil
+        return frame(out, !(value instanceof CachedResponse));
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            // Entrée écrite avant le passage au format binaire
+            return json.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[1] != VERSION) {
+            log.debug("Ignoring cache value in unknown binary format version {}", bytes.length > 1 ? bytes[1] : -1);
+            return null;
+        }
+        try {
+            Input in = (bytes[2] & FLAG_DEFLATE) != 0
+                    ? new Input(inflate(bytes), 0)
+                    : new Input(bytes, HEADER_LENGTH);
+            return readValue(in);
+        } catch (DataFormatException | RuntimeException e) {
+            throw new SerializationException("Could not decode cache value", e);
+        }
+    }
+
+    private static boolean isSupported(Object value) {
+        if (value instanceof ProductDTO || value instanceof ProductPage || value instanceof CachedResponse) {
+            return true;
+        }
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                if (!(item instanceof ProductDTO)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void writeValue(Output out, Object value) {
+        if (value instanceof ProductDTO dto) {
+            out.writeByte(TYPE_PRODUCT);
+            writeProduct(out, dto);
+        } else if (value instanceof ProductPage page) {
+            out.writeByte(TYPE_PAGE);
+            out.writeVarLong(page.getNumber());
+            out.writeVarLong(page.getSize());
+            out.writeVarLong(page.getTotalElements());
+            List<String> orders = page.getSortOrders();
+            out.writeVarLong(orders.size());
+            for (String order : orders) {
+                out.writeString(order);
+            }
+            writeProducts(out, page.getContent());
+        } else if (value instanceof CachedResponse response) {
+            out.writeByte(TYPE_RESPONSE);
+            out.writeString(response.contentType());
+            out.writeString(response.etag());
+            out.writeVarLong(response.lastModified() + 1);
+            writeBytes(out, response.body());
+            writeBytes(out, response.gzipped());
+        } else {
+            out.writeByte(TYPE_LIST);
+            @SuppressWarnings("unchecked")
+            List<ProductDTO> list = (List<ProductDTO>) value;
+            writeProducts(out, list);
+        }
+    }
+
+    private static Object readValue(Input in) {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_PRODUCT:
+                return readProduct(in);
+            case TYPE_LIST:
+                return readProducts(in);
+            case TYPE_PAGE:
+                int number = (int) in.readVarLong();
+                int size = (int) in.readVarLong();
+                long total = in.readVarLong();
+                int orderCount = (int) in.readVarLong();
+                List<String> orders = new ArrayList<>(orderCount);
+                for (int i = 0; i < orderCount; i++) {
+                    orders.add(in.readString());
+                }
+                return new ProductPage(readProducts(in), number, size, total, orders);
+            case TYPE_RESPONSE:
+                return new CachedResponse(in.readString(), in.readString(), in.readVarLong() - 1,
+                        readBytes(in), readBytes(in));
+            default:
+                throw new IllegalStateException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeProducts(Output out, List<ProductDTO> products) {
+        out.writeVarLong(products.size());
+        for (ProductDTO dto : products) {
+            writeProduct(out, dto);
+        }
+    }
+
+    private static List<ProductDTO> readProducts(Input in) {
+        int count = (int) in.readVarLong();
+        List<ProductDTO> products = new ArrayList<>(Math.min(count, 4096));
+        for (int i = 0; i < count; i++) {
+            products.add(readProduct(in));
+        }
+        return products;
+    }
+
+    // Longueur + 1, 0 pour null
+    private static void writeBytes(Output out, byte[] bytes) {
+        if (bytes == null) {
+            out.writeVarLong(0);
+            return;
+        }
+        out.writeVarLong(bytes.length + 1L);
+        out.writeBytes(bytes, 0, bytes.length);
+    }
+
+    private static byte[] readBytes(Input in) {
+        int length = (int) in.readVarLong() - 1;
+        return length < 0 ? null : in.readBytes(length);
+    }
+
+    // Masque de présence puis uniquement les champs non nuls
+    private static void writeProduct(Output out, ProductDTO dto) {
+        int mask = (dto.getId() != null ? HAS_ID : 0)
+                | (dto.getName() != null ? HAS_NAME : 0)
+                | (dto.getDescription() != null ? HAS_DESCRIPTION : 0)
+                | (dto.getCategory() != null ? HAS_CATEGORY : 0)
+                | (dto.getPrice() != null ? HAS_PRICE : 0)
+                | (dto.getVersion() != null ? HAS_VERSION : 0)
+                | (dto.getUpdatedAt() != null ? HAS_UPDATED_AT : 0);
+        out.writeByte(mask);
+        if (dto.getId() != null) out.writeVarLong(dto.getId());
+        if (dto.getName() != null) out.writeString(dto.getName());
+        if (dto.getDescription() != null) out.writeString(dto.getDescription());
+        if (dto.getCategory() != null) out.writeString(dto.getCategory());
+        if (dto.getPrice() != null) out.writeLong(Double.doubleToRawLongBits(dto.getPrice()));
+        if (dto.getVersion() != null) out.writeVarLong(dto.getVersion());
+        if (dto.getUpdatedAt() != null) {
+            out.writeVarLong(dto.getUpdatedAt().getEpochSecond());
+            out.writeVarLong(dto.getUpdatedAt().getNano());
+        }
+    }
+
+    private static ProductDTO readProduct(Input in) {
+        int mask = in.readByte() & 0xFF;
+        ProductDTO dto = new ProductDTO();
+        if ((mask & HAS_ID) != 0) dto.setId(in.readVarLong());
+        if ((mask & HAS_NAME) != 0) dto.setName(in.readString());
+        if ((mask & HAS_DESCRIPTION) != 0) dto.setDescription(in.readString());
+        if ((mask & HAS_CATEGORY) != 0) dto.setCategory(in.readString());
+        if ((mask & HAS_PRICE) != 0) dto.setPrice(Double.longBitsToDouble(in.readLong()));
+        if ((mask & HAS_VERSION) != 0) dto.setVersion(in.readVarLong());
+        if ((mask & HAS_UPDATED_AT) != 0) dto.setUpdatedAt(Instant.ofEpochSecond(in.readVarLong(), in.readVarLong()));
+        return dto;
+    }
+
+    private byte[] frame(Output out, boolean compressible) {
+        int bodyLength = out.pos - HEADER_LENGTH;
+        if (compressible && bodyLength >= compressionThreshold) {
+            byte[] deflated = deflate(out.buf, HEADER_LENGTH, bodyLength);
+            // Longueur d'origine en tête pour allouer le tampon de décompression en une fois
+            Output framed = new Output(deflated.length + HEADER_LENGTH + 4);
+            framed.writeByte(MAGIC);
+            framed.writeByte(VERSION);
+            framed.writeByte(FLAG_DEFLATE);
+            framed.writeInt(bodyLength);
+            framed.writeBytes(deflated, 0, deflated.length);
+            return framed.toByteArray();
+        }
+        out.buf[0] = MAGIC;
+        out.buf[1] = VERSION;
+        out.buf[2] = 0;
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] body, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body, offset, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] framed) throws DataFormatException {
+        int length = ((framed[3] & 0xFF) << 24) | ((framed[4] & 0xFF) << 16) | ((framed[5] & 0xFF) << 8) | (framed[6] & 0xFF);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(framed, HEADER_LENGTH + 4, framed.length - HEADER_LENGTH - 4);
+            byte[] body = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(body, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated compressed value");
+                }
+                read += n;
+            }
+            return body;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Tampons à curseur : DataInput/OutputStream synchronisent chaque octet et dominaient le coût du codec
+    private static final class Output {
+        private byte[] buf;
+        private int pos;
+
+        Output(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void skip(int n) {
+            ensure(n);
+            pos += n;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buf, pos, length);
+            pos += length;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            buf[pos++] = (byte) (value >>> 24);
+            buf[pos++] = (byte) (value >>> 16);
+            buf[pos++] = (byte) (value >>> 8);
+            buf[pos++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            writeBytes(utf8, 0, utf8.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            }
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buf;
+        private int pos;
+
+        Input(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        byte readByte() {
+            return buf[pos++];
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buf[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        byte[] readBytes(int length) {
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
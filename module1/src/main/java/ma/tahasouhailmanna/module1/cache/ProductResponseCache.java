@@ -0,0 +1,71 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductVersion;
+import org.springframework.cache.Cache;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cache "productResponses" : réponses JSON de GET /api/products et GET /api/products/{id} déjà encodées.
+ * Un succès ne désérialise ni ne resérialise aucun ProductDTO ; les octets partent tels quels vers le client.
+ * <p>
+ * La liste suit les générations de {@link ProductCacheKeys#all()} ; les entrées par id sont évincées
+ * par les mêmes écritures que le cache "product".
+ * <p>
+ * ETag faibles : version du produit ({@link ProductVersion}), version du catalogue pour la liste.
+ */
+public class ProductResponseCache {
+    public static final String CACHE = "productResponses";
+
+    private final Cache cache;
+    private final ProductCacheKeys keys;
+    private final ObjectMapper objectMapper;
+    private final int gzipThreshold;
+
+    public ProductResponseCache(Cache cache, ProductCacheKeys keys, ObjectMapper objectMapper, int gzipThreshold) {
+        this.cache = cache;
+        this.keys = keys;
+        this.objectMapper = objectMapper;
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    public CachedResponse all(Supplier<List<ProductDTO>> loader) {
+        String etag = listingEtag();
+        return cache.get(keys.all(), () -> encode(loader.get(), etag, -1));
+    }
+
+    // Calculé sans lire la liste : suffit à répondre 304
+    public String listingEtag() {
+        return "W/\"catalog-" + keys.catalogVersion() + "\"";
+    }
+
+    /**
+     * @return null si le produit n'existe pas (rien n'est mis en cache)
+     */
+    public CachedResponse product(Long id, Supplier<Optional<ProductDTO>> loader) {
+        return cache.get(keys.productResponse(id), () -> loader.get().map(dto -> {
+            ProductVersion version = ProductVersion.of(dto);
+            return encode(dto, version.etag(), version.lastModified());
+        }).orElse(null));
+    }
+
+    // Sans chargement : null si la réponse n'est pas en cache
+    public CachedResponse cachedProduct(Long id) {
+        return cache.get(keys.productResponse(id), CachedResponse.class);
+    }
+
+    private CachedResponse encode(Object value, String etag, long lastModified) {
+        try {
+            return CachedResponse.of(MediaType.APPLICATION_JSON_VALUE, etag, lastModified,
+                    objectMapper.writeValueAsBytes(value), gzipThreshold);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode product response", e);
+        }
+    }
+}
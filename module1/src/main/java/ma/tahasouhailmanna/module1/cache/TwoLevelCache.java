@@ -0,0 +1,446 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache à deux niveaux : L1 Caffeine en mémoire (borné en taille et en durée) devant un L2 partagé (Redis).
+ * Les écritures explicites ({@link #put}, {@code @CachePut}) et les invalidations sont propagées aux autres nœuds
+ * via {@link CacheInvalidationPublisher} ; les remplissages après un défaut de cache ne publient rien : la valeur
+ * vient de la base, aucun autre nœud ne peut en détenir une version plus récente dans son L1.
+ * Les clés du L1 sont la forme texte de la clé Spring, identique d'un nœud à l'autre.
+ * <p>
+ * {@link #get(Object, Callable)} ({@code @Cacheable(sync = true)}) ne lance qu'un chargement à la fois par clé
+ * sur ce nœud : les appels concurrents attendent son résultat au lieu d'interroger la base à leur tour.
+ * Le rafraîchissement anticipé d'une entrée proche de l'expiration tourne en tâche de fond : l'appelant reçoit
+ * aussitôt la valeur en place.
+ * <p>
+ * {@link #getAll(List)}, {@link #putAll(Map)} et {@link #evictAll(Collection)} groupent les accès au L2
+ * (MGET / pipeline / DEL unique si le L2 est un {@link MultiKeyCache}) ; {@link #evictAll(Collection)} ne publie
+ * qu'un message.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache, MultiKeyCache {
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationPublisher publisher;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder earlyRefreshes = new LongAdder();
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LocalCacheSpec.RefreshAhead refreshAhead;
+    // Date de chargement (par ce nœud) des entrées éligibles au rafraîchissement anticipé
+    private final com.github.benmanes.caffeine.cache.Cache<String, Long> loadedAt;
+    private final LongSupplier clock;
+    private final Executor refreshExecutor;
+
+    public TwoLevelCache(String name, Cache remote, LocalCacheSpec spec, CacheInvalidationPublisher publisher) {
+        this(name, remote, spec, publisher, System::nanoTime, ForkJoinPool.commonPool());
+    }
+
+    TwoLevelCache(String name, Cache remote, LocalCacheSpec spec, CacheInvalidationPublisher publisher,
+                  LongSupplier clock, Executor refreshExecutor) {
+        this.name = name;
+        this.remote = remote;
+        this.publisher = publisher;
+        this.clock = clock;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshAhead = spec.refreshAhead();
+        this.loadedAt = refreshAhead == null ? null : Caffeine.newBuilder()
+                .maximumSize(spec.maxEntries())
+                .ticker(clock::getAsLong)
+                .expireAfterWrite(refreshAhead.remoteTtl())
+                .build();
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().expireAfterWrite(spec.ttl());
+        if (spec.maxBytes() > 0) {
+            builder.maximumWeight(spec.maxBytes()).weigher(new CacheValueWeigher());
+        } else {
+            builder.maximumSize(spec.maxEntries());
+        }
+        this.local = builder.build();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            localHits.increment();
+            return new SimpleValueWrapper(value);
+        }
+        localMisses.increment();
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        if (wrapper.get() != null) {
+            local.put(localKey, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return (T) load(key, localKey, valueLoader, false);
+        }
+        if (refreshDue(localKey)) {
+            refreshInBackground(key, localKey, valueLoader);
+        }
+        // Y compris pour l'appelant tiré au sort : il ne paie pas le rechargement
+        return (T) wrapper.get();
+    }
+
+    private Object load(Object key, String localKey, Callable<?> valueLoader, boolean refresh) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(localKey, flight);
+        if (running != null) {
+            coalescedLoads.increment();
+            return await(running, key, valueLoader);
+        }
+        return run(key, localKey, valueLoader, refresh, flight);
+    }
+
+    private void refreshInBackground(Object key, String localKey, Callable<?> valueLoader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        // Un chargement est déjà en cours pour cette clé : il suffit
+        if (inFlight.putIfAbsent(localKey, flight) != null) {
+            return;
+        }
+        earlyRefreshes.increment();
+        Runnable task = () -> {
+            try {
+                run(key, localKey, valueLoader, true, flight);
+            } catch (ValueRetrievalException e) {
+                // L'entrée en place reste servie jusqu'à son expiration ; le prochain tirage retentera
+                log.warn("Early refresh of {} in cache {} failed: {}", localKey, name, e.getMessage());
+            }
+        };
+        try {
+            refreshExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Exécuteur saturé : rechargé par l'appelant, le chargement déjà annoncé doit aboutir
+            task.run();
+        }
+    }
+
+    private Object run(Object key, String localKey, Callable<?> valueLoader, boolean refresh,
+                       CompletableFuture<Object> flight) {
+        try {
+            // Un chargement concurrent a pu se terminer entre notre lecture et putIfAbsent
+            Object value = refresh ? null : local.getIfPresent(localKey);
+            if (value == null) {
+                value = valueLoader.call();
+                if (value != null) {
+                    fill(key, localKey, value);
+                } else if (refresh) {
+                    // Entrée disparue de la base : copie périmée retirée ici, sans message (la suppression a publié)
+                    remote.evict(key);
+                    evictLocal(localKey);
+                }
+            }
+            flight.complete(value);
+            return value;
+        } catch (Exception e) {
+            flight.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(localKey, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> running, Object key, Callable<?> valueLoader) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    private boolean refreshDue(String localKey) {
+        if (refreshAhead == null || inFlight.containsKey(localKey)) {
+            return false;
+        }
+        Long loaded = loadedAt.getIfPresent(localKey);
+        return loaded != null
+                && refreshAhead.shouldRefresh(clock.getAsLong() - loaded, ThreadLocalRandom.current().nextDouble());
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            // Valeurs nulles interdites côté Redis : un résultat vide invalide simplement l'entrée
+            evict(key);
+            return;
+        }
+        String localKey = localKey(key);
+        fill(key, localKey, value);
+        publisher.publishEvict(name, localKey);
+    }
+
+    private void fill(Object key, String localKey, Object value) {
+        remote.put(key, value);
+        local.put(localKey, value);
+        if (loadedAt != null) {
+            loadedAt.put(localKey, clock.getAsLong());
+        }
+    }
+
+    // L1 d'abord, puis un seul aller-retour vers le L2 pour toutes les clés manquantes
+    @Override
+    public List<Object> getAll(List<?> keys) {
+        List<Object> values = new ArrayList<>(keys.size());
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = local.getIfPresent(localKey(keys.get(i)));
+            if (value != null) {
+                localHits.increment();
+            } else {
+                localMisses.increment();
+                misses.add(i);
+            }
+            values.add(value);
+        }
+        if (misses.isEmpty()) {
+            return values;
+        }
+        List<Object> found = remoteGetAll(misses.stream().map(keys::get).toList());
+        for (int j = 0; j < misses.size(); j++) {
+            Object value = found.get(j);
+            if (value == null) {
+                remoteMisses.increment();
+                continue;
+            }
+            remoteHits.increment();
+            int i = misses.get(j);
+            local.put(localKey(keys.get(i)), value);
+            values.set(i, value);
+        }
+        return values;
+    }
+
+    private List<Object> remoteGetAll(List<?> keys) {
+        if (remote instanceof MultiKeyCache multiKey) {
+            return multiKey.getAll(keys);
+        }
+        List<Object> values = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            ValueWrapper wrapper = remote.get(key);
+            values.add(wrapper != null ? wrapper.get() : null);
+        }
+        return values;
+    }
+
+    // Remplissage groupé après un chargement en base : un pipeline vers le L2, aucun message d'invalidation
+    @Override
+    public void putAll(Map<?, ?> entries) {
+        Map<Object, Object> values = new LinkedHashMap<>();
+        entries.forEach((key, value) -> {
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        if (values.isEmpty()) {
+            return;
+        }
+        if (remote instanceof MultiKeyCache multiKey) {
+            multiKey.putAll(values);
+        } else {
+            values.forEach(remote::put);
+        }
+        long now = clock.getAsLong();
+        values.forEach((key, value) -> {
+            String localKey = localKey(key);
+            local.put(localKey, value);
+            if (loadedAt != null) {
+                loadedAt.put(localKey, now);
+            }
+        });
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (value == null) {
+            return get(key);
+        }
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        String localKey = localKey(key);
+        if (existing == null) {
+            local.put(localKey, value);
+            publisher.publishEvict(name, localKey);
+        } else if (existing.get() != null) {
+            local.put(localKey, existing.get());
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        forgetLoaded(localKey);
+        publisher.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (remote instanceof MultiKeyCache multiKey) {
+            multiKey.evictAll(keys);
+        } else {
+            keys.forEach(remote::evict);
+        }
+        List<String> localKeys = keys.stream().map(TwoLevelCache::localKey).toList();
+        localKeys.forEach(this::evictLocal);
+        publisher.publishEvictAll(name, localKeys);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = remote.evictIfPresent(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        forgetLoaded(localKey);
+        publisher.publishEvict(name, localKey);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        forgetLoaded(null);
+        publisher.publishClear(name);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = remote.invalidate();
+        local.invalidateAll();
+        forgetLoaded(null);
+        publisher.publishClear(name);
+        return invalidated;
+    }
+
+    // Invalidations reçues d'un autre nœud : le L2 est déjà à jour, seul le L1 est purgé
+    void evictLocal(String localKey) {
+        local.invalidate(localKey);
+        forgetLoaded(localKey);
+    }
+
+    void clearLocal() {
+        local.invalidateAll();
+        forgetLoaded(null);
+    }
+
+    // Entrée réécrite ailleurs : son âge n'est plus connu ici, pas de rafraîchissement anticipé
+    private void forgetLoaded(String localKey) {
+        if (loadedAt == null) {
+            return;
+        }
+        if (localKey == null) {
+            loadedAt.invalidateAll();
+        } else {
+            loadedAt.invalidate(localKey);
+        }
+    }
+
+    long localSize() {
+        return local.estimatedSize();
+    }
+
+    public long getLocalHits() {
+        return localHits.sum();
+    }
+
+    public long getLocalMisses() {
+        return localMisses.sum();
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getRemoteMisses() {
+        return remoteMisses.sum();
+    }
+
+    public long getCoalescedLoads() {
+        return coalescedLoads.sum();
+    }
+
+    public long getEarlyRefreshes() {
+        return earlyRefreshes.sum();
+    }
+
+    public double localHitRatio() {
+        return ratio(getLocalHits(), getLocalMisses());
+    }
+
+    public double remoteHitRatio() {
+        return ratio(getRemoteHits(), getRemoteMisses());
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,83 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TwoLevelCacheManager implements CacheManager {
+    private final CacheManager remote;
+    private final Map<String, LocalCacheSpec> localSpecs;
+    private final LocalCacheSpec defaultSpec;
+    private final CacheInvalidationPublisher publisher;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remote,
+                                Map<String, LocalCacheSpec> localSpecs,
+                                LocalCacheSpec defaultSpec,
+                                CacheInvalidationPublisher publisher,
+                                MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.localSpecs = localSpecs;
+        this.defaultSpec = defaultSpec;
+        this.publisher = publisher;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> {
+            TwoLevelCache created = new TwoLevelCache(n, remoteCache, localSpecs.getOrDefault(n, defaultSpec), publisher);
+            bindMetrics(created);
+            return created;
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    TwoLevelCache getLocalCache(String name) {
+        return caches.get(name);
+    }
+
+    private void bindMetrics(TwoLevelCache cache) {
+        if (meterRegistry == null) {
+            return;
+        }
+        String name = cache.getName();
+        FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getLocalHits)
+                .tags("cache", name, "tier", "l1", "result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getLocalMisses)
+                .tags("cache", name, "tier", "l1", "result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getRemoteHits)
+                .tags("cache", name, "tier", "l2", "result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getRemoteMisses)
+                .tags("cache", name, "tier", "l2", "result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.loads.coalesced", cache, TwoLevelCache::getCoalescedLoads)
+                .tags("cache", name).register(meterRegistry);
+        FunctionCounter.builder("cache.loads.early.refresh", cache, TwoLevelCache::getEarlyRefreshes)
+                .tags("cache", name).register(meterRegistry);
+        Gauge.builder("cache.tier.hit.ratio", cache, TwoLevelCache::localHitRatio)
+                .tags("cache", name, "tier", "l1").register(meterRegistry);
+        Gauge.builder("cache.tier.hit.ratio", cache, TwoLevelCache::remoteHitRatio)
+                .tags("cache", name, "tier", "l2").register(meterRegistry);
+        Gauge.builder("cache.tier.size", cache, TwoLevelCache::localSize)
+                .tags("cache", name, "tier", "l1").register(meterRegistry);
+    }
+}
@@ -1,6 +1,19 @@
 // ...existing code...
 package ma.tahasouhailmanna.module1.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.tahasouhailmanna.module1.cache.CacheGenerations;
+import ma.tahasouhailmanna.module1.cache.CacheInvalidationListener;
+import ma.tahasouhailmanna.module1.cache.CacheInvalidationPublisher;
+import ma.tahasouhailmanna.module1.cache.LocalCacheSpec;
+import ma.tahasouhailmanna.module1.cache.MultiKeyRedisCacheManager;
+import ma.tahasouhailmanna.module1.cache.ProductCacheSerializer;
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.cache.ProductResponseCache;
+import ma.tahasouhailmanna.module1.cache.TwoLevelCacheManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
@@ -10,14 +23,24 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.time.Duration;
 import java.util.Map;
 
 @EnableCaching
+@EnableScheduling
 @Configuration
 public class AppConfig {
+    private static final String CACHE_INVALIDATION_CHANNEL = "cache:invalidation";
+    private static final Duration PRODUCTS_TTL = Duration.ofMinutes(5);
+    private static final Duration PRODUCT_TTL = Duration.ofMinutes(10);
+    // Fraction finale du TTL Redis pendant laquelle une lecture peut déclencher un rechargement anticipé
+    private static final double REFRESH_AHEAD_WINDOW = 0.1;
 
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
@@ -25,8 +48,43 @@ public class AppConfig {
     }
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory cf) {
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+    public CacheInvalidationPublisher cacheInvalidationPublisher(StringRedisTemplate redisTemplate) {
+        return new CacheInvalidationPublisher(redisTemplate, CACHE_INVALIDATION_CHANNEL);
+    }
+
+    @Bean
+    public CacheGenerations cacheGenerations(StringRedisTemplate redisTemplate, CacheInvalidationPublisher publisher) {
+        return new CacheGenerations(redisTemplate, publisher);
+    }
+
+    @Bean
+    public ProductCacheKeys productCacheKeys(CacheGenerations cacheGenerations,
+                                             ProductSearchCacheProperties searchCacheProperties) {
+        return new ProductCacheKeys(cacheGenerations, searchCacheProperties);
+    }
+
+    @Bean
+    public ProductResponseCache productResponseCache(TwoLevelCacheManager cacheManager,
+                                                     ProductCacheKeys productCacheKeys,
+                                                     ObjectMapper objectMapper,
+                                                     ProductResponseCacheProperties responseCacheProperties) {
+        return new ProductResponseCache(cacheManager.getCache(ProductResponseCache.CACHE), productCacheKeys,
+                objectMapper, (int) responseCacheProperties.getGzipThreshold().toBytes());
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory cf,
+                                             CacheInvalidationPublisher publisher,
+                                             ProductSearchCacheProperties searchCacheProperties,
+                                             ProductResponseCacheProperties responseCacheProperties,
+                                             RedisCacheProperties redisCacheProperties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        // Binaire compact pour les valeurs produit, JSON pour le reste et pour les entrées plus anciennes
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        json.configure(mapper -> mapper.registerModule(new JavaTimeModule())); // ProductDTO.updatedAt
+        ProductCacheSerializer serializer = new ProductCacheSerializer(json,
+                redisCacheProperties.getCodec() == RedisCacheProperties.Codec.BINARY,
+                (int) redisCacheProperties.getCompressionThreshold().toBytes());
         StringRedisSerializer keySerializer = new StringRedisSerializer();
 
         RedisCacheConfiguration defaultConf =
@@ -38,13 +96,42 @@ public class AppConfig {
                         .disableCachingNullValues();
 
         Map<String, RedisCacheConfiguration> perCache = Map.of(
-                "products", defaultConf.entryTtl(Duration.ofMinutes(5)),
-                "product", defaultConf.entryTtl(Duration.ofMinutes(10))
+                "products", defaultConf.entryTtl(PRODUCTS_TTL),
+                "product", defaultConf.entryTtl(PRODUCT_TTL),
+                "productSearch", defaultConf.entryTtl(searchCacheProperties.getTtl()),
+                ProductResponseCache.CACHE, defaultConf.entryTtl(responseCacheProperties.getTtl())
+        );
+
+        // L1 en mémoire : TTL courts, le L2 Redis reste la référence partagée entre nœuds
+        Map<String, LocalCacheSpec> localPerCache = Map.of(
+                "products", new LocalCacheSpec(256, Duration.ofSeconds(30))
+                        .withRefreshAhead(PRODUCTS_TTL, REFRESH_AHEAD_WINDOW),
+                "product", new LocalCacheSpec(10_000, Duration.ofMinutes(2))
+                        .withRefreshAhead(PRODUCT_TTL, REFRESH_AHEAD_WINDOW),
+                // Espace de clés ouvert (termes libres) : borné par un budget mémoire plutôt qu'un nombre d'entrées
+                "productSearch", new LocalCacheSpec(searchCacheProperties.getLocalMaxEntries(), Duration.ofSeconds(30),
+                        searchCacheProperties.getLocalMaxSize().toBytes()),
+                ProductResponseCache.CACHE, new LocalCacheSpec(10_000, Duration.ofMinutes(1),
+                        responseCacheProperties.getLocalMaxSize().toBytes())
         );
 
-        return RedisCacheManager.builder(cf)
-                .cacheDefaults(defaultConf)
-                .withInitialCacheConfigurations(perCache)
-                .build();
+        // Caches Redis avec MGET / écritures en pipeline (lectures groupées du cache "product")
+        RedisCacheManager redisCacheManager = new MultiKeyRedisCacheManager(cf, defaultConf, perCache);
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoLevelCacheManager(redisCacheManager, localPerCache,
+                new LocalCacheSpec(1_000, Duration.ofMinutes(1)), publisher, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory cf,
+                                                                            TwoLevelCacheManager cacheManager,
+                                                                            CacheGenerations cacheGenerations,
+                                                                            CacheInvalidationPublisher publisher) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(cf);
+        container.addMessageListener(new CacheInvalidationListener(cacheManager, cacheGenerations, publisher.getNodeId()),
+                new ChannelTopic(publisher.getChannel()));
+        return container;
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Component
+@ConfigurationProperties(prefix = "csv.processing")
+@Getter
+@Setter
+public class CsvProcessingProperties {
+    private String baseDir;
+    private String inputDir;
+    private String outputDir;
+    private int batchSize = 1000;
+
+    public Path resolveInputDir() {
+        return resolve(inputDir);
+    }
+
+    public Path resolveOutputDir() {
+        return resolve(outputDir);
+    }
+
+    private Path resolve(String dir) {
+        Path path = Paths.get(dir);
+        return baseDir == null || path.isAbsolute() ? path : Paths.get(baseDir).resolve(path);
+    }
+}
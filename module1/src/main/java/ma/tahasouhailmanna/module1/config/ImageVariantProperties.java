@@ -0,0 +1,43 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "images.variants")
+@Getter
+@Setter
+public class ImageVariantProperties {
+    // Threads de redimensionnement (travail CPU : au plus le nombre de cœurs)
+    private int workers = 2;
+    // Images en attente au-delà desquelles les nouvelles images ne sont pas mises en file (redemandées à la lecture)
+    private int queueCapacity = 100;
+    // Variante manquante à la lecture (tâche perdue à l'arrêt) : image redemandée une fois par intervalle
+    private Duration resubmitInterval = Duration.ofMinutes(5);
+    // Qualité JPEG des variantes (0 à 1)
+    private float jpegQuality = 0.85f;
+    // Garde-fou contre les images piégées : largeur x hauteur maximale décodée
+    private long maxPixels = 40_000_000;
+    // Variantes générées : boîte englobante, ratio conservé, jamais agrandies
+    private List<Spec> specs = List.of(
+            new Spec("thumb", 100, 100),
+            new Spec("small", 320, 320),
+            new Spec("medium", 800, 800));
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Spec {
+        private String name;
+        private int width;
+        private int height;
+    }
+}
@@ -1,8 +1,10 @@
 package ma.tahasouhailmanna.module1.config;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
+import ma.tahasouhailmanna.module1.service.MinioMultipartClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -32,4 +34,12 @@ public class MinioConfig {
 
         return client;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public MinioMultipartClient minioMultipartClient() {
+        return new MinioMultipartClient(MinioAsyncClient.builder()
+                .endpoint(properties.getUrl())
+                .credentials(properties.getAccessKey(), properties.getSecretKey())
+                .build());
+    }
+}
@@ -5,6 +5,10 @@ import lombok.Setter;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
 
 @Component
 @ConfigurationProperties(prefix = "minio")
@@ -15,5 +19,25 @@ public class MinioProperties {
     private String accessKey;
     private String secretKey;
     private String bucket;
-
+    // Envoi en flux : taille des parties (5 Mo minimum côté S3, sauf la dernière) ; 10 000 parties au plus
+    private DataSize partSize = DataSize.ofMegabytes(8);
+    // Parties envoyées en parallèle par upload : mémoire bornée à (uploadConcurrency + 1) × partSize
+    private int uploadConcurrency = 4;
+    // Clés temporaires (staging/) des gros uploads : supprimées par une règle de cycle de vie après ce délai (en jours)
+    private Duration stagingExpiry = Duration.ofDays(1);
+    // Upload direct navigateur -> MinIO (formulaire POST présigné) : validité, taille et types d'image acceptés
+    private Duration uploadUrlExpiry = Duration.ofMinutes(10);
+    private DataSize maxImageSize = DataSize.ofMegabytes(10);
+    private List<String> imageContentTypes = List.of("image/jpeg", "image/png", "image/webp", "image/gif");
+    // URLs GET présignées : validité, et durée de réutilisation (nettement plus courte, l'URL servie reste valable)
+    private Duration downloadUrlExpiry = Duration.ofHours(1);
+    private Duration downloadUrlCacheTtl = Duration.ofMinutes(10);
+    private long downloadUrlCacheSize = 10_000;
+    // GET /api/minio/{objet} : cache disque local borné en octets (LRU) ; au-delà de cacheMaxObjectSize,
+    // l'objet est relu depuis MinIO à chaque requête. Un sous-répertoire par instance sous cacheDir
+    private String cacheDir = System.getProperty("java.io.tmpdir") + "/minio-cache";
+    private DataSize cacheMaxSize = DataSize.ofGigabytes(1);
+    private DataSize cacheMaxObjectSize = DataSize.ofMegabytes(64);
+    // Entrée servie sans appel à MinIO pendant cette durée, puis revalidée sur l'ETag ; aussi le max-age client
+    private Duration cacheRevalidateAfter = Duration.ofSeconds(30);
 }
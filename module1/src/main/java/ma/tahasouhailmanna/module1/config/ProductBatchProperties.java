@@ -0,0 +1,17 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "products.batch")
+@Getter
+@Setter
+public class ProductBatchProperties {
+    // Nombre d'éléments par transaction
+    private int chunkSize = 500;
+    // Nombre maximal d'éléments acceptés par requête
+    private int maxItems = 10000;
+}
@@ -0,0 +1,28 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "products.changes")
+@Getter
+@Setter
+public class ProductChangesProperties {
+    // Nombre de modifications renvoyées par défaut, et au plus, par appel
+    private int defaultLimit = 500;
+    private int maxLimit = 1000;
+    // Écritures plus récentes laissées pour l'appel suivant : le temps que les transactions concurrentes,
+    // dont la position est plus basse, soient validées
+    private Duration settleDelay = Duration.ofSeconds(2);
+    // Début de la plus ancienne transaction d'écriture encore ouverte (PostgreSQL) : le curseur ne dépasse pas
+    // les écritures postérieures, quelle que soit la durée de cette transaction. Vide : settleDelay seul
+    private String inFlightQuery = "select min(xact_start) from pg_stat_activity"
+            + " where backend_xid is not null and datname = current_database() and pid <> pg_backend_pid()";
+    // Durée de vie des tombstones, donc d'un jeton : au-delà, le client repart d'une synchronisation complète
+    private Duration tombstoneRetention = Duration.ofDays(30);
+    private Duration pruneInterval = Duration.ofHours(1);
+}
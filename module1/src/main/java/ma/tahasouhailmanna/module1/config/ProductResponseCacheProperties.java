@@ -0,0 +1,22 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "products.response-cache")
+@Getter
+@Setter
+public class ProductResponseCacheProperties {
+    // TTL Redis des corps encodés
+    private Duration ttl = Duration.ofMinutes(5);
+    // Budget mémoire du L1 (la liste complète peut peser plusieurs Mo)
+    private DataSize localMaxSize = DataSize.ofMegabytes(64);
+    // Variante gzip pré-calculée au-delà de ce seuil
+    private DataSize gzipThreshold = DataSize.ofKilobytes(1);
+}
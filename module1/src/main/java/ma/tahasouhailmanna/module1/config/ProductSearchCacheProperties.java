@@ -0,0 +1,25 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "products.search-cache")
+@Getter
+@Setter
+public class ProductSearchCacheProperties {
+    // Durée de vie des résultats dans Redis : borne aussi le nombre de clés orphelines
+    private Duration ttl = Duration.ofMinutes(2);
+    // Budget mémoire du niveau local (poids estimé des résultats)
+    private DataSize localMaxSize = DataSize.ofMegabytes(32);
+    private long localMaxEntries = 10_000;
+    // Au-delà, la requête n'est pas mise en cache
+    private int maxPageSize = 100;
+    private int maxPageNumber = 20;
+    private int maxResults = 500;
+}
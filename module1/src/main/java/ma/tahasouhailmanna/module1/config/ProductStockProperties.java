@@ -0,0 +1,17 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "products.stock")
+@Getter
+@Setter
+public class ProductStockProperties {
+    // Réservations concurrentes d'un même produit regroupées en un seul UPDATE (produits très demandés)
+    private boolean combineReservations = false;
+    // Verrous de regroupement : produits répartis par id, un verrou par bande
+    private int combineStripes = 64;
+}
@@ -0,0 +1,20 @@
+package ma.tahasouhailmanna.module1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Component
+@ConfigurationProperties(prefix = "cache.redis")
+@Getter
+@Setter
+public class RedisCacheProperties {
+    public enum Codec { BINARY, JSON }
+
+    // Format d'écriture ; la lecture accepte toujours les deux (déploiement progressif, retour arrière)
+    private Codec codec = Codec.BINARY;
+    // Valeurs binaires compressées au-delà de ce seuil
+    private DataSize compressionThreshold = DataSize.ofKilobytes(2);
+}
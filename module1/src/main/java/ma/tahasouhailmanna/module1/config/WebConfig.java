@@ -0,0 +1,57 @@
+package ma.tahasouhailmanna.module1.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * CBOR et Smile choisis par l'en-tête Accept, à côté du JSON (qui reste le format par défaut).
+ * Les mappers partent du builder Spring Boot : mêmes modules et options spring.jackson.* que le JSON.
+ * <p>
+ * Tomcat n'envoie "100 Continue" qu'à la première lecture du corps (par défaut : dès les en-têtes reçus).
+ * Une requête refusée ou court-circuitée avant lecture (PUT /api/minio/content d'un contenu déjà stocké)
+ * n'est alors jamais transmise par un client qui attend ce signal.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    static final String CONTINUE_ON_READ = "onRead";
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilder;
+
+    public WebConfig(ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilder) {
+        this.mapperBuilder = mapperBuilder;
+    }
+
+    @Bean
+    WebServerFactoryCustomizer<TomcatServletWebServerFactory> continueOnRead() {
+        return factory -> factory.addConnectorCustomizers(connector ->
+                connector.setProperty("continueResponseTiming", CONTINUE_ON_READ));
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        Jackson2ObjectMapperBuilder base = mapperBuilder.getIfAvailable(Jackson2ObjectMapperBuilder::json);
+        MappingJackson2CborHttpMessageConverter cbor =
+                new MappingJackson2CborHttpMessageConverter(base.factory(new CBORFactory()).build());
+        base = mapperBuilder.getIfAvailable(Jackson2ObjectMapperBuilder::json);
+        MappingJackson2SmileHttpMessageConverter smile =
+                new MappingJackson2SmileHttpMessageConverter(base.factory(new SmileFactory()).build());
+
+        // Remplacent ceux de Spring MVC ; placés après le JSON, qui reste choisi pour Accept: */*
+        converters.removeIf(c -> c instanceof MappingJackson2CborHttpMessageConverter
+                || c instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(cbor);
+        converters.add(smile);
+    }
+}
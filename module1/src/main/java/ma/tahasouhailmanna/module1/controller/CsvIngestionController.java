@@ -0,0 +1,32 @@
+package ma.tahasouhailmanna.module1.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import ma.tahasouhailmanna.module1.dto.CsvIngestionReport;
+import ma.tahasouhailmanna.module1.service.CsvIngestionService;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/ingestion/csv")
+public class CsvIngestionController {
+
+    private final CsvIngestionService csvIngestionService;
+
+    public CsvIngestionController(CsvIngestionService csvIngestionService) {
+        this.csvIngestionService = csvIngestionService;
+    }
+
+    @Operation(summary = "Importer tous les fichiers CSV du répertoire d'entrée")
+    @PostMapping
+    public List<CsvIngestionReport> ingestAll() throws IOException {
+        return csvIngestionService.ingestAll();
+    }
+
+    @Operation(summary = "Importer un fichier CSV du répertoire d'entrée")
+    @PostMapping("/{fileName}")
+    public CsvIngestionReport ingestFile(@PathVariable String fileName) throws IOException {
+        return csvIngestionService.ingestFile(fileName);
+    }
+}
@@ -3,31 +3,213 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.media.SchemaProperty;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.dto.StoredObject;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import ma.tahasouhailmanna.module1.service.ImageVariantService;
+import ma.tahasouhailmanna.module1.service.MinioObjectCache;
+import ma.tahasouhailmanna.module1.service.MinioObjectCache.CachedObject;
 import ma.tahasouhailmanna.module1.service.MinioService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/minio")
 public class MinioController {
 
+    private static final String CONTENT_SHA256 = "X-Content-SHA256";
+
     private final MinioService minioService;
+    private final MinioObjectCache objectCache;
+    private final MinioProperties properties;
+    private final ImageVariantService imageVariantService;
 
-    public MinioController(MinioService minioService) {
+    public MinioController(MinioService minioService, MinioObjectCache objectCache, MinioProperties properties,
+                           ImageVariantService imageVariantService) {
         this.minioService = minioService;
+        this.objectCache = objectCache;
+        this.properties = properties;
+        this.imageVariantService = imageVariantService;
     }
 
     @Operation(summary = "Uploader un fichier vers MinIO")
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<String> upload(@RequestPart("file") MultipartFile file) {
+        StoredObject stored;
         try {
-            String url = minioService.uploadFile(file);
+            stored = minioService.uploadFile(file);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Upload failed: " + e.getMessage());
+        }
+        requestVariants(stored, file.getContentType());
+        return ResponseEntity.ok("File uploaded successfully: " + stored.getUrl());
+    }
+
+    // Corps brut transmis à MinIO au fil de la lecture : ni fichier temporaire, ni limite max-file-size
+    @Operation(summary = "Uploader un flux vers MinIO sans copie intermédiaire (parties envoyées en parallèle)")
+    @PutMapping("/objects/{objectName}")
+    public ResponseEntity<String> uploadStream(@PathVariable String objectName,
+                                               @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false)
+                                               String contentType,
+                                               InputStream body) {
+        checkObjectName(objectName);
+        try {
+            String url = minioService.uploadStream(objectName, contentType, body);
             return ResponseEntity.ok("File uploaded successfully: " + url);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Upload failed: " + e.getMessage());
         }
     }
-}
 
+    /**
+     * Lecture d'un objet quand MinIO n'est pas exposé : ETag / Last-Modified (304), une plage Range (206 / 416).
+     * Objet en cache disque : fichier ouvert ici puis FileChannel.transferTo (pas de sendfile Tomcat : le connecteur
+     * ouvrirait le fichier après le retour du contrôleur, une éviction entre-temps casserait une réponse déjà
+     * commencée) ; sinon relu depuis MinIO par blocs. Jamais d'objet entier sur le tas.
+     */
+    @Operation(summary = "Télécharger un objet MinIO (Range, cache disque local)")
+    @GetMapping("/{*objectName}")
+    public void download(@PathVariable String objectName, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        String name = objectName.substring(1);
+        checkObjectName(name);
+        CachedObject object = objectCache.get(name)
+                .orElseThrow(() -> new ResourceNotFoundException("Object " + name + " not found"));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, MinioService.isContentAddressed(name) ? MinioService.IMMUTABLE
+                : CacheControl.maxAge(properties.getCacheRevalidateAfter()).getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        long lastModified = object.lastModified() != null ? object.lastModified().toInstant().toEpochMilli() : -1;
+        if (new ServletWebRequest(request, response).checkNotModified(object.etag(), lastModified)) {
+            return;
+        }
+
+        long size = object.size();
+        long start = 0;
+        long length = size;
+        HttpRange range = range(request, object);
+        if (range != null) {
+            start = range.getRangeStart(size);
+            if (start >= size) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            length = range.getRangeEnd(size) - start + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+        }
+        response.setContentType(object.contentType() != null ? object.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (object.file() == null || !sendFile(object, start, length, response)) {
+            try (InputStream in = minioService.getObject(name, object.etag(), start, length)) {
+                in.transferTo(response.getOutputStream());
+            }
+        }
+    }
+
+    // Une seule plage ; plusieurs plages, en-tête invalide ou If-Range périmé : réponse complète (RFC 9110)
+    private static HttpRange range(HttpServletRequest request, CachedObject object) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals("\"" + object.etag() + "\"")) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // false si le fichier a été évincé avant l'ouverture : l'appelant relit depuis MinIO.
+    // Une fois ouvert, une éviction ne supprime que l'entrée de répertoire, le descripteur reste lisible
+    private static boolean sendFile(CachedObject object, long start, long length, HttpServletResponse response)
+            throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(object.file(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        try (channel) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    throw new IOException("Cached file " + object.file() + " is shorter than " + end + " bytes");
+                }
+                position += sent;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Upload adressé par contenu, haché pendant l'envoi : 201 si stocké, 200 si ce contenu existait déjà.
+     * X-Content-SHA256 (optionnel) : contenu déjà stocké, le corps n'est pas lu ; sinon vérifié (400 si différent).
+     */
+    @Operation(summary = "Uploader un contenu sous son SHA-256 (dédupliqué, clé immuable)")
+    @PutMapping("/content")
+    public ResponseEntity<StoredObject> uploadContent(@RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false)
+                                                      String contentType,
+                                                      @RequestHeader(value = CONTENT_SHA256, required = false)
+                                                      String sha256,
+                                                      InputStream body) throws Exception {
+        StoredObject stored = minioService.uploadContent(contentType, body, sha256);
+        requestVariants(stored, contentType);
+        return ResponseEntity.status(stored.isDeduplicated() ? HttpStatus.OK : HttpStatus.CREATED).body(stored);
+    }
+
+    // Lookup avant upload : un client qui a déjà haché son fichier évite tout envoi
+    @Operation(summary = "Chercher un contenu par SHA-256")
+    @GetMapping(value = "/content", params = "sha256")
+    public StoredObject findContent(@RequestParam String sha256) throws Exception {
+        return minioService.findContent(sha256)
+                .orElseThrow(() -> new ResourceNotFoundException("Content " + sha256 + " not found"));
+    }
+
+    /**
+     * Variantes générées en arrière-plan (clé immuable : elles ne deviennent jamais périmées). Un contenu
+     * dédupliqué est redemandé aussi : variantes existantes sautées. L'objet est déjà stocké : une file pleine
+     * ne fait pas échouer l'upload, les variantes seront redemandées à la lecture.
+     */
+    private void requestVariants(StoredObject stored, String contentType) {
+        minioService.objectName(stored.getUrl())
+                .ifPresent(name -> imageVariantService.requestVariants(name, contentType));
+    }
+
+    private static void checkObjectName(String objectName) {
+        if (objectName.isBlank() || objectName.contains("..")) {
+            throw new BadRequestException("Invalid object name: " + objectName);
+        }
+    }
+}
@@ -1,35 +1,217 @@
 package ma.tahasouhailmanna.module1.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
+import ma.tahasouhailmanna.module1.cache.CachedResponse;
+import ma.tahasouhailmanna.module1.cache.ProductResponseCache;
+import ma.tahasouhailmanna.module1.criteria.ProductCriteria;
+import ma.tahasouhailmanna.module1.criteria.ProductFields;
+import ma.tahasouhailmanna.module1.dto.CursorPage;
+import ma.tahasouhailmanna.module1.dto.ImageAttachment;
+import ma.tahasouhailmanna.module1.dto.ImageUploadRequest;
+import ma.tahasouhailmanna.module1.dto.PresignedUpload;
+import ma.tahasouhailmanna.module1.dto.ProductBatchResponse;
+import ma.tahasouhailmanna.module1.dto.ProductChanges;
 import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductVersion;
+import ma.tahasouhailmanna.module1.dto.StockReservation;
+import ma.tahasouhailmanna.module1.service.ProductBatchService;
+import ma.tahasouhailmanna.module1.service.ProductImageService;
+import ma.tahasouhailmanna.module1.service.ProductLookupService;
 import ma.tahasouhailmanna.module1.service.ProductService;
+import ma.tahasouhailmanna.module1.service.ProductStockService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
+    private static final int STREAM_FLUSH_EVERY = 500;
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final ProductService productService;
+    private final ProductBatchService productBatchService;
+    private final ProductLookupService productLookupService;
+    private final ProductStockService productStockService;
+    private final ProductImageService productImageService;
+    private final ObjectMapper objectMapper;
+    private final ProductResponseCache responseCache;
+    private final ContentNegotiationManager contentNegotiationManager;
 
 
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             ProductBatchService productBatchService,
+                             ProductLookupService productLookupService,
+                             ProductStockService productStockService,
+                             ProductImageService productImageService,
+                             ObjectMapper objectMapper,
+                             ProductResponseCache responseCache,
+                             ContentNegotiationManager contentNegotiationManager) {
         this.productService = productService;
+        this.productBatchService = productBatchService;
+        this.productLookupService = productLookupService;
+        this.productStockService = productStockService;
+        this.productImageService = productImageService;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
+    // fields=id,name,price : seules ces colonnes sont lues et sérialisées
     @GetMapping
-    public List<ProductDTO> getAllProducts() {
-        return productService.getAllProducts();
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String fields, NativeWebRequest request)
+            throws HttpMediaTypeNotAcceptableException {
+        List<String> selected = ProductFields.parse(fields);
+        // Version du catalogue : 304 sans lire la liste
+        String etag = responseCache.listingEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        if (selected != null) {
+            return ResponseEntity.ok().eTag(etag).body(productService.getAllProducts(selected));
+        }
+        if (!prefersJson(request)) {
+            return ResponseEntity.ok().eTag(etag).body(productService.getAllProducts());
+        }
+        return write(responseCache.all(productService::getAllProducts), request);
+    }
+
+    // Plusieurs produits en un appel (paniers) : ids=1,2,3, réponse dans l'ordre demandé
+    @GetMapping(params = "ids")
+    public List<ProductDTO> getProductsByIds(@RequestParam List<Long> ids) {
+        return productLookupService.getProducts(ids);
+    }
+
+    // Même lecture pour les listes d'ids trop longues pour une URL
+    @PostMapping("/lookup")
+    public List<ProductDTO> lookupProducts(@RequestBody List<Long> ids) {
+        return productLookupService.getProducts(ids);
+    }
+
+    // NDJSON : une ligne par produit, écrite au fil de la lecture en base
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        ObjectWriter writer = objectMapper.writerFor(ProductDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                int[] written = {0};
+                productService.streamAllProducts(dto -> {
+                    try {
+                        writer.writeValue(generator, dto);
+                        generator.writeRaw('\n');
+                        if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Synchronisation incrémentale : sans "since", parcours complet du flux, page par page
+    @GetMapping("/changes")
+    public ProductChanges getChanges(@RequestParam(required = false) String since,
+                                     @RequestParam(required = false) Integer limit) {
+        return productService.getChanges(since, limit);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
-        return productService.getProductById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getProductById(@PathVariable Long id, NativeWebRequest request)
+            throws HttpMediaTypeNotAcceptableException {
+        boolean json = prefersJson(request);
+        CachedResponse cached = json ? responseCache.cachedProduct(id) : null;
+        if (cached != null) {
+            return write(cached, request);
+        }
+        if (isConditional(request)) {
+            // Réponse absente du cache : on compare la version seule avant de charger le produit
+            Optional<ProductVersion> version = productService.getProductVersion(id);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (request.checkNotModified(version.get().etag(), version.get().lastModified())) {
+                return null;
+            }
+        }
+        if (json) {
+            CachedResponse response = responseCache.product(id, () -> productService.getProductById(id));
+            return response == null ? ResponseEntity.notFound().build() : write(response, request);
+        }
+        return productService.getProductById(id)
+                .map(dto -> {
+                    ProductVersion version = ProductVersion.of(dto);
+                    return validators(ResponseEntity.ok(), version.etag(), version.lastModified()).body(dto);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity.BodyBuilder validators(ResponseEntity.BodyBuilder builder, String etag,
+                                                         long lastModified) {
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        if (lastModified >= 0) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    private static boolean isConditional(NativeWebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    // JSON demandé explicitement ou via */* : seul format servi depuis le cache de réponses
+    private boolean prefersJson(NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        for (MediaType type : contentNegotiationManager.resolveMediaTypes(request)) {
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_CBOR) || type.isCompatibleWith(SMILE)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Octets écrits tels quels (ByteArrayHttpMessageConverter) ; validateurs satisfaits → 304 sans corps
+    private static ResponseEntity<byte[]> write(CachedResponse response, NativeWebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = response.gzipped() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder builder = validators(ResponseEntity.ok(), response.etag(), response.lastModified())
+                .contentType(MediaType.parseMediaType(response.contentType()))
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? response.gzipped() : response.body());
     }
 
     @PostMapping
@@ -38,15 +220,97 @@ public class ProductController {
         return ResponseEntity.ok(savedProduct);
     }
 
+    @PutMapping("/{id}")
+    public ProductDTO updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDTO productDTO) {
+        return productService.updateProduct(id, productDTO);
+    }
+
+    @PatchMapping("/{id}")
+    public ProductDTO partialUpdateProduct(@PathVariable Long id, @RequestBody ProductDTO productDTO) {
+        return productService.partialUpdateProduct(id, productDTO);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/batch")
+    public ProductBatchResponse createProducts(@RequestBody List<ProductDTO> products) {
+        return productBatchService.createAll(products);
+    }
+
+    @PatchMapping("/batch")
+    public ProductBatchResponse partialUpdateProducts(@RequestBody List<ProductDTO> products) {
+        return productBatchService.partialUpdateAll(products);
+    }
+
+    @DeleteMapping("/batch")
+    public ProductBatchResponse deleteProducts(@RequestBody List<Long> ids) {
+        return productBatchService.deleteAll(ids);
+    }
+
+    // Décrément atomique du stock : 409 si insuffisant
+    @PostMapping("/{id}/reserve")
+    public StockReservation reserveStock(@PathVariable Long id, @Valid @RequestBody StockReservation reservation) {
+        return productStockService.reserve(id, reservation.getQuantity());
+    }
+
+    // Panier : toutes les lignes réservées, ou aucune
+    @PostMapping("/reserve")
+    public List<StockReservation> reserveStocks(@RequestBody List<StockReservation> reservations) {
+        return productStockService.reserveAll(reservations);
+    }
+
+    // Upload direct vers MinIO : formulaire présigné (type et taille imposés), puis PUT /{id}/image
+    @PostMapping("/{id}/image/upload")
+    public PresignedUpload presignImageUpload(@PathVariable Long id, @Valid @RequestBody ImageUploadRequest request)
+            throws Exception {
+        return productImageService.presignUpload(id, request);
+    }
+
+    @PutMapping("/{id}/image")
+    public ProductDTO attachImage(@PathVariable Long id, @Valid @RequestBody ImageAttachment attachment)
+            throws Exception {
+        return productImageService.attachImage(id, attachment.getObjectName());
+    }
+
+    // Redirection vers l'URL GET présignée : l'image est servie par MinIO ; variant=thumb pour les vignettes
+    @GetMapping("/{id}/image")
+    public ResponseEntity<Void> image(@PathVariable Long id, @RequestParam(required = false) String variant) {
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(productImageService.imageUrl(id, variant)))
+                .build();
+    }
+
+    // Variantes déjà générées (nom -> URL présignée)
+    @GetMapping("/{id}/image/variants")
+    public Map<String, String> imageVariants(@PathVariable Long id) {
+        return productImageService.variantUrls(id);
+    }
+
     @GetMapping("/search")
-    public Page<ProductDTO> search(@Valid ma.tahasouhailmanna.module1.criteria.ProductCriteria criteria, Pageable pageable) {
-        return productService.search(criteria, pageable);
+    public Page<?> search(@Valid ProductCriteria criteria, Pageable pageable,
+                          @RequestParam(required = false) String fields) {
+        List<String> selected = ProductFields.parse(fields);
+        return selected == null ? productService.search(criteria, pageable)
+                : productService.search(criteria, pageable, selected);
+    }
+
+    // Pagination par curseur : activée par la présence du paramètre "cursor" (vide pour la première page)
+    @GetMapping(value = "/search", params = "cursor")
+    public CursorPage<ProductDTO> searchByCursor(@Valid ProductCriteria criteria,
+                                                 @RequestParam String cursor,
+                                                 @RequestParam(defaultValue = "20") int size,
+                                                 Sort sort) {
+        return productService.searchByCursor(criteria, cursor, size, sort);
+    }
+
+    // Recherche texte classée par pertinence ; les filtres de /search restent applicables
+    @GetMapping("/search/text")
+    public Page<ProductDTO> searchText(@RequestParam String q, @Valid ProductCriteria criteria, Pageable pageable) {
+        return productService.textSearch(q, criteria, pageable);
     }
 
     @GetMapping("/search/name")
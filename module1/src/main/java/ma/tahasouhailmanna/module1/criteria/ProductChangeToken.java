@@ -0,0 +1,36 @@
+package ma.tahasouhailmanna.module1.criteria;
+
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Jeton opaque du flux de modifications : dernière position (change_seq) transmise au client.
+ */
+public final class ProductChangeToken {
+
+    private ProductChangeToken() {
+    }
+
+    public static String encode(long position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Absent : synchronisation complète depuis le début du flux
+    public static long decode(String token) {
+        if (token == null || token.isBlank()) {
+            return 0;
+        }
+        try {
+            long position = Long.parseLong(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            if (position < 0) {
+                throw new IllegalArgumentException("Invalid change token");
+            }
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid change token", e);
+        }
+    }
+}
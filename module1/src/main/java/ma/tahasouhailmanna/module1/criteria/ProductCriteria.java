@@ -6,6 +6,8 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 
+import java.util.Locale;
+
 @Data
 public class ProductCriteria {
     private String name;
@@ -33,4 +35,25 @@ public class ProductCriteria {
     public boolean isQuantityRangeValid() {
         return minQuantity == null || maxQuantity == null || minQuantity <= maxQuantity;
     }
+
+    // Forme canonique : saisies équivalentes => même requête SQL et même clé de cache
+    public ProductCriteria normalized() {
+        ProductCriteria c = new ProductCriteria();
+        c.setName(text(name));
+        c.setDescription(text(description));
+        c.setCategory(text(category));
+        // + 0.0 : -0.0 et 0.0 donnent la même clé
+        c.setMinPrice(minPrice == null ? null : minPrice + 0.0);
+        c.setMaxPrice(maxPrice == null ? null : maxPrice + 0.0);
+        c.setMinQuantity(minQuantity);
+        c.setMaxQuantity(maxQuantity);
+        return c;
+    }
+
+    private static String text(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
 }
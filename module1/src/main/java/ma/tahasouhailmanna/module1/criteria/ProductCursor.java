@@ -0,0 +1,87 @@
+package ma.tahasouhailmanna.module1.criteria;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.utils.JSONUtils;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Position opaque de pagination par curseur : clé de tri + id de la dernière ligne renvoyée.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCursor {
+    public static final Set<String> SORTABLE = Set.of("id", "name", "price", "quantity", "category");
+    private static final Set<String> NULLABLE = Set.of("price", "quantity", "category");
+
+    private String sort;
+    private Sort.Direction direction;
+    private Object value;
+    private Long id;
+
+    public static ProductCursor after(Product last, Sort.Order order) {
+        return new ProductCursor(order.getProperty(), order.getDirection(), valueOf(last, order.getProperty()), last.getId());
+    }
+
+    public static boolean isNullable(String property) {
+        return NULLABLE.contains(property);
+    }
+
+    // Le JSON ne garde pas le type exact des nombres : on le rétablit selon la colonne
+    public Comparable<?> typedValue() {
+        if (value == null) {
+            return null;
+        }
+        return switch (sort) {
+            case "id" -> ((Number) value).longValue();
+            case "price" -> ((Number) value).doubleValue();
+            case "quantity" -> ((Number) value).intValue();
+            default -> value.toString();
+        };
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(JSONUtils.toJSON(this).getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            ProductCursor cursor = JSONUtils.fromJSON(json, ProductCursor.class);
+            if (cursor.sort == null || !SORTABLE.contains(cursor.sort) || cursor.direction == null || cursor.id == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            if (cursor.value != null && !(cursor.value instanceof Number || cursor.value instanceof String)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return cursor;
+        } catch (JsonProcessingException | IllegalArgumentException | ClassCastException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    private static Object valueOf(Product p, String property) {
+        return switch (property) {
+            case "id" -> p.getId();
+            case "name" -> p.getName();
+            case "price" -> p.getPrice();
+            case "quantity" -> p.getQuantity();
+            case "category" -> p.getCategory();
+            default -> throw new IllegalArgumentException("Unsupported cursor sort: " + property);
+        };
+    }
+}
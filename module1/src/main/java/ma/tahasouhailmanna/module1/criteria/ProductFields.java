@@ -0,0 +1,42 @@
+package ma.tahasouhailmanna.module1.criteria;
+
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Champs sélectionnables via {@code fields=} (les propriétés de ProductDTO), dans l'ordre demandé.
+ */
+public final class ProductFields {
+    public static final List<String> ALL = List.of("id", "name", "description", "category", "price", "version", "updatedAt");
+
+    private ProductFields() {
+    }
+
+    /**
+     * @return les champs demandés sans doublon, ou null si le paramètre est absent (DTO complet)
+     */
+    public static List<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!ALL.contains(name)) {
+                throw new BadRequestException("Unknown field: " + name + " (allowed: " + String.join(",", ALL) + ")");
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new BadRequestException("fields must name at least one field");
+        }
+        return new ArrayList<>(selected);
+    }
+}
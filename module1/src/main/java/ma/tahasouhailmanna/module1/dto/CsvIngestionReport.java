@@ -0,0 +1,18 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class CsvIngestionReport {
+    private String fileName;
+    private long rowsRead;
+    private long rowsInserted;
+    private long rowsRejected;
+    private long durationMs;
+    private double rowsPerSecond;
+    private String rejectedFile;
+}
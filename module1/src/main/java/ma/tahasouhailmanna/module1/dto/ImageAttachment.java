@@ -0,0 +1,17 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageAttachment {
+    // objectName renvoyé par POST /api/products/{id}/image/upload
+    @NotBlank
+    private String objectName;
+}
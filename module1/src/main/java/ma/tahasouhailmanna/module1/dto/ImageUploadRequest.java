@@ -0,0 +1,23 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageUploadRequest {
+    @NotBlank
+    private String contentType;
+
+    // Taille exacte du fichier : imposée par la politique du formulaire présigné
+    @NotNull
+    @Positive
+    private Long size;
+}
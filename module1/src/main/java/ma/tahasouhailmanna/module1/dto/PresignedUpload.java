@@ -0,0 +1,20 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Formulaire POST présigné : le client envoie {@code fields} puis le fichier (champ "file") vers {@code url},
+ * avant {@code expiresAt}. MinIO refuse tout autre nom d'objet, type de contenu ou taille.
+ */
+@Getter
+@AllArgsConstructor
+public class PresignedUpload {
+    private String url;
+    private Map<String, String> fields;
+    private String objectName;
+    private Instant expiresAt;
+}
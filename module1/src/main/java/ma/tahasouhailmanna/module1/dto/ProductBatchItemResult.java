@@ -0,0 +1,22 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductBatchItemResult {
+    public enum Status { CREATED, UPDATED, DELETED, NOT_FOUND, CONFLICT, INVALID, FAILED }
+
+    private int index;
+    private Long id;
+    private Status status;
+    private String message;
+    private ProductDTO product;
+
+    public boolean isSuccess() {
+        return status == Status.CREATED || status == Status.UPDATED || status == Status.DELETED;
+    }
+}
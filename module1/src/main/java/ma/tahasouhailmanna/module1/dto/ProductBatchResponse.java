@@ -0,0 +1,22 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class ProductBatchResponse {
+    private final int succeeded;
+    private final int failed;
+    private final List<ProductBatchItemResult> items;
+
+    public ProductBatchResponse(List<ProductBatchItemResult> items) {
+        int ok = 0;
+        for (ProductBatchItemResult item : items) {
+            if (item.isSuccess()) ok++;
+        }
+        this.succeeded = ok;
+        this.failed = items.size() - ok;
+        this.items = items;
+    }
+}
@@ -0,0 +1,19 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Modifications du catalogue depuis un jeton : produits créés ou modifiés (état courant), ids supprimés,
+ * et jeton à renvoyer au prochain appel. hasMore : la limite a été atteinte, rappeler tout de suite.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChanges {
+    private List<ProductDTO> upserts;
+    private List<Long> deleted;
+    private String nextToken;
+    private boolean hasMore;
+}
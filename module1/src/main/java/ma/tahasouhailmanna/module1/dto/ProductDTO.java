@@ -4,6 +4,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
 
+import java.time.Instant;
+
 public class ProductDTO {
     private Long id;
 
@@ -18,6 +20,30 @@ public class ProductDTO {
     @PositiveOrZero
     private Double price;
 
+    // Renseignés par le serveur ; une version envoyée sur PUT/PATCH doit être la version courante (sinon 409)
+    private Long version;
+
+    private Instant updatedAt;
+
+    public ProductDTO() {
+    }
+
+    public ProductDTO(Long id, String name, String description, String category, Double price) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.category = category;
+        this.price = price;
+    }
+
+    // Utilisé par les projections JPQL (select new ...) : pas d'entité ni de mapper sur les lectures de listes
+    public ProductDTO(Long id, String name, String description, String category, Double price,
+                      Long version, Instant updatedAt) {
+        this(id, name, description, category, price);
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
     // getters/setters
     // ...existing code...
     public Long getId() { return id; }
@@ -30,4 +56,8 @@ public class ProductDTO {
     public void setCategory(String category) { this.category = category; }
     public Double getPrice() { return price; }
     public void setPrice(Double price) { this.price = price; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
 }
@@ -0,0 +1,48 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page de produits relisible depuis le cache : PageImpl n'a pas de constructeur exploitable par Jackson.
+ */
+// pageable et sort restent sérialisés (réponse HTTP inchangée) mais sont reconstruits depuis number, size et sortOrders
+@JsonIgnoreProperties(value = {"pageable", "sort"}, allowGetters = true, ignoreUnknown = true)
+public class ProductPage extends PageImpl<ProductDTO> {
+
+    public ProductPage(Page<ProductDTO> page) {
+        super(new ArrayList<>(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    @JsonCreator
+    public ProductPage(@JsonProperty("content") List<ProductDTO> content,
+                       @JsonProperty("number") int number,
+                       @JsonProperty("size") int size,
+                       @JsonProperty("totalElements") long totalElements,
+                       @JsonProperty("sortOrders") List<String> sortOrders) {
+        super(content, size > 0 ? PageRequest.of(number, size, toSort(sortOrders)) : PageRequest.ofSize(1), totalElements);
+    }
+
+    // "propriété:DIRECTION", dans l'ordre du tri
+    public List<String> getSortOrders() {
+        return getSort().stream().map(o -> o.getProperty() + ":" + o.getDirection()).toList();
+    }
+
+    private static Sort toSort(List<String> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return Sort.unsorted();
+        }
+        return Sort.by(orders.stream().map(o -> {
+            int sep = o.lastIndexOf(':');
+            return new Sort.Order(Sort.Direction.fromString(o.substring(sep + 1)), o.substring(0, sep));
+        }).toList());
+    }
+}
@@ -0,0 +1,23 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import java.time.Instant;
+
+/**
+ * Version d'un produit telle qu'exposée en HTTP : ETag faible (les variantes JSON, CBOR, gzip
+ * d'une même version sont équivalentes) et Last-Modified.
+ */
+public record ProductVersion(Long version, Instant updatedAt) {
+
+    public static ProductVersion of(ProductDTO dto) {
+        return new ProductVersion(dto.getVersion(), dto.getUpdatedAt());
+    }
+
+    public String etag() {
+        return version == null ? null : "W/\"" + version + "\"";
+    }
+
+    // -1 : inconnue (convention de WebRequest.checkNotModified)
+    public long lastModified() {
+        return updatedAt == null ? -1 : updatedAt.toEpochMilli();
+    }
+}
@@ -0,0 +1,21 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+    // Ignoré sur POST /api/products/{id}/reserve : l'id du chemin fait foi
+    private Long id;
+
+    @NotNull
+    @Positive
+    private Integer quantity;
+}
@@ -0,0 +1,15 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Objet adressé par contenu. deduplicated : ce contenu était déjà stocké, aucun octet n'a été envoyé à MinIO.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredObject {
+    private String url;
+    private String sha256;
+    private boolean deduplicated;
+}
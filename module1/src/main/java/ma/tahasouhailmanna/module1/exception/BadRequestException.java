@@ -0,0 +1,12 @@
+package ma.tahasouhailmanna.module1.exception;
+
+/**
+ * Requête invalide (paramètre, jeton, corps) : 400 avec ce message. Les IllegalArgumentException levées
+ * ailleurs (bibliothèques, bugs) restent des erreurs serveur et ne sont pas renvoyées au client.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) { super(message); }
+
+    public BadRequestException(String message, Throwable cause) { super(message, cause); }
+}
@@ -0,0 +1,6 @@
+package ma.tahasouhailmanna.module1.exception;
+
+public class ChangeTokenExpiredException extends RuntimeException {
+
+    public ChangeTokenExpiredException(String message) { super(message); }
+}
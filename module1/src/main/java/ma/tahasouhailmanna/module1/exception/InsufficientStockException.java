@@ -0,0 +1,6 @@
+package ma.tahasouhailmanna.module1.exception;
+
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) { super(message); }
+}
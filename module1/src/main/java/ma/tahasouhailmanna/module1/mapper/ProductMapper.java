@@ -4,6 +4,7 @@ import ma.tahasouhailmanna.module1.dto.ProductDTO;
 import ma.tahasouhailmanna.module1.model.Product;
 import org.mapstruct.BeanMapping;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
 import org.mapstruct.ReportingPolicy;
@@ -11,8 +12,12 @@ import org.mapstruct.ReportingPolicy;
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface ProductMapper {
     ProductDTO toDto(Product product); // was toDTO
+    // updatedAt est posé par Hibernate ; version est contrôlée par ProductService
+    @Mapping(target = "updatedAt", ignore = true)
     Product toEntity(ProductDTO dto);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     void updateEntityFromDto(ProductDTO dto, @MappingTarget Product entity);
 }
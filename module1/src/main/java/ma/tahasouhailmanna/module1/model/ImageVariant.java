@@ -0,0 +1,42 @@
+package ma.tahasouhailmanna.module1.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Variante redimensionnée d'une image du bucket. Rattachée à l'objet d'origine et non au produit :
+ * un produit retrouve ses variantes à partir de son {@link Product#getImageUrl()}, et un contenu
+ * dédupliqué partagé par plusieurs produits n'est traité qu'une fois.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"original_object", "name"}))
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class ImageVariant {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_variant_seq")
+    @SequenceGenerator(name = "image_variant_seq", sequenceName = "image_variant_seq", allocationSize = 50)
+    private Long id;
+    private String originalObject;
+    // Nom de la spécification (thumb, small...)
+    private String name;
+    private String objectName;
+    // Dimensions réelles après redimensionnement (ratio conservé)
+    private Integer width;
+    private Integer height;
+    @CreationTimestamp
+    private Instant createdAt;
+}
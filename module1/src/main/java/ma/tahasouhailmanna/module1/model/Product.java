@@ -1,10 +1,17 @@
 package ma.tahasouhailmanna.module1.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 @Entity
 @AllArgsConstructor
@@ -15,7 +22,8 @@ import lombok.*;
 @Builder
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
     private String name;
     private Double price;
@@ -27,4 +35,15 @@ public class Product {
     private String sku;
     private Boolean available;
     private Double discount;
+
+    // Incrémentée à chaque UPDATE : verrouillage optimiste et ETag
+    @Version
+    private Long version;
+    @UpdateTimestamp
+    private Instant updatedAt;
+    // Position dans le flux de modifications : valeur par défaut à l'INSERT, réattribuée en SQL à chaque
+    // mise à jour (ProductRepository.touchChanges) ; jamais écrite par Hibernate
+    @ColumnDefault("nextval('product_change_seq')")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long changeSeq;
 }
@@ -0,0 +1,27 @@
+package ma.tahasouhailmanna.module1.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Position du flux de modifications jusqu'à laquelle les tombstones ont été purgés (ligne unique).
+ * Un jeton antérieur a pu manquer des suppressions : le client doit repartir d'une synchronisation complète.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class ProductChangesPurge {
+    public static final long ID = 1;
+
+    @Id
+    private Long id;
+    private Long purgedThrough;
+    private Instant purgedAt;
+}
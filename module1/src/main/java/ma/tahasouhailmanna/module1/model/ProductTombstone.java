@@ -0,0 +1,37 @@
+package ma.tahasouhailmanna.module1.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Trace d'une suppression de produit, relue par le flux de modifications.
+ * Clé = position dans ce flux, tirée de la même séquence que {@link Product#getChangeSeq()}.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class ProductTombstone {
+    // allocationSize = 1 : pas de bloc réservé par nœud, sinon l'ordre du flux ne suivrait plus celui des écritures
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_change_seq")
+    @SequenceGenerator(name = "product_change_seq", sequenceName = "product_change_seq", allocationSize = 1)
+    private Long changeSeq;
+    private Long productId;
+    @CreationTimestamp
+    private Instant deletedAt;
+
+    public static ProductTombstone of(Long productId) {
+        return ProductTombstone.builder().productId(productId).build();
+    }
+}
@@ -0,0 +1,25 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import ma.tahasouhailmanna.module1.model.ImageVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, Long> {
+
+    List<ImageVariant> findByOriginalObject(String originalObject);
+
+    Optional<ImageVariant> findByOriginalObjectAndName(String originalObject, String name);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ImageVariant v where v.originalObject = :originalObject")
+    int deleteByOriginalObject(@Param("originalObject") String originalObject);
+}
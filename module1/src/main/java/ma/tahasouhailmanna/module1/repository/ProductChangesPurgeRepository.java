@@ -0,0 +1,9 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import ma.tahasouhailmanna.module1.model.ProductChangesPurge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductChangesPurgeRepository extends JpaRepository<ProductChangesPurge, Long> {
+}
@@ -1,17 +1,79 @@
 package ma.tahasouhailmanna.module1.repository;
 
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductVersion;
 import ma.tahasouhailmanna.module1.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductRepositoryCustom {
 
-    List<Product> findByNameContainingIgnoreCase(String name);
-    List<Product> findByDescriptionContainingIgnoreCase(String description);
-    List<Product> findByCategoryIgnoreCase(String category);
-    List<Product> findByPriceBetween(Double min, Double max);
+    // Lectures de listes projetées directement en DTO : seules les colonnes exposées, aucune entité gérée
+    String SELECT_DTO = "select new ma.tahasouhailmanna.module1.dto.ProductDTO("
+            + "p.id, p.name, p.description, p.category, p.price, p.version, p.updatedAt) from Product p";
+
+    @Query(SELECT_DTO)
+    List<ProductDTO> findAllDtos();
+
+    // lower() et non upper() (forme dérivée par défaut) : seule forme couverte par les index de V4/V5
+    @Query(SELECT_DTO + " where lower(p.name) like lower(concat('%', :#{escape([0])}, '%')) "
+            + "escape :#{escapeCharacter()}")
+    List<ProductDTO> findByNameContainingIgnoreCase(String name);
+
+    @Query(SELECT_DTO + " where lower(p.description) like lower(concat('%', :#{escape([0])}, '%')) "
+            + "escape :#{escapeCharacter()}")
+    List<ProductDTO> findByDescriptionContainingIgnoreCase(String description);
+
+    @Query(SELECT_DTO + " where lower(p.category) = lower(:category)")
+    List<ProductDTO> findByCategoryIgnoreCase(@Param("category") String category);
+
+    @Query(SELECT_DTO + " where p.price between :min and :max")
+    List<ProductDTO> findByPriceBetween(@Param("min") Double min, @Param("max") Double max);
+
+    // Lecture groupée (absents du cache "product") : un seul IN, projeté comme les autres lectures
+    @Query(SELECT_DTO + " where p.id in :ids")
+    List<ProductDTO> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Requêtes conditionnelles (If-None-Match / If-Modified-Since) : deux colonnes, pas la ligne entière
+    @Query("select new ma.tahasouhailmanna.module1.dto.ProductVersion(p.version, p.updatedAt) "
+            + "from Product p where p.id = :id")
+    Optional<ProductVersion> findVersionById(@Param("id") Long id);
+
+    // Redirection vers l'image : une colonne ; vide si le produit n'existe pas ou n'a pas d'image
+    @Query("select p.imageUrl from Product p where p.id = :id")
+    Optional<String> findImageUrlById(@Param("id") Long id);
+
+    // Flux de modifications : [change_seq, ProductDTO], lus dans l'ordre de l'index sur change_seq
+    @Query("select p.changeSeq, new ma.tahasouhailmanna.module1.dto.ProductDTO("
+            + "p.id, p.name, p.description, p.category, p.price, p.version, p.updatedAt) "
+            + "from Product p where p.changeSeq > :since order by p.changeSeq")
+    List<Object[]> findChangedSince(@Param("since") long since, Limit limit);
+
+    // Nouvelle position dans le flux des produits modifiés : une seule instruction pour tout un lot
+    @Modifying(flushAutomatically = true)
+    @Query(value = "update product set change_seq = nextval('product_change_seq') where id in (:ids)",
+            nativeQuery = true)
+    int touchChanges(@Param("ids") Collection<Long> ids);
+
+    // Réservation de stock : test et décrément évalués sur la ligne verrouillée par l'UPDATE, sans lecture
+    // préalable ; 0 ligne modifiée = produit absent ou stock insuffisant. Ni version ni flux de modifications :
+    // la quantité n'est pas exposée par ProductDTO. Les recherches filtrées ou triées par quantité ne sont
+    // pas mises en cache (ProductCacheKeys#searchCacheable), aucune invalidation n'est nécessaire
+    @Modifying
+    @Query("update Product p set p.quantity = p.quantity - :quantity where p.id = :id and p.quantity >= :quantity")
+    int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Query("select p.id from Product p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,40 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import ma.tahasouhailmanna.module1.criteria.ProductCursor;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Page suivante en pagination par clé (tri + id), sans COUNT ni OFFSET.
+     * {@code after} vaut null pour la première page.
+     */
+    List<Product> findByKeyset(Specification<Product> spec, Sort.Order order, ProductCursor after, int limit);
+
+    /**
+     * Équivalent de {@code findAll(spec, pageable)} projeté en DTO : même filtre, même tri
+     * (celui de la Specification si la page n'est pas triée), même requête COUNT.
+     */
+    Page<ProductDTO> findDtos(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * Comme {@link #findDtos}, mais ne lit que les colonnes {@code fields} (noms validés par l'appelant) ;
+     * chaque ligne est une map champ → valeur dans l'ordre demandé.
+     */
+    Page<Map<String, Object>> findFields(Specification<Product> spec, Pageable pageable, List<String> fields);
+
+    /**
+     * Parcourt toute la table avec un curseur JDBC (fetch size), projetée en DTO : aucune entité
+     * n'entre dans le contexte de persistance. À fermer après usage.
+     */
+    Stream<ProductDTO> streamAll(int fetchSize);
+}
@@ -0,0 +1,153 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import ma.tahasouhailmanna.module1.criteria.ProductCursor;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.model.Product;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> findByKeyset(Specification<Product> spec, Sort.Order order, ProductCursor after, int limit) {
+        HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> root = query.from(Product.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (spec != null) {
+            Predicate filter = spec.toPredicate(root, query, cb);
+            if (filter != null) predicates.add(filter);
+        }
+        if (after != null) {
+            predicates.add(keysetPredicate(cb, root, order, after));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        // NULLS LAST dans les deux sens : l'ordre doit être total et identique d'une page à l'autre
+        Path<Object> sortPath = root.get(order.getProperty());
+        Path<Long> id = root.get("id");
+        if (order.isAscending()) {
+            query.orderBy(cb.asc(sortPath, false), cb.asc(id));
+        } else {
+            query.orderBy(cb.desc(sortPath, false), cb.desc(id));
+        }
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    // (tri, id) > (v, id0) développé en "tri >= v AND (tri > v OR id > id0)" : la borne de tête reste
+    // exploitable par un index sur la colonne de tri
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate keysetPredicate(HibernateCriteriaBuilder cb, Root<Product> root, Sort.Order order, ProductCursor after) {
+        boolean asc = order.isAscending();
+        Path<Long> id = root.get("id");
+        Predicate idAfter = asc ? cb.greaterThan(id, after.getId()) : cb.lessThan(id, after.getId());
+
+        if ("id".equals(order.getProperty())) {
+            return idAfter;
+        }
+
+        Expression<Comparable> sort = root.get(order.getProperty());
+        Comparable value = after.typedValue();
+        if (value == null) {
+            // Déjà dans la queue des NULL : seul l'id départage
+            return cb.and(cb.isNull(sort), idAfter);
+        }
+        Predicate bound = asc ? cb.greaterThanOrEqualTo(sort, value) : cb.lessThanOrEqualTo(sort, value);
+        Predicate strict = asc ? cb.greaterThan(sort, value) : cb.lessThan(sort, value);
+        Predicate next = cb.and(bound, cb.or(strict, idAfter));
+        return ProductCursor.isNullable(order.getProperty()) ? cb.or(next, cb.isNull(sort)) : next;
+    }
+
+    @Override
+    public Page<ProductDTO> findDtos(Specification<Product> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductDTO> query = cb.createQuery(ProductDTO.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.construct(ProductDTO.class,
+                root.get("id"), root.get("name"), root.get("description"), root.get("category"), root.get("price"),
+                root.get("version"), root.get("updatedAt")));
+        return page(query, root, spec, pageable);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findFields(Specification<Product> spec, Pageable pageable, List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        query.multiselect(fields.stream().<Selection<?>>map(f -> root.get(f).alias(f)).toList());
+        return page(query, root, spec, pageable).map(tuple -> {
+            Map<String, Object> row = new LinkedHashMap<>(fields.size() * 2);
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            return row;
+        });
+    }
+
+    // Même sémantique que findAll(spec, pageable) : tri de la Specification si la page n'est pas triée
+    private <T> Page<T> page(CriteriaQuery<T> query, Root<Product> root, Specification<Product> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        Predicate filter = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (filter != null) {
+            query.where(filter);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<T> typed = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typed.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        // COUNT seulement si la page ne permet pas de déduire le total
+        return PageableExecutionUtils.getPage(typed.getResultList(), pageable, () -> count(spec));
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        Predicate filter = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.select(cb.count(root)).orderBy(List.of());
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public Stream<ProductDTO> streamAll(int fetchSize) {
+        return entityManager.createQuery(ProductRepository.SELECT_DTO + " order by p.id", ProductDTO.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,82 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import jakarta.persistence.criteria.Expression;
+import ma.tahasouhailmanna.module1.model.Product;
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Fonctions SQL de recherche texte, utilisables depuis les Specifications :
+ * {@code product_text_match(name, description, terme, motif)} et
+ * {@code product_text_rank(name, description, terme, motif)}, où motif est le terme échappé pour LIKE
+ * ({@code \}, {@code %} et {@code _} pris littéralement).
+ * PostgreSQL : plein texte + trigrammes (index de V4__product_search_indexes.sql) ;
+ * autres bases (H2 des tests) : équivalent par sous-chaîne, sans index.
+ */
+public class ProductSearchFunctions implements FunctionContributor {
+    public static final String MATCH = "product_text_match";
+    public static final String RANK = "product_text_rank";
+
+    // Même expression que l'index product_search_fts_idx
+    private static final String VECTOR = "(setweight(to_tsvector('simple', coalesce(?1, '')), 'A')"
+            + " || setweight(to_tsvector('simple', coalesce(?2, '')), 'B'))";
+    private static final String QUERY = "websearch_to_tsquery('simple', ?3)";
+    private static final String CONTAINS = " like ('%' || lower(?4) || '%') escape '\\'";
+    private static final String STARTS_WITH = " like (lower(?4) || '%') escape '\\'";
+
+    @Override
+    public void contributeFunctions(FunctionContributions contributions) {
+        BasicType<Boolean> bool = contributions.getTypeConfiguration().getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.BOOLEAN);
+        BasicType<Double> dbl = contributions.getTypeConfiguration().getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.DOUBLE);
+        var registry = contributions.getFunctionRegistry();
+
+        if (contributions.getDialect() instanceof PostgreSQLDialect) {
+            registry.registerPattern(MATCH,
+                    "(" + VECTOR + " @@ " + QUERY + " or lower(?1)" + CONTAINS + ")", bool);
+            registry.registerPattern(RANK,
+                    "(ts_rank(" + VECTOR + ", " + QUERY + ") + similarity(lower(?1), lower(?3)))", dbl);
+        } else {
+            registry.registerPattern(MATCH,
+                    "(lower(?1)" + CONTAINS + " or lower(coalesce(?2, ''))" + CONTAINS + ")", bool);
+            // Nom exact > préfixe du nom > nom contenant le terme > description seule
+            registry.registerPattern(RANK,
+                    "(case when lower(?1) = lower(?3) then 3.0 when lower(?1)" + STARTS_WITH + " then 2.0"
+                            + " when lower(?1)" + CONTAINS + " then 1.0 else 0.5 end)",
+                    dbl);
+        }
+    }
+
+    @Override
+    public int ordinal() {
+        return 1000;
+    }
+
+    /**
+     * Produits correspondant au terme ; si {@code ranked}, triés par pertinence décroissante puis par id.
+     */
+    public static Specification<Product> textMatch(String term, boolean ranked) {
+        return (root, query, cb) -> {
+            Expression<String> name = root.get("name");
+            Expression<String> description = root.get("description");
+            Expression<String> text = cb.literal(term);
+            Expression<String> pattern = cb.literal(escapeLike(term));
+            // Pas de tri sur la requête COUNT de la pagination
+            if (ranked && !Long.class.equals(query.getResultType())) {
+                query.orderBy(cb.desc(cb.function(RANK, Double.class, name, description, text, pattern)),
+                        cb.asc(root.get("id")));
+            }
+            return cb.isTrue(cb.function(MATCH, Boolean.class, name, description, text, pattern));
+        };
+    }
+
+    // Jokers de l'utilisateur pris littéralement : "_" ou "%" ne doivent pas correspondre à tout le catalogue
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
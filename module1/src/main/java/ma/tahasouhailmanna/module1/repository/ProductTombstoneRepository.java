@@ -0,0 +1,27 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import ma.tahasouhailmanna.module1.model.ProductTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    // Parcours de la clé primaire (change_seq) à partir de la position du client
+    List<ProductTombstone> findByChangeSeqGreaterThanOrderByChangeSeq(long since, Limit limit);
+
+    // Dernière position antérieure à la limite de rétention ; null si rien à purger
+    @Query("select max(t.changeSeq) from ProductTombstone t where t.deletedAt < :cutoff")
+    Long findLastChangeSeqDeletedBefore(@Param("cutoff") Instant cutoff);
+
+    @Modifying
+    @Query("delete from ProductTombstone t where t.changeSeq <= :through")
+    int deleteThrough(@Param("through") long through);
+}
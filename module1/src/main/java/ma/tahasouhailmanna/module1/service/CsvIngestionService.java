@@ -0,0 +1,306 @@
+package ma.tahasouhailmanna.module1.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.config.CsvProcessingProperties;
+import ma.tahasouhailmanna.module1.dto.CsvIngestionReport;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import ma.tahasouhailmanna.module1.utils.CsvLineParser;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class CsvIngestionService {
+    private static final String INSERT_SQL =
+            "INSERT INTO product (name, price, description, image_url, quantity, category, sku, available, discount, "
+                    + "updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] INSERT_TYPES = {
+            Types.VARCHAR, Types.DOUBLE, Types.VARCHAR, Types.VARCHAR, Types.INTEGER,
+            Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN, Types.DOUBLE, Types.TIMESTAMP_WITH_TIMEZONE
+    };
+    // Ordre des colonnes de INSERT_SQL, tel qu'il apparaît dans l'en-tête des exports
+    private static final String[] COLUMNS = {
+            "name", "price", "description", "imageurl", "quantity", "category", "sku", "available", "discount"
+    };
+    private static final int MAX_FIELDS = 64;
+    // Lignes par enregistrement : un guillemet jamais refermé n'avale pas le reste du fichier
+    private static final int MAX_RECORD_LINES = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CsvProcessingProperties properties;
+    private final ProductCacheKeys productCacheKeys;
+
+    public CsvIngestionService(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               CsvProcessingProperties properties,
+                               ProductCacheKeys productCacheKeys) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.productCacheKeys = productCacheKeys;
+    }
+
+    public List<CsvIngestionReport> ingestAll() throws IOException {
+        Path inputDir = properties.resolveInputDir();
+        if (!Files.isDirectory(inputDir)) {
+            throw new ResourceNotFoundException("Input directory " + inputDir + " not found");
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(inputDir)) {
+            files = listing.filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
+                    .sorted()
+                    .toList();
+        }
+        List<CsvIngestionReport> reports = new ArrayList<>(files.size());
+        try {
+            for (Path file : files) {
+                reports.add(ingest(file));
+            }
+        } finally {
+            // Insertions seulement : les entrées "product" existantes restent valides,
+            // une seule invalidation des listes pour tout l'import
+            productCacheKeys.catalogChanged();
+        }
+        return reports;
+    }
+
+    public CsvIngestionReport ingestFile(String fileName) throws IOException {
+        Path inputDir = properties.resolveInputDir().toAbsolutePath().normalize();
+        Path file = inputDir.resolve(fileName).normalize();
+        if (!file.startsWith(inputDir)) {
+            throw new BadRequestException("Invalid file name: " + fileName);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("File " + fileName + " not found");
+        }
+        try {
+            return ingest(file);
+        } finally {
+            productCacheKeys.catalogChanged();
+        }
+    }
+
+    private CsvIngestionReport ingest(Path file) throws IOException {
+        long start = System.nanoTime();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        CsvLineParser parser = new CsvLineParser(MAX_FIELDS);
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        long read = 0;
+        long inserted = 0;
+        long rejected = 0;
+        Path rejectedFile = null;
+        BufferedWriter rejects = null;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return report(file, 0, 0, 0, start, null);
+            }
+            int[] positions = columnPositions(parser, header);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                // Champ entre guillemets sur plusieurs lignes (description) : lignes suivantes rattachées
+                boolean open = CsvLineParser.endsInQuotes(line, false);
+                if (open) {
+                    StringBuilder record = new StringBuilder(line);
+                    for (int lines = 1; open && lines < MAX_RECORD_LINES; lines++) {
+                        String next = reader.readLine();
+                        if (next == null) {
+                            break;
+                        }
+                        record.append('\n').append(next);
+                        open = CsvLineParser.endsInQuotes(next, true);
+                    }
+                    line = record.toString();
+                }
+                read++;
+                Object[] row;
+                String reason;
+                try {
+                    if (open) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    row = toRow(parser, line, positions);
+                    reason = row == null ? "empty row" : null;
+                } catch (IllegalArgumentException e) {
+                    row = null;
+                    reason = e.getMessage();
+                }
+                if (row == null) {
+                    rejected++;
+                    if (rejects == null) {
+                        rejectedFile = properties.resolveOutputDir().resolve(file.getFileName() + ".rejected.csv");
+                        Files.createDirectories(rejectedFile.getParent());
+                        rejects = Files.newBufferedWriter(rejectedFile, StandardCharsets.UTF_8);
+                        rejects.write(header);
+                        rejects.write(",reason");
+                        rejects.newLine();
+                    }
+                    rejects.write(line);
+                    rejects.write(",\"");
+                    rejects.write(reason.replace("\"", "\"\""));
+                    rejects.write('"');
+                    rejects.newLine();
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    inserted += flush(batch);
+                }
+            }
+            inserted += flush(batch);
+        } finally {
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+
+        CsvIngestionReport report = report(file, read, inserted, rejected, start, rejectedFile);
+        log.info("CSV {} ingested: {} rows inserted, {} rejected, {} rows/s",
+                report.getFileName(), report.getRowsInserted(), report.getRowsRejected(),
+                Math.round(report.getRowsPerSecond()));
+        return report;
+    }
+
+    private int flush(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // Horodatage à l'envoi du lot, non au début de la transaction (now()) : le flux de modifications compare
+        // cette date au début des transactions encore ouvertes
+        OffsetDateTime updatedAt = OffsetDateTime.now();
+        batch.forEach(row -> row[row.length - 1] = updatedAt);
+        // Une transaction par lot : un fichier volumineux ne garde pas de verrou ouvert de bout en bout
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, INSERT_TYPES));
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private int[] columnPositions(CsvLineParser parser, String header) {
+        int count = parser.parse(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        if (count < 0) {
+            throw new BadRequestException("Too many columns in CSV header");
+        }
+        int[] positions = new int[COLUMNS.length];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < count; i++) {
+            String name = parser.field(i).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (COLUMNS[c].equals(name)) {
+                    positions[c] = i;
+                }
+            }
+        }
+        if (positions[0] < 0) {
+            throw new BadRequestException("CSV header has no 'name' column");
+        }
+        return positions;
+    }
+
+    private Object[] toRow(CsvLineParser parser, String line, int[] positions) {
+        int count = parser.parse(line);
+        if (count < 0) {
+            throw new IllegalArgumentException("too many columns");
+        }
+        String[] values = new String[COLUMNS.length];
+        boolean empty = true;
+        for (int c = 0; c < COLUMNS.length; c++) {
+            int pos = positions[c];
+            String value = pos >= 0 && pos < count ? parser.field(pos).trim() : "";
+            values[c] = value.isEmpty() ? null : value;
+            empty &= values[c] == null;
+        }
+        if (empty) {
+            return null;
+        }
+        if (values[0] == null) {
+            throw new IllegalArgumentException("name is required");
+        }
+        return new Object[]{
+                values[0],
+                parseDouble(values[1], "price"),
+                values[2],
+                values[3],
+                parseQuantity(values[4]),
+                values[5],
+                values[6],
+                parseBoolean(values[7]),
+                parseDouble(values[8], "discount"),
+                null
+        };
+    }
+
+    private static Double parseDouble(String value, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + column + ": " + value);
+        }
+    }
+
+    // Les exports écrivent la quantité en flottant ("74.0")
+    private static Integer parseQuantity(String value) {
+        Double quantity = parseDouble(value, "quantity");
+        if (quantity == null) {
+            return null;
+        }
+        if (quantity != Math.rint(quantity) || quantity < Integer.MIN_VALUE || quantity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid quantity: " + value);
+        }
+        return quantity.intValue();
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.equalsIgnoreCase("true") || value.equals("1")) {
+            return Boolean.TRUE;
+        }
+        if (value.equalsIgnoreCase("false") || value.equals("0")) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("invalid available: " + value);
+    }
+
+    private static CsvIngestionReport report(Path file, long read, long inserted, long rejected,
+                                             long start, Path rejectedFile) {
+        long elapsedNanos = System.nanoTime() - start;
+        double seconds = elapsedNanos / 1_000_000_000d;
+        return CsvIngestionReport.builder()
+                .fileName(file.getFileName().toString())
+                .rowsRead(read)
+                .rowsInserted(inserted)
+                .rowsRejected(rejected)
+                .durationMs(elapsedNanos / 1_000_000)
+                .rowsPerSecond(seconds > 0 ? inserted / seconds : 0)
+                .rejectedFile(rejectedFile != null ? rejectedFile.toString() : null)
+                .build();
+    }
+}
@@ -0,0 +1,329 @@
+package ma.tahasouhailmanna.module1.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.tahasouhailmanna.module1.config.ImageVariantProperties;
+import ma.tahasouhailmanna.module1.config.ImageVariantProperties.Spec;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.model.ImageVariant;
+import ma.tahasouhailmanna.module1.repository.ImageVariantRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Variantes d'images générées en arrière-plan : chaque image stockée est relue depuis MinIO, réduite pour chaque
+ * {@link Spec} (ratio conservé, jamais agrandie), réencodée en JPEG et rangée à côté de l'original
+ * ({@code <objet>_<largeur>x<hauteur>.jpg}), puis enregistrée dans la table image_variant.
+ * <p>
+ * Pool borné (images.variants.workers) ; au plus images.variants.queue-capacity images en attente.
+ * {@link #requestVariants} ne bloque jamais l'appelant : file pleine, l'image n'est pas mise en file plutôt que
+ * d'accumuler des images en mémoire, et ses variantes sont redemandées à la première lecture qui les trouve
+ * absentes (au plus une fois par images.variants.resubmit-interval). Les tâches perdues à l'arrêt sont reprises
+ * de la même façon.
+ */
+@Service
+@Slf4j
+public class ImageVariantService {
+    private static final String FORMAT = "jpeg";
+    private static final String CONTENT_TYPE = "image/jpeg";
+
+    private final MinioService minioService;
+    private final ImageVariantRepository variantRepository;
+    private final ImageVariantProperties properties;
+    private final ThreadPoolExecutor executor;
+    // Places prises par requestVariants et rendues en fin de tâche : workers en cours + images en attente
+    private final Semaphore slots;
+    private final Map<String, Timer> timers = new HashMap<>();
+    private final Counter rejected;
+    // Images redemandées récemment : une image lue en boucle n'est pas remise en file à chaque requête
+    private final Cache<String, Boolean> requested;
+
+    public ImageVariantService(MinioService minioService,
+                               ImageVariantRepository variantRepository,
+                               ImageVariantProperties properties,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this.minioService = minioService;
+        this.variantRepository = variantRepository;
+        this.properties = properties;
+        int workers = Math.max(1, properties.getWorkers());
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "image-variants-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.slots = new Semaphore(workers + Math.max(0, properties.getQueueCapacity()));
+        this.requested = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getResubmitInterval())
+                .maximumSize(10_000)
+                .build();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("image.variants.queue", executor, e -> e.getQueue().size())
+                    .description("Images waiting for variant generation")
+                    .register(registry);
+            Gauge.builder("image.variants.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .description("Images being processed")
+                    .register(registry);
+            properties.getSpecs().forEach(spec -> timers.put(spec.getName(),
+                    Timer.builder("image.variants.processing")
+                            .description("Resize, encode and upload time per variant")
+                            .tags("variant", spec.getName())
+                            .register(registry)));
+            this.rejected = Counter.builder("image.variants.rejected")
+                    .description("Images not queued because the variant queue was full")
+                    .register(registry);
+        } else {
+            this.rejected = null;
+        }
+    }
+
+    // Après un upload : sans effet pour un type autre que image/*
+    public void requestVariants(String objectName, String contentType) {
+        if (contentType != null && contentType.startsWith("image/")) {
+            requestVariants(objectName);
+        }
+    }
+
+    /**
+     * Met l'image en file si une place est libre, sans attendre : après un upload ou un rattachement, ou à la
+     * lecture quand une variante manque. File pleine ou image déjà demandée récemment : sans effet, la lecture suivante réessaiera.
+     */
+    public void requestVariants(String objectName) {
+        if (requested.asMap().putIfAbsent(objectName, Boolean.TRUE) != null) {
+            return;
+        }
+        if (!slots.tryAcquire()) {
+            // Pas mise en file : la prochaine lecture pourra la redemander
+            requested.invalidate(objectName);
+            if (rejected != null) {
+                rejected.increment();
+            }
+            return;
+        }
+        try {
+            execute(objectName);
+        } catch (RejectedExecutionException e) {
+            log.debug("Variants of {} not requested, pool is shut down", objectName);
+        }
+    }
+
+    // Place déjà prise dans slots, rendue en fin de tâche
+    private void execute(String objectName) {
+        try {
+            executor.execute(() -> {
+                try {
+                    process(objectName);
+                } catch (Exception e) {
+                    log.warn("Could not generate variants of {}: {}", objectName, e.getMessage());
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    // Variantes déjà générées sautées : une image resoumise (dédupliquée, rattachée à nouveau) ne coûte qu'une requête
+    void process(String objectName) throws Exception {
+        Set<String> done = variantRepository.findByOriginalObject(objectName).stream()
+                .map(ImageVariant::getName)
+                .collect(Collectors.toSet());
+        List<Spec> missing = properties.getSpecs().stream().filter(spec -> !done.contains(spec.getName())).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        BufferedImage original;
+        try (InputStream in = minioService.getObject(objectName)) {
+            original = decode(in);
+        }
+        if (original == null) {
+            log.warn("Object {} is not a decodable image, no variants generated", objectName);
+            return;
+        }
+
+        List<ImageVariant> variants = new ArrayList<>(missing.size());
+        for (Spec spec : missing) {
+            long start = System.nanoTime();
+            BufferedImage resized = resize(original, spec.getWidth(), spec.getHeight());
+            String variantObject = variantObjectName(objectName, spec);
+            minioService.putObject(variantObject, CONTENT_TYPE, encode(resized));
+            Timer timer = timers.get(spec.getName());
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            variants.add(ImageVariant.builder()
+                    .originalObject(objectName)
+                    .name(spec.getName())
+                    .objectName(variantObject)
+                    .width(resized.getWidth())
+                    .height(resized.getHeight())
+                    .build());
+        }
+        try {
+            variantRepository.saveAll(variants);
+        } catch (DataIntegrityViolationException e) {
+            // Même image traitée en parallèle (deux uploads simultanés) : les objets écrits sont identiques
+            log.debug("Variants of {} already recorded", objectName);
+        }
+    }
+
+    // Original remplacé : objets des variantes, puis leurs lignes image_variant
+    public void deleteVariants(String originalObject) throws Exception {
+        for (ImageVariant variant : variantRepository.findByOriginalObject(originalObject)) {
+            minioService.removeObject(variant.getObjectName());
+        }
+        variantRepository.deleteByOriginalObject(originalObject);
+        requested.invalidate(originalObject);
+    }
+
+    // Nom absent de images.variants.specs : 400
+    public void checkVariant(String name) {
+        if (properties.getSpecs().stream().noneMatch(spec -> spec.getName().equals(name))) {
+            throw new BadRequestException("Unknown image variant: " + name);
+        }
+    }
+
+    public int variantCount() {
+        return properties.getSpecs().size();
+    }
+
+    // Objet de la variante, vide tant qu'elle n'est pas générée
+    public Optional<String> variantObject(String originalObject, String name) {
+        return variantRepository.findByOriginalObjectAndName(originalObject, name).map(ImageVariant::getObjectName);
+    }
+
+    // Objets des variantes générées, par nom, dans l'ordre des spécifications
+    public Map<String, String> variantObjects(String originalObject) {
+        Map<String, String> found = variantRepository.findByOriginalObject(originalObject).stream()
+                .collect(Collectors.toMap(ImageVariant::getName, ImageVariant::getObjectName));
+        Map<String, String> ordered = new LinkedHashMap<>();
+        properties.getSpecs().forEach(spec -> {
+            if (found.containsKey(spec.getName())) {
+                ordered.put(spec.getName(), found.get(spec.getName()));
+            }
+        });
+        return ordered;
+    }
+
+    // Suffixe plutôt que sous-clé : MinIO refuse un objet sous un préfixe qui est lui-même un objet
+    static String variantObjectName(String objectName, Spec spec) {
+        return objectName + "_" + spec.getWidth() + "x" + spec.getHeight() + ".jpg";
+    }
+
+    // Dimensions lues dans l'en-tête avant de décoder les pixels ; null si aucun lecteur ImageIO ne reconnaît le format
+    private BufferedImage decode(InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > properties.getMaxPixels()) {
+                    throw new IllegalArgumentException("Image has " + pixels + " pixels, limit is "
+                            + properties.getMaxPixels());
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Réduction par moitiés successives puis bilinéaire jusqu'à la taille finale : une seule passe bilinéaire
+     * d'un original de plusieurs mégapixels vers 100 px ne lit que quelques pixels source (crénelage).
+     * Fond blanc : le JPEG n'a pas de canal alpha.
+     */
+    static BufferedImage resize(BufferedImage source, int maxWidth, int maxHeight) {
+        double scale = Math.min(1.0, Math.min((double) maxWidth / source.getWidth(),
+                (double) maxHeight / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return draw(current, width, height);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(FORMAT).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(properties.getJpegQuality());
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,46 @@
+package ma.tahasouhailmanna.module1.service;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.minio.MinioAsyncClient;
+import io.minio.errors.MinioException;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Appels multipart S3 du SDK MinIO (protégés dans {@link MinioAsyncClient}) : création, envoi de parties
+ * indépendantes et non bloquantes, finalisation. Permet d'envoyer un flux par parties en parallèle,
+ * là où putObject envoie ses parties une à une sur le thread appelant.
+ */
+public class MinioMultipartClient extends MinioAsyncClient {
+
+    public MinioMultipartClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createUpload(String bucket, String object, String contentType)
+            throws IOException, GeneralSecurityException, MinioException {
+        return createMultipartUploadAsync(bucket, null, object, ImmutableMultimap.of("Content-Type", contentType), null)
+                .join().result().uploadId();
+    }
+
+    // data[0..length) ne doit plus être modifié avant la fin de l'envoi
+    public CompletableFuture<Part> uploadPart(String bucket, String object, String uploadId, int partNumber,
+                                              byte[] data, int length)
+            throws IOException, GeneralSecurityException, MinioException {
+        return uploadPartAsync(bucket, null, object, data, length, uploadId, partNumber, null, null)
+                .thenApply(response -> new Part(partNumber, response.etag()));
+    }
+
+    public void completeUpload(String bucket, String object, String uploadId, Part[] parts)
+            throws IOException, GeneralSecurityException, MinioException {
+        completeMultipartUploadAsync(bucket, null, object, uploadId, parts, null, null).join();
+    }
+
+    public void abortUpload(String bucket, String object, String uploadId)
+            throws IOException, GeneralSecurityException, MinioException {
+        abortMultipartUploadAsync(bucket, null, object, uploadId, null, null).join();
+    }
+}
@@ -0,0 +1,253 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.minio.StatObjectResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Cache disque local des objets servis par GET /api/minio/{objet} : un fichier par version d'objet,
+ * taille totale bornée par {@code minio.cache-max-size}, éviction LRU.
+ * Une entrée est servie sans appel à MinIO pendant {@code minio.cache-revalidate-after}, puis revalidée
+ * par un HEAD : même ETag, elle repart pour une période ; ETag différent, la nouvelle version est téléchargée.
+ * Les objets adressés par contenu ne changent jamais et ne sont pas revalidés.
+ * Les objets plus gros que {@code minio.cache-max-object-size} sont décrits (stat) mais pas copiés sur disque.
+ * <p>
+ * L'index est en mémoire : chaque instance écrit dans son propre sous-répertoire de {@code minio.cache-dir},
+ * verrouillé tant qu'elle tourne et supprimé à l'arrêt. Au démarrage, seuls les sous-répertoires dont le verrou
+ * est libre (instance arrêtée brutalement) sont supprimés ; ceux des autres instances du même hôte sont laissés.
+ */
+@Service
+@Slf4j
+public class MinioObjectCache {
+    private static final String INSTANCE_PREFIX = "instance-";
+    private static final String LOCK_FILE = ".lock";
+
+    private final MinioService minioService;
+    private final MinioProperties properties;
+    private final Path directory;
+    // Verrou gardé pendant toute la vie de l'instance : son répertoire n'est jamais pris pour un abandonné
+    private final FileChannel lockChannel;
+    // Ordre d'accès : l'entrée la moins récemment servie en tête ; protégé par synchronized (entries)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Un seul HEAD / téléchargement par objet à la fois : les requêtes concurrentes attendent son résultat
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<CachedObject>>> loading =
+            new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    /**
+     * Version d'un objet ; {@code file} est null si l'objet n'est pas en cache (trop gros).
+     */
+    public record CachedObject(String etag, long size, String contentType, ZonedDateTime lastModified, Path file) {
+    }
+
+    private record Entry(CachedObject object, long validatedAt) {
+    }
+
+    public MinioObjectCache(MinioService minioService, MinioProperties properties) {
+        this.minioService = minioService;
+        this.properties = properties;
+        Path root = Path.of(properties.getCacheDir());
+        try {
+            Files.createDirectories(root);
+            removeAbandoned(root);
+            this.directory = Files.createTempDirectory(root, INSTANCE_PREFIX);
+            this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lockChannel.lock();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare MinIO cache directory " + root, e);
+        }
+    }
+
+    private static void removeAbandoned(Path root) throws IOException {
+        try (Stream<Path> instances = Files.list(root)) {
+            instances.filter(dir -> dir.getFileName().toString().startsWith(INSTANCE_PREFIX) && Files.isDirectory(dir))
+                    .forEach(dir -> {
+                        try (FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.WRITE);
+                             FileLock lock = channel.tryLock()) {
+                            if (lock != null) {
+                                deleteTree(dir);
+                            }
+                        } catch (IOException | OverlappingFileLockException e) {
+                            // Sans verrou ou verrou tenu (y compris par ce processus) : répertoire laissé en place
+                        }
+                    });
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Could not release MinIO cache lock: {}", e.getMessage());
+        }
+        synchronized (entries) {
+            entries.clear();
+            totalBytes = 0;
+        }
+        deleteTree(directory);
+    }
+
+    /**
+     * @return vide si l'objet n'existe pas dans le bucket
+     */
+    public Optional<CachedObject> get(String objectName) throws Exception {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(objectName);
+        }
+        // Objet adressé par contenu : immuable, jamais revalidé
+        if (entry != null && (MinioService.isContentAddressed(objectName)
+                || System.nanoTime() - entry.validatedAt() < properties.getCacheRevalidateAfter().toNanos())) {
+            return Optional.of(entry.object());
+        }
+        CompletableFuture<Optional<CachedObject>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<CachedObject>> running = loading.putIfAbsent(objectName, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        try {
+            Optional<CachedObject> result = load(objectName, entry);
+            mine.complete(result);
+            return result;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(objectName, mine);
+        }
+    }
+
+    public long size() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private Optional<CachedObject> load(String objectName, Entry previous) throws Exception {
+        Optional<StatObjectResponse> found = minioService.statObject(objectName);
+        if (found.isEmpty()) {
+            remove(objectName);
+            return Optional.empty();
+        }
+        StatObjectResponse stat = found.get();
+        if (previous != null && previous.object().etag().equals(stat.etag())) {
+            // Revalidé : même fichier, nouvelle période de fraîcheur
+            store(objectName, new Entry(previous.object(), System.nanoTime()));
+            return Optional.of(previous.object());
+        }
+        if (stat.size() > properties.getCacheMaxObjectSize().toBytes()) {
+            remove(objectName);
+            return Optional.of(new CachedObject(stat.etag(), stat.size(), stat.contentType(), stat.lastModified(), null));
+        }
+        Path file = directory.resolve(UUID.randomUUID().toString());
+        Path partial = directory.resolve(file.getFileName() + ".part");
+        try {
+            // Objet vide : GetObjectArgs refuse une longueur nulle, rien à lire
+            if (stat.size() == 0) {
+                Files.createFile(partial);
+            } else {
+                try (InputStream in = minioService.getObject(objectName, stat.etag(), 0, stat.size())) {
+                    Files.copy(in, partial);
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            delete(partial);
+            throw e;
+        }
+        CachedObject object = new CachedObject(stat.etag(), stat.size(), stat.contentType(), stat.lastModified(), file);
+        store(objectName, new Entry(object, System.nanoTime()));
+        return Optional.of(object);
+    }
+
+    private void store(String objectName, Entry entry) {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Entry old = entries.put(objectName, entry);
+            if (old == null || !old.object().file().equals(entry.object().file())) {
+                totalBytes += entry.object().size();
+                if (old != null) {
+                    totalBytes -= old.object().size();
+                    evicted.add(old.object().file());
+                }
+            }
+            long maxBytes = properties.getCacheMaxSize().toBytes();
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Entry candidate = eldest.next();
+                if (candidate == entry) {
+                    break;
+                }
+                eldest.remove();
+                totalBytes -= candidate.object().size();
+                evicted.add(candidate.object().file());
+            }
+        }
+        // Hors verrou ; le contrôleur ouvre le fichier avant d'envoyer le premier octet, un envoi en cours
+        // garde son descripteur ; un fichier supprimé avant l'ouverture est relu depuis MinIO
+        evicted.forEach(MinioObjectCache::delete);
+    }
+
+    private void remove(String objectName) {
+        Entry old;
+        synchronized (entries) {
+            old = entries.remove(objectName);
+            if (old != null) {
+                totalBytes -= old.object().size();
+            }
+        }
+        if (old != null) {
+            delete(old.object().file());
+        }
+    }
+
+    private static void deleteTree(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(MinioObjectCache::delete);
+        } catch (IOException e) {
+            log.warn("Could not delete MinIO cache directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached object {}: {}", file, e.getMessage());
+        }
+    }
+}
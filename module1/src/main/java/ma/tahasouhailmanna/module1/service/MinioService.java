@@ -1,44 +1,475 @@
 package ma.tahasouhailmanna.module1.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.Directive;
+import io.minio.GetBucketLifecycleArgs;
+import io.minio.GetObjectArgs;
 import io.minio.MinioClient;
+import io.minio.PostPolicy;
 import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.SetBucketLifecycleArgs;
 import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
 import io.minio.http.Method;
+import io.minio.messages.Expiration;
+import io.minio.messages.LifecycleConfiguration;
+import io.minio.messages.LifecycleRule;
+import io.minio.messages.Part;
+import io.minio.messages.RuleFilter;
+import io.minio.messages.Status;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.dto.PresignedUpload;
+import ma.tahasouhailmanna.module1.dto.StoredObject;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 
 @Service
 @Slf4j
 public class MinioService {
+    // Limite S3 du nombre de parties d'un upload multipart
+    private static final int MAX_PARTS = 10_000;
+    // Objets adressés par contenu (clé = SHA-256 hexadécimal) et clés temporaires des gros uploads en cours
+    private static final String CONTENT_PREFIX = "content/";
+    private static final String STAGING_PREFIX = "staging/";
+    static final String STAGING_RULE = "expire-staging";
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+    public static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+            .getHeaderValue();
 
     private final MinioClient minioClient;
+    private final MinioMultipartClient multipartClient;
     private final MinioProperties properties;
+    // URLs GET présignées par objet : une page produit chaude ne re-signe pas à chaque requête
+    private final Cache<String, String> downloadUrls;
 
-    public MinioService(MinioClient minioClient, MinioProperties properties) {
+    public MinioService(MinioClient minioClient, MinioMultipartClient multipartClient, MinioProperties properties) {
         this.minioClient = minioClient;
+        this.multipartClient = multipartClient;
         this.properties = properties;
+        this.downloadUrls = Caffeine.newBuilder()
+                .maximumSize(properties.getDownloadUrlCacheSize())
+                .expireAfterWrite(properties.getDownloadUrlCacheTtl())
+                .build();
     }
 
-    public String uploadFile(MultipartFile file) throws Exception {
-        String fileName = file.getOriginalFilename();
+    /**
+     * Stockage adressé par contenu : l'objet est rangé sous le SHA-256 de ses octets, le nom d'origine est ignoré
+     * (deux fichiers de même nom ne s'écrasent plus). Le fichier, déjà mis sur disque par le conteneur, est haché
+     * en local ; s'il est déjà stocké, rien n'est envoyé à MinIO.
+     */
+    public StoredObject uploadFile(MultipartFile file) throws Exception {
         String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+        MessageDigest digest = sha256();
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        String objectName = contentObjectName(sha256);
+        if (statObject(objectName).isPresent()) {
+            return new StoredObject(objectUrl(objectName), sha256, true);
+        }
         try (InputStream inputStream = file.getInputStream()) {
             minioClient.putObject(
                     PutObjectArgs.builder()
                             .bucket(properties.getBucket())
-                            .object(fileName)
+                            .object(objectName)
                             .stream(inputStream, file.getSize(), -1)
                             .contentType(contentType)
+                            .headers(Map.of(HttpHeaders.CACHE_CONTROL, IMMUTABLE))
                             .build()
             );
         }
-        return properties.getUrl() + "/" + properties.getBucket() + "/" + fileName;
+        return new StoredObject(objectUrl(objectName), sha256, false);
+    }
+
+    /**
+     * Flux adressé par contenu, haché pendant l'envoi (une seule lecture du corps).
+     * Un SHA-256 annoncé par le client et déjà stocké court-circuite tout : le corps n'est pas lu
+     * (avec Expect: 100-continue, il n'est même pas transmis, voir WebConfig) ; sinon il est vérifié à la fin.
+     * Plus court qu'une partie, le corps est haché puis envoyé sous sa clé s'il n'existe pas encore.
+     * Au-delà, les parties partent en parallèle vers une clé temporaire ; une fois le hash connu, l'upload est
+     * abandonné si le contenu existe déjà, sinon finalisé puis copié côté serveur sous sa clé.
+     */
+    public StoredObject uploadContent(String contentType, InputStream body, String expectedSha256) throws Exception {
+        String expected = expectedSha256 != null ? checkSha256(expectedSha256) : null;
+        if (expected != null && statObject(contentObjectName(expected)).isPresent()) {
+            return new StoredObject(objectUrl(contentObjectName(expected)), expected, true);
+        }
+        String bucket = properties.getBucket();
+        String type = contentType != null ? contentType : "application/octet-stream";
+        int partSize = (int) properties.getPartSize().toBytes();
+        MessageDigest digest = sha256();
+
+        byte[] buffer = new byte[partSize];
+        int length = body.readNBytes(buffer, 0, partSize);
+        digest.update(buffer, 0, length);
+        if (length < partSize) {
+            String sha256 = checkDigest(digest, expected);
+            String objectName = contentObjectName(sha256);
+            if (statObject(objectName).isPresent()) {
+                return new StoredObject(objectUrl(objectName), sha256, true);
+            }
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .stream(new ByteArrayInputStream(buffer, 0, length), length, -1)
+                    .contentType(type)
+                    .headers(Map.of(HttpHeaders.CACHE_CONTROL, IMMUTABLE))
+                    .build());
+            return new StoredObject(objectUrl(objectName), sha256, false);
+        }
+
+        String staging = STAGING_PREFIX + UUID.randomUUID();
+        PendingUpload pending = uploadParts(bucket, staging, type, buffer, length, new DigestInputStream(body, digest));
+        String sha256;
+        String objectName;
+        try {
+            sha256 = checkDigest(digest, expected);
+            objectName = contentObjectName(sha256);
+            if (statObject(objectName).isPresent()) {
+                abort(bucket, staging, pending.uploadId());
+                return new StoredObject(objectUrl(objectName), sha256, true);
+            }
+        } catch (Exception e) {
+            abort(bucket, staging, pending.uploadId());
+            throw e;
+        }
+        complete(bucket, staging, pending);
+        try {
+            // Copie côté serveur (composition par parties au-delà de 5 Go) : les octets ne repassent pas par ici
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .source(CopySource.builder().bucket(bucket).object(staging).build())
+                    .headers(Map.of(HttpHeaders.CONTENT_TYPE, type, HttpHeaders.CACHE_CONTROL, IMMUTABLE))
+                    .metadataDirective(Directive.REPLACE)
+                    .build());
+        } finally {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(staging).build());
+        }
+        return new StoredObject(objectUrl(objectName), sha256, false);
+    }
+
+    /**
+     * Règle de cycle de vie sur staging/ : une clé temporaire laissée par un arrêt entre la finalisation et la copie
+     * (crash, redéploiement) est supprimée par MinIO après minio.staging-expiry. Les uploads multipart jamais
+     * finalisés sont purgés par MinIO lui-même (api.stale_uploads_expiry, 24 h par défaut).
+     * Les autres règles du bucket sont conservées ; sans support du cycle de vie, simple avertissement.
+     */
+    @PostConstruct
+    public void ensureStagingLifecycle() {
+        String bucket = properties.getBucket();
+        int days = (int) Math.max(1, properties.getStagingExpiry().toDays());
+        try {
+            LifecycleConfiguration current = minioClient.getBucketLifecycle(
+                    GetBucketLifecycleArgs.builder().bucket(bucket).build());
+            List<LifecycleRule> rules = new ArrayList<>();
+            if (current != null) {
+                for (LifecycleRule rule : current.rules()) {
+                    if (!STAGING_RULE.equals(rule.id())) {
+                        rules.add(rule);
+                    } else if (rule.status() == Status.ENABLED && rule.expiration() != null
+                            && Integer.valueOf(days).equals(rule.expiration().days())) {
+                        return;
+                    }
+                }
+            }
+            rules.add(new LifecycleRule(Status.ENABLED, null, new Expiration((ZonedDateTime) null, days, null),
+                    new RuleFilter(STAGING_PREFIX), STAGING_RULE, null, null, null));
+            minioClient.setBucketLifecycle(SetBucketLifecycleArgs.builder()
+                    .bucket(bucket)
+                    .config(new LifecycleConfiguration(rules))
+                    .build());
+        } catch (Exception e) {
+            log.warn("Lifecycle rule on {}/{} not installed, orphaned staging objects will not expire: {}",
+                    bucket, STAGING_PREFIX, e.getMessage());
+        }
+    }
+
+    // Sans erreur si l'objet n'existe plus (DELETE S3 idempotent)
+    public void removeObject(String objectName) throws Exception {
+        minioClient.removeObject(RemoveObjectArgs.builder().bucket(properties.getBucket()).object(objectName).build());
+        downloadUrls.invalidate(objectName);
+    }
+
+    // Lookup avant envoi : vide si ce contenu n'est pas stocké
+    public Optional<StoredObject> findContent(String sha256) throws Exception {
+        String normalized = checkSha256(sha256);
+        String objectName = contentObjectName(normalized);
+        return statObject(objectName).map(stat -> new StoredObject(objectUrl(objectName), normalized, true));
+    }
+
+    // Clé dérivée du contenu : l'objet ne change jamais, cache illimité côté clients et CDN
+    public static boolean isContentAddressed(String objectName) {
+        return objectName.startsWith(CONTENT_PREFIX);
+    }
+
+    private static String contentObjectName(String sha256) {
+        return CONTENT_PREFIX + sha256;
+    }
+
+    private static String checkSha256(String sha256) {
+        String normalized = sha256.toLowerCase(Locale.ROOT);
+        if (!SHA256_HEX.matcher(normalized).matches()) {
+            throw new BadRequestException("Invalid SHA-256: " + sha256);
+        }
+        return normalized;
+    }
+
+    private static String checkDigest(MessageDigest digest, String expected) {
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (expected != null && !expected.equals(sha256)) {
+            throw new BadRequestException("Content SHA-256 " + sha256 + " does not match " + expected);
+        }
+        return sha256;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Envoi d'un flux de taille inconnue sans copie intermédiaire : lu par parties de {@code minio.part-size},
+     * jusqu'à {@code minio.upload-concurrency} parties envoyées en parallèle ; la lecture attend qu'une partie
+     * se termine pour réutiliser son tampon (mémoire bornée à (upload-concurrency + 1) x part-size).
+     * Un flux plus court qu'une partie part en un seul PUT.
+     * En cas d'échec l'upload multipart est abandonné (aucune partie orpheline facturée côté stockage).
+     */
+    public String uploadStream(String objectName, String contentType, InputStream body) throws Exception {
+        String bucket = properties.getBucket();
+        String type = contentType != null ? contentType : "application/octet-stream";
+        int partSize = (int) properties.getPartSize().toBytes();
+
+        byte[] buffer = new byte[partSize];
+        int length = body.readNBytes(buffer, 0, partSize);
+        if (length < partSize) {
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(objectName)
+                    .stream(new ByteArrayInputStream(buffer, 0, length), length, -1)
+                    .contentType(type)
+                    .build());
+            return objectUrl(objectName);
+        }
+        complete(bucket, objectName, uploadParts(bucket, objectName, type, buffer, length, body));
+        return objectUrl(objectName);
+    }
+
+    // Parties envoyées, upload ni finalisé ni abandonné : l'appelant décide
+    private record PendingUpload(String uploadId, Part[] parts) {
+    }
+
+    // buffer contient déjà la première partie (length octets, partie pleine)
+    private PendingUpload uploadParts(String bucket, String objectName, String type, byte[] buffer, int length,
+                                      InputStream body) throws Exception {
+        int partSize = buffer.length;
+        String uploadId = multipartClient.createUpload(bucket, objectName, type);
+        // Tampons recyclés : au plus upload-concurrency parties en vol et une en lecture
+        int maxBuffers = Math.max(1, properties.getUploadConcurrency()) + 1;
+        BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        int allocated = 1;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Part>> parts = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            while (true) {
+                if (partNumber > MAX_PARTS) {
+                    throw new BadRequestException("Object exceeds " + MAX_PARTS + " parts of " + partSize + " bytes");
+                }
+                byte[] sent = buffer;
+                CompletableFuture<Part> part = multipartClient.uploadPart(bucket, objectName, uploadId, partNumber++,
+                        sent, length);
+                part.whenComplete((p, e) -> {
+                    if (e != null) {
+                        failure.compareAndSet(null, e);
+                    }
+                    freeBuffers.offer(sent);
+                });
+                parts.add(part);
+                if (length < partSize) {
+                    break;
+                }
+                buffer = freeBuffers.poll();
+                if (buffer == null) {
+                    if (allocated < maxBuffers) {
+                        buffer = new byte[partSize];
+                        allocated++;
+                    } else {
+                        buffer = freeBuffers.take();
+                    }
+                }
+                if (failure.get() != null) {
+                    break;
+                }
+                length = body.readNBytes(buffer, 0, partSize);
+                if (length == 0) {
+                    break;
+                }
+            }
+            CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).join();
+        } catch (Exception e) {
+            abort(bucket, objectName, uploadId);
+            throw e instanceof CompletionException && e.getCause() instanceof Exception cause ? cause : e;
+        }
+        log.debug("Uploaded {} in {} parts", objectName, parts.size());
+        return new PendingUpload(uploadId, parts.stream().map(CompletableFuture::join).toArray(Part[]::new));
+    }
+
+    private void complete(String bucket, String objectName, PendingUpload pending) throws Exception {
+        try {
+            multipartClient.completeUpload(bucket, objectName, pending.uploadId(), pending.parts());
+        } catch (Exception e) {
+            abort(bucket, objectName, pending.uploadId());
+            throw e;
+        }
+    }
+
+    private void abort(String bucket, String objectName, String uploadId) {
+        try {
+            multipartClient.abortUpload(bucket, objectName, uploadId);
+        } catch (Exception e) {
+            log.warn("Could not abort multipart upload {} of {}: {}", uploadId, objectName, e.getMessage());
+        }
+    }
+
+    /**
+     * Formulaire POST présigné pour un upload direct vers MinIO : nom d'objet, type de contenu et taille
+     * exacte imposés par la politique signée, les octets ne passent pas par l'application.
+     */
+    public PresignedUpload presignUpload(String objectName, String contentType, long size) throws Exception {
+        ZonedDateTime expiresAt = ZonedDateTime.now(ZoneOffset.UTC).plus(properties.getUploadUrlExpiry());
+        PostPolicy policy = new PostPolicy(properties.getBucket(), expiresAt);
+        policy.addEqualsCondition("key", objectName);
+        policy.addEqualsCondition("Content-Type", contentType);
+        policy.addContentLengthRangeCondition(size, size);
+        Map<String, String> fields = new HashMap<>(minioClient.getPresignedPostFormData(policy));
+        fields.put("key", objectName);
+        fields.put("Content-Type", contentType);
+        return new PresignedUpload(properties.getUrl() + "/" + properties.getBucket(), fields, objectName,
+                expiresAt.toInstant());
+    }
+
+    // URL GET présignée, réutilisée pendant minio.download-url-cache-ttl (les objets ne sont jamais réécrits)
+    public String downloadUrl(String objectName) {
+        return downloadUrls.get(objectName, this::presignDownload);
+    }
+
+    private String presignDownload(String objectName) {
+        try {
+            return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(properties.getBucket())
+                    .object(objectName)
+                    .expiry((int) properties.getDownloadUrlExpiry().toSeconds())
+                    .build());
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not presign download of " + objectName, e);
+        }
+    }
+
+    /**
+     * Lecture de [offset, offset + length) ; avec un ETag, MinIO refuse (412) si l'objet a changé depuis,
+     * les octets renvoyés appartiennent toujours à la version annoncée.
+     */
+    public InputStream getObject(String objectName, String etag, long offset, long length) throws Exception {
+        GetObjectArgs.Builder args = GetObjectArgs.builder()
+                .bucket(properties.getBucket())
+                .object(objectName)
+                .offset(offset)
+                .length(length);
+        if (etag != null) {
+            args.matchETag(etag);
+        }
+        return minioClient.getObject(args.build());
+    }
+
+    public InputStream getObject(String objectName) throws Exception {
+        return minioClient.getObject(GetObjectArgs.builder()
+                .bucket(properties.getBucket())
+                .object(objectName)
+                .build());
+    }
+
+    // Petit objet déjà en mémoire (variantes d'images) ; une clé adressée par contenu reçoit le Cache-Control immuable
+    public void putObject(String objectName, String contentType, byte[] data) throws Exception {
+        PutObjectArgs.Builder args = PutObjectArgs.builder()
+                .bucket(properties.getBucket())
+                .object(objectName)
+                .stream(new ByteArrayInputStream(data), data.length, -1)
+                .contentType(contentType);
+        if (isContentAddressed(objectName)) {
+            args.headers(Map.of(HttpHeaders.CACHE_CONTROL, IMMUTABLE));
+        }
+        minioClient.putObject(args.build());
+    }
+
+    // Vide si l'objet n'existe pas
+    public Optional<StatObjectResponse> statObject(String objectName) throws Exception {
+        try {
+            return Optional.of(minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(properties.getBucket())
+                    .object(objectName)
+                    .build()));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    public String objectUrl(String objectName) {
+        return properties.getUrl() + "/" + properties.getBucket() + "/" + objectName;
+    }
+
+    // Inverse de objectUrl : vide pour une URL externe au bucket
+    public Optional<String> objectName(String url) {
+        String prefix = objectUrl("");
+        if (url == null || !url.startsWith(prefix) || url.length() == prefix.length()) {
+            return Optional.empty();
+        }
+        return Optional.of(url.substring(prefix.length()));
     }
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,286 @@
+package ma.tahasouhailmanna.module1.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import ma.tahasouhailmanna.module1.cache.MultiKeyCache;
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.cache.ProductResponseCache;
+import ma.tahasouhailmanna.module1.config.ProductBatchProperties;
+import ma.tahasouhailmanna.module1.dto.ProductBatchItemResult;
+import ma.tahasouhailmanna.module1.dto.ProductBatchItemResult.Status;
+import ma.tahasouhailmanna.module1.dto.ProductBatchResponse;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.mapper.ProductMapper;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.model.ProductTombstone;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import ma.tahasouhailmanna.module1.repository.ProductTombstoneRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class ProductBatchService {
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository tombstoneRepository;
+    private final ProductMapper productMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final ProductCacheKeys productCacheKeys;
+    private final Validator validator;
+    private final ProductBatchProperties properties;
+
+    public ProductBatchService(ProductRepository productRepository,
+                               ProductTombstoneRepository tombstoneRepository,
+                               ProductMapper productMapper,
+                               TransactionTemplate transactionTemplate,
+                               CacheManager cacheManager,
+                               ProductCacheKeys productCacheKeys,
+                               Validator validator,
+                               ProductBatchProperties properties) {
+        this.productRepository = productRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.productMapper = productMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.productCacheKeys = productCacheKeys;
+        this.validator = validator;
+        this.properties = properties;
+    }
+
+    public ProductBatchResponse createAll(List<ProductDTO> dtos) {
+        checkSize(dtos);
+        ProductBatchItemResult[] results = new ProductBatchItemResult[dtos.size()];
+        Set<String> categories = new HashSet<>();
+
+        forEachChunk(dtos.size(), (from, to) -> {
+            List<Integer> indexes = new ArrayList<>(to - from);
+            List<Product> entities = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ProductDTO dto = dtos.get(i);
+                String violation = validate(dto);
+                if (violation != null) {
+                    results[i] = new ProductBatchItemResult(i, null, Status.INVALID, violation, null);
+                    continue;
+                }
+                // Création: on ignore l'id et la version fournis côté client
+                Product product = productMapper.toEntity(dto);
+                product.setId(null);
+                product.setVersion(null);
+                indexes.add(i);
+                entities.add(product);
+            }
+            runChunk(indexes, results, () -> {
+                List<Product> saved = productRepository.saveAll(entities);
+                // Lot envoyé avant de construire les résultats : version et date de modification renseignées
+                productRepository.flush();
+                for (int k = 0; k < saved.size(); k++) {
+                    Product p = saved.get(k);
+                    int i = indexes.get(k);
+                    results[i] = new ProductBatchItemResult(i, p.getId(), Status.CREATED, null, productMapper.toDto(p));
+                }
+            });
+            for (int i : indexes) {
+                if (results[i].getStatus() == Status.CREATED) {
+                    categories.add(results[i].getProduct().getCategory());
+                }
+            }
+        });
+        if (!categories.isEmpty()) {
+            productCacheKeys.productsChanged(categories.toArray(String[]::new));
+        }
+        return new ProductBatchResponse(Arrays.asList(results));
+    }
+
+    public ProductBatchResponse partialUpdateAll(List<ProductDTO> dtos) {
+        checkSize(dtos);
+        ProductBatchItemResult[] results = new ProductBatchItemResult[dtos.size()];
+        Set<Long> touched = new HashSet<>();
+        Set<String> categories = new HashSet<>();
+
+        forEachChunk(dtos.size(), (from, to) -> {
+            List<Integer> indexes = new ArrayList<>(to - from);
+            Set<String> chunkCategories = new HashSet<>();
+            for (int i = from; i < to; i++) {
+                if (dtos.get(i) == null || dtos.get(i).getId() == null) {
+                    results[i] = new ProductBatchItemResult(i, null, Status.INVALID, "id is required", null);
+                } else {
+                    indexes.add(i);
+                }
+            }
+            runChunk(indexes, results, () -> {
+                Set<Long> ids = indexes.stream().map(i -> dtos.get(i).getId()).collect(Collectors.toSet());
+                Map<Long, Product> found = new HashMap<>();
+                productRepository.findAllById(ids).forEach(p -> found.put(p.getId(), p));
+                Map<Integer, Product> updated = new HashMap<>();
+                for (int i : indexes) {
+                    ProductDTO dto = dtos.get(i);
+                    Product product = found.get(dto.getId());
+                    if (product == null) {
+                        results[i] = new ProductBatchItemResult(i, dto.getId(), Status.NOT_FOUND,
+                                "Product " + dto.getId() + " not found", null);
+                        continue;
+                    }
+                    if (dto.getVersion() != null && !dto.getVersion().equals(product.getVersion())) {
+                        results[i] = new ProductBatchItemResult(i, dto.getId(), Status.CONFLICT,
+                                "Product " + dto.getId() + " was modified concurrently", null);
+                        continue;
+                    }
+                    chunkCategories.add(product.getCategory());
+                    productMapper.updateEntityFromDto(dto, product);
+                    chunkCategories.add(product.getCategory());
+                    updated.put(i, product);
+                }
+                // Les UPDATE partent en lots (dirty checking + hibernate.jdbc.batch_size), versions incrémentées
+                productRepository.flush();
+                if (!updated.isEmpty()) {
+                    productRepository.touchChanges(updated.values().stream().map(Product::getId).toList());
+                }
+                updated.forEach((i, product) -> results[i] = new ProductBatchItemResult(i, product.getId(),
+                        Status.UPDATED, null, productMapper.toDto(product)));
+            });
+            for (int i : indexes) {
+                if (results[i].getStatus() == Status.UPDATED) {
+                    touched.add(results[i].getId());
+                }
+            }
+            categories.addAll(chunkCategories);
+        });
+        evictProducts(touched);
+        if (!touched.isEmpty()) {
+            productCacheKeys.productsChanged(categories.toArray(String[]::new));
+        }
+        return new ProductBatchResponse(Arrays.asList(results));
+    }
+
+    public ProductBatchResponse deleteAll(List<Long> ids) {
+        checkSize(ids);
+        ProductBatchItemResult[] results = new ProductBatchItemResult[ids.size()];
+        Set<Long> touched = new HashSet<>();
+
+        forEachChunk(ids.size(), (from, to) -> {
+            List<Integer> indexes = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                if (ids.get(i) == null) {
+                    results[i] = new ProductBatchItemResult(i, null, Status.INVALID, "id is required", null);
+                } else {
+                    indexes.add(i);
+                }
+            }
+            runChunk(indexes, results, () -> {
+                Set<Long> chunkIds = new LinkedHashSet<>();
+                indexes.forEach(i -> chunkIds.add(ids.get(i)));
+                Set<Long> existing = new HashSet<>(productRepository.findExistingIds(chunkIds));
+                if (!existing.isEmpty()) {
+                    // Un seul DELETE ... WHERE id IN (...) par lot
+                    productRepository.deleteAllByIdInBatch(existing);
+                    tombstoneRepository.saveAll(existing.stream().map(ProductTombstone::of).toList());
+                }
+                Set<Long> reported = new HashSet<>();
+                for (int i : indexes) {
+                    Long id = ids.get(i);
+                    if (existing.contains(id) && reported.add(id)) {
+                        results[i] = new ProductBatchItemResult(i, id, Status.DELETED, null, null);
+                    } else {
+                        results[i] = new ProductBatchItemResult(i, id, Status.NOT_FOUND,
+                                "Product " + id + " not found", null);
+                    }
+                }
+            });
+            for (int i : indexes) {
+                if (results[i].getStatus() == Status.DELETED) {
+                    touched.add(results[i].getId());
+                }
+            }
+        });
+        evictProducts(touched);
+        if (!touched.isEmpty()) {
+            // Catégories des lignes supprimées non chargées : on invalide tout le cache "products" en un INCR
+            productCacheKeys.catalogChanged();
+        }
+        return new ProductBatchResponse(Arrays.asList(results));
+    }
+
+    private interface ChunkAction {
+        void apply(int from, int to);
+    }
+
+    private void forEachChunk(int size, ChunkAction action) {
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        for (int from = 0; from < size; from += chunkSize) {
+            action.apply(from, Math.min(size, from + chunkSize));
+        }
+    }
+
+    // Une transaction par lot : si le lot échoue, tous ses éléments sont marqués FAILED
+    private void runChunk(List<Integer> indexes, ProductBatchItemResult[] results, Runnable work) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> work.run());
+        } catch (RuntimeException e) {
+            log.warn("Product batch chunk of {} items failed: {}", indexes.size(), e.getMessage());
+            for (int i : indexes) {
+                Long id = results[i] != null ? results[i].getId() : null;
+                results[i] = new ProductBatchItemResult(i, id, Status.FAILED, e.getMessage(), null);
+            }
+        }
+    }
+
+    private void checkSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new BadRequestException("Batch must contain at least one item");
+        }
+        if (items.size() > properties.getMaxItems()) {
+            throw new BadRequestException("Batch exceeds " + properties.getMaxItems() + " items");
+        }
+    }
+
+    private String validate(ProductDTO dto) {
+        if (dto == null) {
+            return "item is null";
+        }
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    // Une invalidation groupée par cache : un DEL et un message pour tout le lot
+    private void evictProducts(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        evictAll(cacheManager.getCache("product"), ids);
+        evictAll(cacheManager.getCache(ProductResponseCache.CACHE),
+                ids.stream().map(productCacheKeys::productResponse).toList());
+    }
+
+    private static void evictAll(Cache cache, Collection<?> keys) {
+        if (cache instanceof MultiKeyCache multiKey) {
+            multiKey.evictAll(keys);
+        } else if (cache != null) {
+            keys.forEach(cache::evict);
+        }
+    }
+}
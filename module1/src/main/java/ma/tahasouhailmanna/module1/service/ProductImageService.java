@@ -0,0 +1,128 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.minio.StatObjectResponse;
+import lombok.extern.slf4j.Slf4j;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.dto.ImageUploadRequest;
+import ma.tahasouhailmanna.module1.dto.PresignedUpload;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Images produit sans transit des octets par l'application : le client reçoit un formulaire POST présigné,
+ * envoie le fichier à MinIO, puis confirme l'upload ; l'objet est alors vérifié (stat) et rattaché au produit.
+ * Les lectures redirigent vers une URL GET présignée mise en cache, celle d'une variante réduite
+ * ({@link ImageVariantService}) si elle est demandée et déjà générée ; une variante manquante est redemandée.
+ * Une image remplacée est supprimée (avec ses variantes) une fois le nouveau rattachement validé.
+ */
+@Service
+@Slf4j
+public class ProductImageService {
+    private static final String PREFIX = "products/";
+
+    private final ProductService productService;
+    private final MinioService minioService;
+    private final MinioProperties properties;
+    private final ImageVariantService imageVariantService;
+
+    public ProductImageService(ProductService productService, MinioService minioService, MinioProperties properties,
+                               ImageVariantService imageVariantService) {
+        this.productService = productService;
+        this.minioService = minioService;
+        this.properties = properties;
+        this.imageVariantService = imageVariantService;
+    }
+
+    public PresignedUpload presignUpload(Long id, ImageUploadRequest request) throws Exception {
+        if (productService.getProductVersion(id).isEmpty()) {
+            throw new ResourceNotFoundException("Product " + id + " not found");
+        }
+        checkImage(request.getContentType(), request.getSize());
+        // Nom unique : un objet n'est jamais réécrit, ses URLs présignées en cache restent justes
+        String objectName = PREFIX + id + "/" + UUID.randomUUID();
+        return minioService.presignUpload(objectName, request.getContentType(), request.getSize());
+    }
+
+    public ProductDTO attachImage(Long id, String objectName) throws Exception {
+        if (!objectName.startsWith(PREFIX + id + "/") || objectName.contains("..")) {
+            throw new BadRequestException("Object " + objectName + " does not belong to product " + id);
+        }
+        StatObjectResponse stat = minioService.statObject(objectName)
+                .orElseThrow(() -> new ResourceNotFoundException("Object " + objectName + " not found"));
+        checkImage(stat.contentType(), stat.size());
+        // Seuls les objets products/{id}/ appartiennent au produit ; content/ est partagé (dédupliqué)
+        Optional<String> previous = productService.getImageUrl(id)
+                .flatMap(minioService::objectName)
+                .filter(name -> name.startsWith(PREFIX + id + "/") && !name.equals(objectName));
+        ProductDTO product = productService.attachImage(id, minioService.objectUrl(objectName));
+        // Après le rattachement seulement ; file pleine, les variantes seront redemandées à la première lecture
+        imageVariantService.requestVariants(objectName);
+        previous.ifPresent(this::deleteImage);
+        return product;
+    }
+
+    // Transaction du rattachement déjà validée : un échec ici laisse un objet orphelin, pas un produit sans image
+    private void deleteImage(String objectName) {
+        try {
+            imageVariantService.deleteVariants(objectName);
+            minioService.removeObject(objectName);
+        } catch (Exception e) {
+            log.warn("Replaced image {} not deleted: {}", objectName, e.getMessage());
+        }
+    }
+
+    /**
+     * URL à suivre pour afficher l'image : présignée pour un objet du bucket, telle quelle sinon.
+     * variant : nom d'une variante (thumb, small...) ; l'original tant qu'elle n'est pas générée.
+     */
+    public String imageUrl(Long id, String variant) {
+        if (variant != null) {
+            imageVariantService.checkVariant(variant);
+        }
+        String url = productService.getImageUrl(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product " + id + " has no image"));
+        return minioService.objectName(url)
+                .map(name -> variant == null ? name : variantOrOriginal(name, variant))
+                .map(minioService::downloadUrl)
+                .orElse(url);
+    }
+
+    // Variante pas encore générée (ou tâche perdue à l'arrêt) : l'original, et la génération est redemandée
+    private String variantOrOriginal(String objectName, String variant) {
+        return imageVariantService.variantObject(objectName, variant).orElseGet(() -> {
+            imageVariantService.requestVariants(objectName);
+            return objectName;
+        });
+    }
+
+    // URLs présignées des variantes déjà générées, par nom ; vide pour une image hors bucket
+    public Map<String, String> variantUrls(Long id) {
+        String url = productService.getImageUrl(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product " + id + " has no image"));
+        Map<String, String> urls = new LinkedHashMap<>();
+        minioService.objectName(url).ifPresent(name -> {
+            Map<String, String> objects = imageVariantService.variantObjects(name);
+            if (objects.size() < imageVariantService.variantCount()) {
+                imageVariantService.requestVariants(name);
+            }
+            objects.forEach((variant, object) -> urls.put(variant, minioService.downloadUrl(object)));
+        });
+        return urls;
+    }
+
+    private void checkImage(String contentType, long size) {
+        if (!properties.getImageContentTypes().contains(contentType)) {
+            throw new BadRequestException("Unsupported image type: " + contentType);
+        }
+        if (size > properties.getMaxImageSize().toBytes()) {
+            throw new BadRequestException("Image exceeds " + properties.getMaxImageSize().toBytes() + " bytes");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.tahasouhailmanna.module1.cache.MultiKeyCache;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lecture de plusieurs produits par id (paniers) : mêmes entrées que {@code getProductById} dans le cache
+ * "product", mais un seul aller-retour Redis (MGET) pour toutes les clés, un seul IN pour les absents
+ * et un seul pipeline pour les remettre en cache.
+ */
+@Service
+public class ProductLookupService {
+    static final String CACHE = "product";
+    static final int MAX_IDS = 1000;
+
+    private final ProductRepository productRepository;
+    private final CacheManager cacheManager;
+    private final DistributionSummary hits;
+    private final DistributionSummary misses;
+
+    public ProductLookupService(ProductRepository productRepository, CacheManager cacheManager,
+                                ObjectProvider<MeterRegistry> meterRegistry) {
+        this.productRepository = productRepository;
+        this.cacheManager = cacheManager;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.hits = registry == null ? null : keysPerLookup(registry, "hit");
+        this.misses = registry == null ? null : keysPerLookup(registry, "miss");
+    }
+
+    private static DistributionSummary keysPerLookup(MeterRegistry registry, String result) {
+        return DistributionSummary.builder("product.lookup.keys")
+                .description("Ids per multi-get request, served from cache (hit) or loaded from the database (miss)")
+                .tags("result", result)
+                .register(registry);
+    }
+
+    /**
+     * @return produits trouvés, dans l'ordre des ids demandés (doublons ignorés, ids inconnus omis)
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDTO> getProducts(List<Long> ids) {
+        List<Long> keys = List.copyOf(distinct(ids));
+        Cache cache = cacheManager.getCache(CACHE);
+        List<Object> cached = cache == null ? List.of() : getAll(cache, keys);
+
+        Map<Long, ProductDTO> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = i < cached.size() ? cached.get(i) : null;
+            if (value instanceof ProductDTO dto) {
+                found.put(keys.get(i), dto);
+            } else {
+                missing.add(keys.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, ProductDTO> loaded = new LinkedHashMap<>();
+            productRepository.findDtosByIdIn(missing).forEach(dto -> loaded.put(dto.getId(), dto));
+            if (cache != null) {
+                putAll(cache, loaded);
+            }
+            found.putAll(loaded);
+        }
+        record(keys.size() - missing.size(), missing.size());
+
+        List<ProductDTO> result = new ArrayList<>(found.size());
+        for (Long id : keys) {
+            ProductDTO dto = found.get(id);
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    private static Set<Long> distinct(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("ids must contain at least one id");
+        }
+        Set<Long> keys = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                throw new BadRequestException("ids must not contain null");
+            }
+            keys.add(id);
+        }
+        if (keys.size() > MAX_IDS) {
+            throw new BadRequestException("Lookup exceeds " + MAX_IDS + " ids");
+        }
+        return keys;
+    }
+
+    // Cache sans accès groupé (tests, autre gestionnaire de cache) : une lecture par clé
+    private static List<Object> getAll(Cache cache, List<Long> keys) {
+        if (cache instanceof MultiKeyCache multiKey) {
+            return multiKey.getAll(keys);
+        }
+        List<Object> values = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            values.add(wrapper != null ? wrapper.get() : null);
+        }
+        return values;
+    }
+
+    private static void putAll(Cache cache, Map<Long, ProductDTO> values) {
+        if (cache instanceof MultiKeyCache multiKey) {
+            multiKey.putAll(values);
+        } else {
+            values.forEach(cache::put);
+        }
+    }
+
+    private void record(int hitCount, int missCount) {
+        if (hits != null) {
+            hits.record(hitCount);
+            misses.record(missCount);
+        }
+    }
+}
@@ -1,14 +1,34 @@
 package ma.tahasouhailmanna.module1.service;
 
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.config.ProductChangesProperties;
+import ma.tahasouhailmanna.module1.criteria.ProductChangeToken;
 import ma.tahasouhailmanna.module1.criteria.ProductCriteria;
+import ma.tahasouhailmanna.module1.criteria.ProductCursor;
+import ma.tahasouhailmanna.module1.dto.CursorPage;
+import ma.tahasouhailmanna.module1.dto.ProductChanges;
 import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductPage;
+import ma.tahasouhailmanna.module1.dto.ProductVersion;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.ChangeTokenExpiredException;
 import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
 import ma.tahasouhailmanna.module1.mapper.ProductMapper;
 import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.model.ProductChangesPurge;
+import ma.tahasouhailmanna.module1.model.ProductTombstone;
+import ma.tahasouhailmanna.module1.repository.ProductChangesPurgeRepository;
 import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import ma.tahasouhailmanna.module1.repository.ProductSearchFunctions;
+import ma.tahasouhailmanna.module1.repository.ProductTombstoneRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.cache.annotation.Cacheable;
@@ -16,98 +36,329 @@ import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Caching;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductCacheKeys productCacheKeys;
+    private final ProductTombstoneRepository tombstoneRepository;
+    private final ProductChangesProperties changesProperties;
+    private final ProductChangesPurgeRepository purgeRepository;
+    private final JdbcTemplate jdbcTemplate;
 
-    public ProductService(ProductRepository productRepository, ProductMapper productMapper) {
+    public ProductService(ProductRepository productRepository, ProductMapper productMapper,
+                          ProductCacheKeys productCacheKeys, ProductTombstoneRepository tombstoneRepository,
+                          ProductChangesProperties changesProperties, ProductChangesPurgeRepository purgeRepository,
+                          JdbcTemplate jdbcTemplate) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
+        this.productCacheKeys = productCacheKeys;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changesProperties = changesProperties;
+        this.purgeRepository = purgeRepository;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "products")
+    // sync : un seul chargement par clé et par nœud, les appels concurrents attendent son résultat
+    @Cacheable(value = "products", key = "@productCacheKeys.all()", sync = true)
     public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll()
-                .stream()
-                .map(productMapper::toDto)
-                .collect(Collectors.toList());
+        return productRepository.findAllDtos();
+    }
+
+    // Champs choisis par le client (fields=) : requête dédiée, non mise en cache
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllProducts(List<String> fields) {
+        return productRepository.findFields(null, Pageable.unpaged(), fields).getContent();
     }
 
+    /**
+     * Modifications depuis {@code token} : produits écrits et ids supprimés, fusionnés dans l'ordre de
+     * leur position (change_seq), puis jeton de la dernière position renvoyée.
+     * <p>
+     * Une position est attribuée à l'écriture, pas à la validation : une transaction encore en cours peut
+     * valider une position inférieure à celles déjà visibles. Ses positions sont postérieures à son début :
+     * le parcours s'arrête à la première écriture plus récente que le début de la plus ancienne transaction
+     * d'écriture ouverte ({@code products.changes.in-flight-query}), moins {@code products.changes.settle-delay}
+     * (écart d'horloge, délai entre l'horodatage et l'attribution de la position). Elle sera renvoyée à l'appel
+     * suivant. Les clients appliquent des upserts par id : relire une ligne est sans effet.
+     *
+     * @throws ChangeTokenExpiredException si des suppressions postérieures au jeton ont été purgées
+     */
     @Transactional(readOnly = true)
-    @Cacheable(value = "product", key = "#id")
+    public ProductChanges getChanges(String token, Integer limit) {
+        long since = ProductChangeToken.decode(token);
+        int max = limit == null ? changesProperties.getDefaultLimit()
+                : Math.min(Math.max(limit, 1), changesProperties.getMaxLimit());
+        Instant horizon = changesHorizon();
+
+        // max + 1 de chaque côté : assez pour fusionner max éléments et savoir s'il en reste
+        List<Object[]> written = productRepository.findChangedSince(since, Limit.of(max + 1));
+        List<ProductTombstone> tombstones =
+                tombstoneRepository.findByChangeSeqGreaterThanOrderByChangeSeq(since, Limit.of(max + 1));
+
+        List<ProductDTO> upserts = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long position = since;
+        boolean hasMore = false;
+        int w = 0;
+        int t = 0;
+        while (w < written.size() || t < tombstones.size()) {
+            boolean upsert = t == tombstones.size()
+                    || (w < written.size() && (Long) written.get(w)[0] < tombstones.get(t).getChangeSeq());
+            ProductDTO dto = upsert ? (ProductDTO) written.get(w)[1] : null;
+            Instant at = upsert ? dto.getUpdatedAt() : tombstones.get(t).getDeletedAt();
+            if (at != null && at.isAfter(horizon)) {
+                break;
+            }
+            if (upserts.size() + deleted.size() == max) {
+                hasMore = true;
+                break;
+            }
+            if (upsert) {
+                upserts.add(dto);
+                position = (Long) written.get(w++)[0];
+            } else {
+                deleted.add(tombstones.get(t).getProductId());
+                position = tombstones.get(t++).getChangeSeq();
+            }
+        }
+        // Lu après les tombstones : une purge validée entre-temps est forcément vue ici
+        if (since > 0 && since < purgedThrough()) {
+            throw new ChangeTokenExpiredException("Change token expired, restart without a token");
+        }
+        return new ProductChanges(upserts, deleted, ProductChangeToken.encode(position), hasMore);
+    }
+
+    private Instant changesHorizon() {
+        Instant limit = Instant.now();
+        String sql = changesProperties.getInFlightQuery();
+        if (sql != null && !sql.isBlank()) {
+            OffsetDateTime oldest = jdbcTemplate.queryForObject(sql, OffsetDateTime.class);
+            if (oldest != null && oldest.toInstant().isBefore(limit)) {
+                limit = oldest.toInstant();
+            }
+        }
+        return limit.minus(changesProperties.getSettleDelay());
+    }
+
+    private long purgedThrough() {
+        return purgeRepository.findById(ProductChangesPurge.ID).map(ProductChangesPurge::getPurgedThrough).orElse(0L);
+    }
+
+    /**
+     * Purge des tombstones plus anciens que {@code products.changes.tombstone-retention}, avec la position
+     * atteinte dans la même transaction. Idempotent : plusieurs nœuds peuvent l'exécuter.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "#{@productChangesProperties.pruneInterval.toMillis()}",
+            initialDelayString = "#{@productChangesProperties.pruneInterval.toMillis()}")
+    public int pruneTombstones() {
+        Instant now = Instant.now();
+        Long through = tombstoneRepository.findLastChangeSeqDeletedBefore(now.minus(changesProperties.getTombstoneRetention()));
+        if (through == null) {
+            return 0;
+        }
+        ProductChangesPurge purge = purgeRepository.findById(ProductChangesPurge.ID)
+                .orElseGet(() -> ProductChangesPurge.builder().id(ProductChangesPurge.ID).purgedThrough(0L).build());
+        purge.setPurgedThrough(Math.max(purge.getPurgedThrough(), through));
+        purge.setPurgedAt(now);
+        purgeRepository.save(purge);
+        return tombstoneRepository.deleteThrough(through);
+    }
+
+    // Pas de cache ici : le but est justement de ne jamais matérialiser la liste complète
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<ProductDTO> consumer) {
+        try (Stream<ProductDTO> products = productRepository.streamAll(STREAM_FETCH_SIZE)) {
+            products.forEach(consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(value = "product", key = "#id", sync = true)
     public Optional<ProductDTO> getProductById(Long id) {
         return productRepository.findById(id)
                 .map(productMapper::toDto);
     }
 
+    // Requêtes conditionnelles : version et date de modification sans charger le produit
+    @Transactional(readOnly = true)
+    public Optional<ProductVersion> getProductVersion(Long id) {
+        return productRepository.findVersionById(id);
+    }
+
+    // saveAndFlush sur les écritures : le DTO mis en cache porte la version et la date réellement écrites
     @Transactional
-    @Caching(
-        put = @CachePut(value = "product", key = "#result.id"),
-        evict = @CacheEvict(value = "products", allEntries = true)
-    )
+    @CachePut(value = "product", key = "#result.id")
     public ProductDTO saveProduct(ProductDTO productDTO) {
-        // Création: on ignore l'id fourni côté client
+        // Création: on ignore l'id et la version fournis côté client
         Product product = productMapper.toEntity(productDTO);
         product.setId(null);
-        Product savedProduct = productRepository.save(product);
+        product.setVersion(null);
+        Product savedProduct = productRepository.saveAndFlush(product);
+        productCacheKeys.productsChanged(savedProduct.getCategory());
         return productMapper.toDto(savedProduct);
     }
 
     @Transactional
-    @Caching(
-        put = @CachePut(value = "product", key = "#id"),
-        evict = @CacheEvict(value = "products", allEntries = true)
-    )
+    @Caching(put = @CachePut(value = "product", key = "#id"),
+            evict = @CacheEvict(value = "productResponses", key = "@productCacheKeys.productResponse(#id)"))
     public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product " + id + " not found"));
+        String previousCategory = product.getCategory();
         // Remplacer entièrement (sauf id)
         Product incoming = productMapper.toEntity(productDTO);
         incoming.setId(product.getId());
-        Product saved = productRepository.save(incoming);
+        // Version fournie : verrouillage optimiste (merge refusé si elle est périmée) ; sinon la dernière écriture gagne
+        checkVersion(productDTO, product);
+        incoming.setVersion(product.getVersion());
+        Product saved = productRepository.saveAndFlush(incoming);
+        productRepository.touchChanges(List.of(saved.getId()));
+        productCacheKeys.productsChanged(previousCategory, saved.getCategory());
         return productMapper.toDto(saved);
     }
 
     @Transactional
-    @Caching(
-        put = @CachePut(value = "product", key = "#id"),
-        evict = @CacheEvict(value = "products", allEntries = true)
-    )
+    @Caching(put = @CachePut(value = "product", key = "#id"),
+            evict = @CacheEvict(value = "productResponses", key = "@productCacheKeys.productResponse(#id)"))
     public ProductDTO partialUpdateProduct(Long id, ProductDTO productDTO) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product " + id + " not found"));
+        String previousCategory = product.getCategory();
+        checkVersion(productDTO, product);
         productMapper.updateEntityFromDto(productDTO, product);
-        Product saved = productRepository.save(product);
+        Product saved = productRepository.saveAndFlush(product);
+        productRepository.touchChanges(List.of(saved.getId()));
+        productCacheKeys.productsChanged(previousCategory, saved.getCategory());
         return productMapper.toDto(saved);
     }
 
+    // imageUrl n'est pas dans ProductDTO : écrit directement sur l'entité, version et flux de modifications suivent
+    @Transactional
+    @Caching(put = @CachePut(value = "product", key = "#id"),
+            evict = @CacheEvict(value = "productResponses", key = "@productCacheKeys.productResponse(#id)"))
+    public ProductDTO attachImage(Long id, String imageUrl) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product " + id + " not found"));
+        product.setImageUrl(imageUrl);
+        Product saved = productRepository.saveAndFlush(product);
+        productRepository.touchChanges(List.of(saved.getId()));
+        productCacheKeys.productsChanged(saved.getCategory());
+        return productMapper.toDto(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<String> getImageUrl(Long id) {
+        return productRepository.findImageUrlById(id);
+    }
+
+    private static void checkVersion(ProductDTO productDTO, Product product) {
+        if (productDTO.getVersion() != null && !productDTO.getVersion().equals(product.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, product.getId());
+        }
+    }
+
     @Transactional(readOnly = true)
+    @Cacheable(value = "productSearch", key = "@productCacheKeys.search(#criteria, #pageable)",
+            condition = "@productCacheKeys.searchCacheable(#criteria, #pageable)")
     public Page<ProductDTO> search(ProductCriteria criteria, Pageable pageable) {
-        Specification<Product> spec = buildSpecification(criteria);
-        return productRepository.findAll(spec, pageable).map(productMapper::toDto);
+        Specification<Product> spec = buildSpecification(criteria == null ? null : criteria.normalized());
+        return new ProductPage(productRepository.findDtos(spec, pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> search(ProductCriteria criteria, Pageable pageable, List<String> fields) {
+        Specification<Product> spec = buildSpecification(criteria == null ? null : criteria.normalized());
+        return productRepository.findFields(spec, pageable, fields);
+    }
+
+    // Recherche texte classée par pertinence (sauf tri explicite), combinable avec les filtres de search()
+    @Transactional(readOnly = true)
+    @Cacheable(value = "productSearch", key = "@productCacheKeys.textSearch(#text, #criteria, #pageable)",
+            condition = "@productCacheKeys.searchCacheable(#criteria, #pageable)")
+    public Page<ProductDTO> textSearch(String text, ProductCriteria criteria, Pageable pageable) {
+        String term = text == null ? "" : text.trim();
+        if (term.isEmpty()) {
+            throw new BadRequestException("Search text is required");
+        }
+        Specification<Product> spec = buildSpecification(criteria == null ? null : criteria.normalized())
+                .and(ProductSearchFunctions.textMatch(term, pageable.getSort().isUnsorted()));
+        return new ProductPage(productRepository.findDtos(spec, pageable));
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<ProductDTO> searchByCursor(ProductCriteria criteria, String cursor, int size, Sort sort) {
+        ProductCursor after = cursor == null || cursor.isBlank() ? null : ProductCursor.decode(cursor);
+        Sort.Order order = cursorOrder(sort, after);
+        int limit = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+
+        // Une ligne de plus que demandé pour savoir s'il existe une page suivante, sans COUNT
+        Specification<Product> spec = buildSpecification(criteria == null ? null : criteria.normalized());
+        List<Product> rows = productRepository.findByKeyset(spec, order, after, limit + 1);
+        boolean hasNext = rows.size() > limit;
+        List<Product> content = hasNext ? rows.subList(0, limit) : rows;
+        String next = hasNext ? ProductCursor.after(content.get(limit - 1), order).encode() : null;
+
+        return new CursorPage<>(
+                content.stream().map(productMapper::toDto).collect(Collectors.toList()),
+                content.size(), hasNext, next);
+    }
+
+    private Sort.Order cursorOrder(Sort sort, ProductCursor after) {
+        List<Sort.Order> orders = sort == null ? List.of() : sort.toList();
+        // id sert déjà de départage : accepté en second critère
+        if (orders.size() == 2 && "id".equals(orders.get(1).getProperty())) {
+            orders = orders.subList(0, 1);
+        }
+        if (orders.size() > 1) {
+            throw new BadRequestException("Cursor pagination supports a single sort property");
+        }
+        Sort.Order requested = orders.isEmpty() ? null : orders.get(0);
+        if (requested != null && !ProductCursor.SORTABLE.contains(requested.getProperty())) {
+            throw new BadRequestException("Unsupported cursor sort: " + requested.getProperty());
+        }
+        if (after == null) {
+            return requested != null ? requested : Sort.Order.asc("id");
+        }
+        // Le tri fait partie du curseur : il ne peut pas changer en cours de parcours
+        if (requested != null && (!requested.getProperty().equals(after.getSort())
+                || requested.getDirection() != after.getDirection())) {
+            throw new BadRequestException("Sort does not match cursor");
+        }
+        return new Sort.Order(after.getDirection(), after.getSort());
+    }
+
+    // Attend des critères normalisés (texte en minuscules, sans espaces superflus)
     private Specification<Product> buildSpecification(ProductCriteria c) {
         if (c == null) return Specification.where(null);
 
         Specification<Product> spec = Specification.where(null);
 
         if (c.getName() != null && !c.getName().isBlank()) {
-            String nameLike = "%" + c.getName().toLowerCase() + "%";
+            String nameLike = "%" + c.getName() + "%";
             spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("name")), nameLike));
         }
         if (c.getDescription() != null && !c.getDescription().isBlank()) {
-            String descLike = "%" + c.getDescription().toLowerCase() + "%";
+            String descLike = "%" + c.getDescription() + "%";
             spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("description")), descLike));
         }
         if (c.getCategory() != null && !c.getCategory().isBlank()) {
-            String cat = c.getCategory().toLowerCase();
+            String cat = c.getCategory();
             spec = spec.and((root, query, cb) -> cb.equal(cb.lower(root.get("category")), cat));
         }
         if (c.getMinPrice() != null) {
@@ -126,37 +377,46 @@ public class ProductService {
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(value = "productSearch", key = "@productCacheKeys.name(#name)",
+            unless = "!@productCacheKeys.withinSearchBudget(#result)")
     public List<ProductDTO> findByName(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name)
-                .stream().map(productMapper::toDto).collect(Collectors.toList());
+        return productRepository.findByNameContainingIgnoreCase(trim(name));
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(value = "productSearch", key = "@productCacheKeys.description(#description)",
+            unless = "!@productCacheKeys.withinSearchBudget(#result)")
     public List<ProductDTO> findByDescription(String description) {
-        return productRepository.findByDescriptionContainingIgnoreCase(description)
-                .stream().map(productMapper::toDto).collect(Collectors.toList());
+        return productRepository.findByDescriptionContainingIgnoreCase(trim(description));
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(value = "products", key = "@productCacheKeys.category(#category)")
     public List<ProductDTO> findByCategory(String category) {
-        return productRepository.findByCategoryIgnoreCase(category)
-                .stream().map(productMapper::toDto).collect(Collectors.toList());
+        return productRepository.findByCategoryIgnoreCase(category);
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(value = "productSearch", key = "@productCacheKeys.priceBetween(#min, #max)",
+            unless = "!@productCacheKeys.withinSearchBudget(#result)")
     public List<ProductDTO> findByPriceBetween(Double min, Double max) {
-        return productRepository.findByPriceBetween(min, max)
-                .stream().map(productMapper::toDto).collect(Collectors.toList());
+        return productRepository.findByPriceBetween(min, max);
+    }
+
+    // La clé de cache ignore la casse et les espaces autour du terme : la requête aussi
+    private static String trim(String term) {
+        return term == null ? null : term.trim();
     }
 
     @Transactional
-    @Caching(
-        evict = {
+    @Caching(evict = {
             @CacheEvict(value = "product", key = "#id"),
-            @CacheEvict(value = "products", allEntries = true)
-        }
-    )
+            @CacheEvict(value = "productResponses", key = "@productCacheKeys.productResponse(#id)")})
     public void deleteProduct(Long id) {
-        productRepository.deleteById(id);
+        productRepository.findById(id).ifPresent(product -> {
+            productRepository.delete(product);
+            tombstoneRepository.save(ProductTombstone.of(id));
+            productCacheKeys.productsChanged(product.getCategory());
+        });
     }
 }
@@ -0,0 +1,100 @@
+package ma.tahasouhailmanna.module1.service;
+
+import ma.tahasouhailmanna.module1.config.ProductStockProperties;
+import ma.tahasouhailmanna.module1.dto.StockReservation;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.InsufficientStockException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Réservations de stock par UPDATE conditionnel ({@link ProductRepository#reserveStock}) : ni lecture du produit
+ * ni verrou applicatif, deux acheteurs concurrents ne peuvent pas réserver la même unité.
+ */
+@Service
+public class ProductStockService {
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    // null : regroupement désactivé (products.stock.combine-reservations)
+    private final StockReservationCombiner combiner;
+
+    public ProductStockService(ProductRepository productRepository,
+                               TransactionTemplate transactionTemplate,
+                               ProductStockProperties properties) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.combiner = properties.isCombineReservations()
+                ? new StockReservationCombiner(this::reserveInTransaction, properties.getCombineStripes())
+                : null;
+    }
+
+    public StockReservation reserve(Long id, int quantity) {
+        checkQuantity(quantity);
+        boolean reserved = combiner != null ? combiner.reserve(id, quantity) : reserveInTransaction(id, quantity) == 1;
+        if (!reserved) {
+            throw failure(id, quantity);
+        }
+        return new StockReservation(id, quantity);
+    }
+
+    /**
+     * Tout ou rien : une transaction, annulée au premier produit absent ou en rupture.
+     * Quantités d'un même produit additionnées ; lignes verrouillées par id croissant, deux paniers
+     * concurrents ne peuvent pas s'interbloquer.
+     */
+    public List<StockReservation> reserveAll(List<StockReservation> reservations) {
+        if (reservations == null || reservations.isEmpty()) {
+            throw new BadRequestException("Reservation must contain at least one item");
+        }
+        Map<Long, Integer> totals = new TreeMap<>();
+        for (StockReservation r : reservations) {
+            if (r == null || r.getId() == null) {
+                throw new BadRequestException("id is required");
+            }
+            checkQuantity(r.getQuantity());
+            long total = (long) totals.getOrDefault(r.getId(), 0) + r.getQuantity();
+            if (total > Integer.MAX_VALUE) {
+                throw new BadRequestException("Total quantity for product " + r.getId() + " is too large");
+            }
+            totals.put(r.getId(), (int) total);
+        }
+        transactionTemplate.executeWithoutResult(status -> totals.forEach((id, quantity) -> {
+            if (productRepository.reserveStock(id, quantity) == 0) {
+                throw failure(id, quantity);
+            }
+        }));
+        List<StockReservation> reserved = new ArrayList<>(totals.size());
+        totals.forEach((id, quantity) -> reserved.add(new StockReservation(id, quantity)));
+        return reserved;
+    }
+
+    private int reserveInTransaction(Long id, int quantity) {
+        Integer updated = transactionTemplate.execute(status -> productRepository.reserveStock(id, quantity));
+        return updated == null ? 0 : updated;
+    }
+
+    // Aucune ligne modifiée : on distingue le produit absent (404) du stock insuffisant (409)
+    private RuntimeException failure(Long id, int quantity) {
+        if (productRepository.findExistingIds(List.of(id)).isEmpty()) {
+            return new ResourceNotFoundException("Product " + id + " not found");
+        }
+        return new InsufficientStockException("Insufficient stock for product " + id + " (requested " + quantity + ")");
+    }
+
+    private static void checkQuantity(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new BadRequestException("quantity must be positive");
+        }
+    }
+
+    long getCombinedReservations() {
+        return combiner == null ? 0 : combiner.getCombinedRequests();
+    }
+}
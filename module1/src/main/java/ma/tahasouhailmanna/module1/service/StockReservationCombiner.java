@@ -0,0 +1,150 @@
+package ma.tahasouhailmanna.module1.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Regroupe les réservations concurrentes d'un même produit : pendant qu'un UPDATE est en cours, les demandes
+ * suivantes s'accumulent, puis la première d'entre elles, désignée par l'appelant sortant, les envoie toutes en
+ * un seul UPDATE conditionnel sur leur somme. Une ligne très demandée n'est plus verrouillée qu'une fois par vague.
+ * <p>
+ * Le verrou d'une bande ne protège que la file et l'indicateur "UPDATE en cours" : il est relâché avant l'appel
+ * en base. Chaque appelant envoie au plus une vague, celle qui contient sa propre demande, puis passe la main.
+ * <p>
+ * Aucun stock n'est retenu en mémoire : la base reste la seule référence, valable entre nœuds.
+ * Si la somme dépasse le stock restant, chaque demande de la vague est rejouée seule, dans l'ordre d'arrivée.
+ */
+class StockReservationCombiner {
+
+    // Réservation dans sa propre transaction : nombre de lignes modifiées (0 ou 1)
+    interface Store {
+        int reserve(Long id, int quantity);
+    }
+
+    // turn : complété quand la demande doit envoyer la vague suivante
+    private record Pending(Long id, int quantity, CompletableFuture<Boolean> result, CompletableFuture<Void> turn) {
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Protégés par lock
+        private final Queue<Pending> queue = new ArrayDeque<>();
+        private boolean busy;
+    }
+
+    private final Store store;
+    private final Stripe[] stripes;
+    private final LongAdder combinedRequests = new LongAdder();
+
+    StockReservationCombiner(Store store, int stripes) {
+        this.store = store;
+        this.stripes = new Stripe[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    boolean reserve(Long id, int quantity) {
+        Stripe stripe = stripes[Math.floorMod(id.hashCode(), stripes.length)];
+        Pending pending = new Pending(id, quantity, new CompletableFuture<>(), new CompletableFuture<>());
+        boolean lead;
+        stripe.lock.lock();
+        try {
+            stripe.queue.add(pending);
+            lead = !stripe.busy;
+            stripe.busy = true;
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (!lead) {
+            // UPDATE en cours : attend son résultat (succès ou échec, relu plus bas) ou son tour d'envoyer
+            CompletableFuture.anyOf(pending.result(), pending.turn()).handle((r, e) -> null).join();
+        }
+        if (!pending.result().isDone()) {
+            sendWave(stripe);
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // Demandes servies par l'UPDATE d'une autre (métrique et tests)
+    long getCombinedRequests() {
+        return combinedRequests.sum();
+    }
+
+    private void sendWave(Stripe stripe) {
+        List<Pending> wave;
+        stripe.lock.lock();
+        try {
+            wave = new ArrayList<>(stripe.queue);
+            stripe.queue.clear();
+        } finally {
+            stripe.lock.unlock();
+        }
+        boolean sent = false;
+        try {
+            drain(wave);
+            sent = true;
+        } finally {
+            if (!sent) {
+                // Erreur non rattrapée par apply : les autres appelants de la vague ne doivent pas attendre
+                IllegalStateException failure = new IllegalStateException("Stock reservation was not applied");
+                wave.forEach(p -> p.result().completeExceptionally(failure));
+            }
+            handOff(stripe);
+        }
+    }
+
+    // La plus ancienne demande en attente enverra la vague suivante ; la bande reste occupée jusque-là
+    private static void handOff(Stripe stripe) {
+        Pending next;
+        stripe.lock.lock();
+        try {
+            next = stripe.queue.peek();
+            if (next == null) {
+                stripe.busy = false;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (next != null) {
+            next.turn().complete(null);
+        }
+    }
+
+    // Hors verrou : appels en base
+    private void drain(List<Pending> wave) {
+        Map<Long, List<Pending>> byProduct = new LinkedHashMap<>();
+        for (Pending p : wave) {
+            byProduct.computeIfAbsent(p.id(), k -> new ArrayList<>()).add(p);
+        }
+        byProduct.forEach(this::apply);
+    }
+
+    private void apply(Long id, List<Pending> wave) {
+        try {
+            long total = wave.stream().mapToLong(Pending::quantity).sum();
+            if (wave.size() > 1 && total <= Integer.MAX_VALUE && store.reserve(id, (int) total) == 1) {
+                combinedRequests.add(wave.size() - 1);
+                wave.forEach(p -> p.result().complete(true));
+                return;
+            }
+            for (Pending p : wave) {
+                p.result().complete(store.reserve(id, p.quantity()) == 1);
+            }
+        } catch (RuntimeException e) {
+            wave.forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+}
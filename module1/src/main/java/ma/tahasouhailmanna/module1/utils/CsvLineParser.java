@@ -0,0 +1,104 @@
+package ma.tahasouhailmanna.module1.utils;
+
+/**
+ * Découpe un enregistrement CSV (RFC 4180, séparateur virgule) dans un tableau réutilisé.
+ * Un seul parser par fichier : pas de liste ni de tableau alloué par ligne.
+ * Un champ entre guillemets peut contenir des retours à la ligne : le lecteur regroupe les lignes tant que
+ * {@link #endsInQuotes} est vrai, puis passe l'enregistrement complet à {@link #parse}.
+ */
+public class CsvLineParser {
+    private final String[] fields;
+
+    public CsvLineParser(int maxFields) {
+        this.fields = new String[maxFields];
+    }
+
+    /**
+     * @return le nombre de champs lus, ou -1 si la ligne contient plus de champs que prévu
+     */
+    public int parse(String line) {
+        int count = 0;
+        int length = line.length();
+        int pos = 0;
+        while (true) {
+            if (count == fields.length) {
+                return -1;
+            }
+            if (pos < length && line.charAt(pos) == '"') {
+                StringBuilder sb = new StringBuilder();
+                pos++;
+                while (pos < length) {
+                    char ch = line.charAt(pos++);
+                    if (ch == '"') {
+                        if (pos < length && line.charAt(pos) == '"') {
+                            sb.append('"');
+                            pos++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        sb.append(ch);
+                    }
+                }
+                fields[count++] = sb.toString();
+                int comma = line.indexOf(',', pos);
+                if (comma < 0) {
+                    return count;
+                }
+                pos = comma + 1;
+            } else {
+                int comma = line.indexOf(',', pos);
+                int end = comma < 0 ? length : comma;
+                fields[count++] = end == pos ? "" : line.substring(pos, end);
+                if (comma < 0) {
+                    return count;
+                }
+                pos = comma + 1;
+            }
+        }
+    }
+
+    /**
+     * Indique si un champ entre guillemets reste ouvert en fin de ligne : l'enregistrement continue sur la
+     * ligne suivante. Mêmes règles que {@link #parse} (un guillemet n'ouvre un champ qu'en début de champ).
+     *
+     * @param quoted vrai si la ligne commence à l'intérieur d'un champ entre guillemets (ligne de continuation)
+     */
+    public static boolean endsInQuotes(String line, boolean quoted) {
+        int length = line.length();
+        int pos = 0;
+        if (!quoted && length > 0 && line.charAt(0) == '"') {
+            quoted = true;
+            pos = 1;
+        }
+        while (true) {
+            if (quoted) {
+                while (true) {
+                    if (pos >= length) {
+                        return true;
+                    }
+                    if (line.charAt(pos++) == '"') {
+                        if (pos < length && line.charAt(pos) == '"') {
+                            pos++;
+                        } else {
+                            break;
+                        }
+                    }
+                }
+            }
+            int comma = line.indexOf(',', pos);
+            if (comma < 0) {
+                return false;
+            }
+            pos = comma + 1;
+            quoted = pos < length && line.charAt(pos) == '"';
+            if (quoted) {
+                pos++;
+            }
+        }
+    }
+
+    public String field(int index) {
+        return fields[index];
+    }
+}
@@ -0,0 +1,7 @@
+-- Séquence à pas de 50 : Hibernate réserve les ids par blocs (pooled-lo) et peut batcher les INSERT
+CREATE SEQUENCE IF NOT EXISTS product_seq INCREMENT BY 50;
+SELECT setval('product_seq', COALESCE((SELECT MAX(id) FROM product), 0) + 1, false);
+
+ALTER TABLE product ALTER COLUMN id SET DEFAULT nextval('product_seq');
+ALTER SEQUENCE product_seq OWNED BY product.id;
+DROP SEQUENCE IF EXISTS product_id_seq;
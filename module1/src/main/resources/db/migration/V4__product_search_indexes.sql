@@ -0,0 +1,14 @@
+-- Recherche texte : index trigrammes pour les LIKE '%terme%' existants
+-- et index plein texte pour la recherche classée par pertinence (/api/products/search/text)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS product_name_trgm_idx
+    ON product USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS product_description_trgm_idx
+    ON product USING gin (lower(description) gin_trgm_ops);
+
+-- Doit rester identique à l'expression rendue par ProductSearchFunctions pour être utilisé par le planificateur
+CREATE INDEX IF NOT EXISTS product_search_fts_idx
+    ON product USING gin ((setweight(to_tsvector('simple', coalesce(name, '')), 'A')
+        || setweight(to_tsvector('simple', coalesce(description, '')), 'B')));
@@ -0,0 +1,14 @@
+-- Index alignés sur les prédicats de ProductService.buildSpecification et ProductRepository :
+-- lower(category) = ?, plages sur price et quantity (forme vérifiée par ProductQueryShapeTest).
+-- id en fin de clé : départage des tris par prix de la pagination par curseur.
+CREATE INDEX IF NOT EXISTS product_category_price_idx
+    ON product (lower(category), price, id);
+
+CREATE INDEX IF NOT EXISTS product_category_quantity_idx
+    ON product (lower(category), quantity);
+
+CREATE INDEX IF NOT EXISTS product_price_idx
+    ON product (price, id);
+
+CREATE INDEX IF NOT EXISTS product_quantity_idx
+    ON product (quantity);
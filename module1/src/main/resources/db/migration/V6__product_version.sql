@@ -0,0 +1,4 @@
+-- Version (verrouillage optimiste, ETag) et date de dernière modification (Last-Modified) de chaque produit.
+-- Les lignes existantes et les insertions JDBC (import CSV) prennent les valeurs par défaut.
+ALTER TABLE product ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE product ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
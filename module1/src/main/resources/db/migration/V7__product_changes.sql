@@ -0,0 +1,14 @@
+-- Flux de modifications (GET /api/products/changes) : position croissante tirée d'une séquence unique,
+-- réattribuée à chaque écriture d'un produit et à chaque suppression (table des tombstones).
+-- Séquence sans cache côté nœuds (INCREMENT BY 1, allocationSize = 1) : l'ordre reste global.
+CREATE SEQUENCE IF NOT EXISTS product_change_seq START WITH 1 INCREMENT BY 1;
+
+-- Lignes existantes et insertions JDBC (import CSV) : numérotées par la valeur par défaut
+ALTER TABLE product ADD COLUMN IF NOT EXISTS change_seq BIGINT NOT NULL DEFAULT nextval('product_change_seq');
+CREATE INDEX IF NOT EXISTS product_change_seq_idx ON product (change_seq);
+
+CREATE TABLE IF NOT EXISTS product_tombstone (
+    change_seq BIGINT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    deleted_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
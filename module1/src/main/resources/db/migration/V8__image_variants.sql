@@ -0,0 +1,14 @@
+-- Variantes redimensionnées des images (ImageVariantService), rangées à côté de l'objet d'origine dans le bucket
+CREATE SEQUENCE IF NOT EXISTS image_variant_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS image_variant (
+    id              BIGINT PRIMARY KEY DEFAULT nextval('image_variant_seq'),
+    original_object VARCHAR(512) NOT NULL,
+    name            VARCHAR(64)  NOT NULL,
+    object_name     VARCHAR(600) NOT NULL,
+    width           INTEGER      NOT NULL,
+    height          INTEGER      NOT NULL,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    -- Une variante par nom et par original ; sert aussi l'index de lecture par original
+    CONSTRAINT uk_image_variant_original_name UNIQUE (original_object, name)
+);
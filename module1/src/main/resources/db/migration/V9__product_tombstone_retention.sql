@@ -0,0 +1,9 @@
+-- Purge des tombstones au-delà de products.changes.tombstone-retention
+CREATE INDEX IF NOT EXISTS product_tombstone_deleted_at_idx ON product_tombstone (deleted_at);
+
+-- Ligne unique : position jusqu'à laquelle les tombstones ont été purgés ; un jeton antérieur est expiré
+CREATE TABLE IF NOT EXISTS product_changes_purge (
+    id             BIGINT PRIMARY KEY,
+    purged_through BIGINT NOT NULL,
+    purged_at      TIMESTAMP WITH TIME ZONE NOT NULL
+);
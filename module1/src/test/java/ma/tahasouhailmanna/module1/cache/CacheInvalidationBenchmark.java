@@ -0,0 +1,73 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import ma.tahasouhailmanna.module1.config.ProductSearchCacheProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Taux de succès du cache "products" sous une charge mixte lecture/écriture :
+ * purge complète (allEntries) contre clés versionnées par catégorie.
+ * Lancer la méthode main depuis l'IDE ou via exec:java en scope test.
+ */
+public class CacheInvalidationBenchmark {
+    private static final int OPERATIONS = 1_000_000;
+    private static final int CATEGORIES = 50;
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-14s %-14s%n", "writes", "allEntries", "generational");
+        for (double writeRatio : List.of(0.001, 0.01, 0.05, 0.20)) {
+            double purge = run(writeRatio, false);
+            double versioned = run(writeRatio, true);
+            System.out.printf("%-10s %-14.4f %-14.4f%n", (writeRatio * 100) + "%", purge, versioned);
+        }
+    }
+
+    static double run(double writeRatio, boolean generational) {
+        Cache cache = new ConcurrentMapCache("products");
+        Map<String, Long> store = new ConcurrentHashMap<>();
+        ProductCacheKeys keys = new ProductCacheKeys(new CacheGenerations(
+                scope -> new CacheGenerations.Generation("e", store.getOrDefault(scope, 0L)),
+                scope -> new CacheGenerations.Generation("e", store.merge(scope, 1L, Long::sum)),
+                mock(CacheInvalidationPublisher.class)), new ProductSearchCacheProperties());
+        SplittableRandom random = new SplittableRandom(42);
+        long hits = 0;
+        long reads = 0;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            String category = "c" + skewed(random);
+            if (random.nextDouble() < writeRatio) {
+                if (generational) {
+                    keys.productsChanged(category);
+                } else {
+                    cache.clear();
+                }
+                continue;
+            }
+            reads++;
+            // 10 % de lectures de la liste complète, 90 % par catégorie
+            boolean listing = random.nextInt(10) == 0;
+            Object key = generational
+                    ? (listing ? keys.all() : keys.category(category))
+                    : (listing ? "all" : "category:" + category);
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, "rows");
+            }
+        }
+        return (double) hits / reads;
+    }
+
+    // Distribution déséquilibrée : quelques catégories concentrent la majorité du trafic
+    private static int skewed(SplittableRandom random) {
+        double u = random.nextDouble();
+        return (int) (CATEGORIES * u * u);
+    }
+}
@@ -0,0 +1,101 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codec JSON actuel vs binaire (avec et sans compression) sur la liste "products" et une entrée "product".
+ * Les tailles encodées sont affichées avant la mesure des temps.
+ * <p>
+ * Lancement : {@code java -cp target/classes:target/test-classes:<classpath de test>
+ * ma.tahasouhailmanna.module1.cache.ProductCacheCodecBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductCacheCodecBenchmark {
+
+    @Param({"1", "1000"})
+    public int products;
+
+    private GenericJackson2JsonRedisSerializer json;
+    private ProductCacheSerializer binary;
+    private ProductCacheSerializer binaryDeflate;
+    private Object value;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+    private byte[] deflatedBytes;
+
+    @Setup
+    public void setUp() {
+        json = new GenericJackson2JsonRedisSerializer();
+        binary = new ProductCacheSerializer(json, true, Integer.MAX_VALUE);
+        binaryDeflate = new ProductCacheSerializer(json, true, 0);
+        List<ProductDTO> catalog = ProductCacheSerializerTest.catalog(products);
+        value = products == 1 ? catalog.get(0) : catalog;
+        jsonBytes = json.serialize(value);
+        binaryBytes = binary.serialize(value);
+        deflatedBytes = binaryDeflate.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return json.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binary.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryDeflate() {
+        return binaryDeflate.serialize(value);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return json.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Object decodeBinary() {
+        return binary.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public Object decodeBinaryDeflate() {
+        return binary.deserialize(deflatedBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int size : new int[]{1, 1000}) {
+            ProductCacheCodecBenchmark b = new ProductCacheCodecBenchmark();
+            b.products = size;
+            b.setUp();
+            System.out.printf("%5d products: json %8d B, binary %8d B, binary+deflate %8d B%n",
+                    size, b.jsonBytes.length, b.binaryBytes.length, b.deflatedBytes.length);
+        }
+        new Runner(new OptionsBuilder().include(ProductCacheCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
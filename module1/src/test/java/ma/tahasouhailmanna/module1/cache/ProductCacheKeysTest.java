@@ -0,0 +1,179 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import ma.tahasouhailmanna.module1.config.ProductSearchCacheProperties;
+import ma.tahasouhailmanna.module1.criteria.ProductCriteria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductCacheKeysTest {
+
+    // Compteurs "Redis" et epoch courant : vider store et changer d'epoch simule une perte des compteurs
+    private final Map<String, Long> store = new ConcurrentHashMap<>();
+    private String epoch = "a";
+    private CacheInvalidationPublisher publisher;
+    private CacheGenerations generations;
+    private ProductCacheKeys keys;
+
+    @BeforeEach
+    void setUp() {
+        publisher = mock(CacheInvalidationPublisher.class);
+        keys = newNode();
+    }
+
+    private ProductCacheKeys newNode() {
+        generations = new CacheGenerations(
+                scope -> new CacheGenerations.Generation(epoch, store.getOrDefault(scope, 0L)),
+                scope -> new CacheGenerations.Generation(epoch, store.merge(scope, 1L, Long::sum)),
+                publisher);
+        return new ProductCacheKeys(generations, new ProductSearchCacheProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void productsChanged_onlyRotatesListingAndTouchedCategories() {
+        String all = keys.all();
+        String home = keys.category("Home");
+        String garden = keys.category("garden");
+
+        keys.productsChanged("HOME ");
+
+        assertNotEquals(all, keys.all());
+        assertNotEquals(home, keys.category("home"));
+        assertEquals(garden, keys.category("Garden"));
+        verify(publisher).publishGeneration(ProductCacheKeys.LISTING, "a-1");
+        verify(publisher).publishGeneration("category:home", "a-1");
+    }
+
+    @Test
+    void catalogVersion_neverRepeatsAfterCountersAreLost() {
+        keys.productsChanged("home");
+        String served = keys.catalogVersion();
+
+        // Redis redémarré sans persistance : compteurs repartis de 0 sous un nouvel epoch
+        store.clear();
+        epoch = "b";
+        ProductCacheKeys restarted = newNode();
+        restarted.productsChanged("home");
+
+        assertEquals("b-0.b-1", restarted.catalogVersion());
+        assertNotEquals(served, restarted.catalogVersion());
+    }
+
+    @Test
+    void onGeneration_keepsHighestValueOfAnEpochAndSwitchesOnNewEpoch() {
+        keys.productsChanged("home");
+        String scope = ProductCacheKeys.LISTING;
+
+        generations.onGeneration(scope, CacheGenerations.Generation.parse("a-0"));
+        assertEquals("a-1", generations.current(scope));
+        generations.onGeneration(scope, CacheGenerations.Generation.parse("a-3"));
+        assertEquals("a-3", generations.current(scope));
+        generations.onGeneration(scope, CacheGenerations.Generation.parse("b-1"));
+        assertEquals("b-1", generations.current(scope));
+        assertNull(CacheGenerations.Generation.parse("7"));
+    }
+
+    @Test
+    void catalogChanged_rotatesEveryKey() {
+        String all = keys.all();
+        String garden = keys.category("garden");
+
+        keys.catalogChanged();
+
+        assertNotEquals(all, keys.all());
+        assertNotEquals(garden, keys.category("garden"));
+    }
+
+    @Test
+    void bump_waitsForCommit() {
+        String all = keys.all();
+        TransactionSynchronizationManager.initSynchronization();
+
+        keys.productsChanged("home");
+        assertEquals(all, keys.all());
+
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCommit();
+        }
+        assertNotEquals(all, keys.all());
+    }
+
+    @Test
+    void search_equivalentCriteriaShareKey() {
+        ProductCriteria a = criteria("  Phone ", "Home", 10.0);
+        ProductCriteria b = criteria("phone", " HOME", 10d);
+        b.setDescription("   ");
+        PageRequest page = PageRequest.of(0, 20, Sort.by("price"));
+
+        assertEquals(keys.search(a, page), keys.search(b, PageRequest.of(0, 20, Sort.by("price"))));
+        assertNotEquals(keys.search(a, page), keys.search(a, PageRequest.of(1, 20, Sort.by("price"))));
+        assertNotEquals(keys.search(a, page), keys.search(a, PageRequest.of(0, 20, Sort.by("name"))));
+        // Un terme contenant un séparateur ne peut pas se faire passer pour un autre critère
+        ProductCriteria forged = criteria("phone&d=x", "home", 10.0);
+        ProductCriteria split = criteria("phone", "home", 10.0);
+        split.setDescription("x");
+        assertNotEquals(keys.search(forged, page), keys.search(split, page));
+    }
+
+    @Test
+    void search_followsCategoryGenerationWhenFiltered() {
+        PageRequest page = PageRequest.of(0, 20);
+        String home = keys.search(criteria(null, "home", null), page);
+        String unfiltered = keys.search(criteria("phone", null, null), page);
+        String name = keys.name("phone");
+
+        keys.productsChanged("garden");
+
+        assertEquals(home, keys.search(criteria(null, "home", null), page));
+        assertNotEquals(unfiltered, keys.search(criteria("phone", null, null), page));
+        assertNotEquals(name, keys.name("phone"));
+
+        keys.catalogChanged();
+        assertNotEquals(home, keys.search(criteria(null, "home", null), page));
+    }
+
+    @Test
+    void searchBudget_skipsDeepPagesAndLargeResults() {
+        assertTrue(keys.searchCacheable(null, PageRequest.of(0, 20)));
+        assertFalse(keys.searchCacheable(null, PageRequest.of(21, 20)));
+        assertFalse(keys.searchCacheable(null, PageRequest.of(0, 101)));
+        assertTrue(keys.withinSearchBudget(Collections.nCopies(500, "x")));
+        assertFalse(keys.withinSearchBudget(Collections.nCopies(501, "x")));
+    }
+
+    @Test
+    void searchCacheable_skipsQuantityFiltersAndSort() {
+        ProductCriteria inStock = criteria(null, "home", null);
+        inStock.setMinQuantity(1);
+
+        assertTrue(keys.searchCacheable(criteria(null, "home", null), PageRequest.of(0, 20)));
+        assertFalse(keys.searchCacheable(inStock, PageRequest.of(0, 20)));
+        assertFalse(keys.searchCacheable(null, PageRequest.of(0, 20, Sort.by("quantity"))));
+    }
+
+    private static ProductCriteria criteria(String name, String category, Double minPrice) {
+        ProductCriteria c = new ProductCriteria();
+        c.setName(name);
+        c.setCategory(category);
+        c.setMinPrice(minPrice);
+        return c;
+    }
+}
@@ -0,0 +1,150 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final ProductCacheSerializer serializer = new ProductCacheSerializer(json, true, 2048);
+
+    @Test
+    void product_roundTripsWithNullFields() {
+        ProductDTO dto = product(42L, "Théière", null, 12.5);
+
+        byte[] bytes = serializer.serialize(dto);
+        ProductDTO copy = assertInstanceOf(ProductDTO.class, serializer.deserialize(bytes));
+
+        assertEquals(ProductCacheSerializer.MAGIC, bytes[0]);
+        assertEquals(42L, copy.getId());
+        assertEquals("Théière", copy.getName());
+        assertNull(copy.getDescription());
+        assertEquals("home", copy.getCategory());
+        assertEquals(12.5, copy.getPrice());
+        assertTrue(bytes.length < json.serialize(dto).length / 3);
+    }
+
+    @Test
+    void product_roundTripsVersionAndUpdatedAt() {
+        ProductDTO dto = product(1L, "A", null, 1.0);
+        dto.setVersion(300L);
+        dto.setUpdatedAt(Instant.parse("2026-03-01T10:15:30.123456Z"));
+
+        ProductDTO copy = (ProductDTO) serializer.deserialize(serializer.serialize(dto));
+
+        assertEquals(300L, copy.getVersion());
+        assertEquals(dto.getUpdatedAt(), copy.getUpdatedAt());
+    }
+
+    @Test
+    void largeList_isCompressedAndRoundTrips() {
+        List<ProductDTO> catalog = catalog(1_000);
+
+        byte[] bytes = serializer.serialize(catalog);
+        @SuppressWarnings("unchecked")
+        List<ProductDTO> copy = (List<ProductDTO>) serializer.deserialize(bytes);
+
+        assertEquals(1, bytes[2] & 1);
+        assertEquals(1_000, copy.size());
+        assertEquals("Product 999", copy.get(999).getName());
+        assertEquals("Description of product 999", copy.get(999).getDescription());
+    }
+
+    @Test
+    void page_roundTripsWithSort() {
+        ProductPage page = new ProductPage(List.of(product(1L, "A", "desc", 1.0)), 3, 10, 31, List.of("price:DESC", "id:ASC"));
+
+        ProductPage copy = assertInstanceOf(ProductPage.class, serializer.deserialize(serializer.serialize(page)));
+
+        assertEquals(31, copy.getTotalElements());
+        assertEquals(3, copy.getNumber());
+        assertEquals(page.getSort(), copy.getSort());
+        assertEquals("desc", copy.getContent().get(0).getDescription());
+    }
+
+    @Test
+    void cachedResponse_roundTripsWithoutRecompression() {
+        byte[] body = ("[" + "{\"id\":1,\"name\":\"Lampe\"},".repeat(200) + "{}]").getBytes();
+        CachedResponse response = CachedResponse.of("application/json", "W/\"3\"", 1_700_000_000_000L, body, 1024);
+
+        byte[] bytes = serializer.serialize(response);
+        CachedResponse copy = assertInstanceOf(CachedResponse.class, serializer.deserialize(bytes));
+
+        assertEquals(0, bytes[2]);
+        assertEquals("application/json", copy.contentType());
+        assertEquals("W/\"3\"", copy.etag());
+        assertEquals(1_700_000_000_000L, copy.lastModified());
+        assertArrayEquals(body, copy.body());
+        assertArrayEquals(response.gzipped(), copy.gzipped());
+        assertNull(((CachedResponse) serializer.deserialize(
+                serializer.serialize(CachedResponse.of("application/json", "W/\"catalog-0.0\"", -1, new byte[]{'{', '}'}, 1024))))
+                .gzipped());
+    }
+
+    @Test
+    void legacyJsonEntries_remainReadable() {
+        byte[] legacy = json.serialize(new ArrayList<>(List.of(product(1L, "A", null, 1.0))));
+
+        @SuppressWarnings("unchecked")
+        List<ProductDTO> copy = (List<ProductDTO>) serializer.deserialize(legacy);
+
+        assertEquals("A", copy.get(0).getName());
+    }
+
+    @Test
+    void unknownVersion_isTreatedAsMiss() {
+        byte[] bytes = serializer.serialize(product(1L, "A", null, 1.0));
+        bytes[1] = (byte) (ProductCacheSerializer.VERSION + 1);
+
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    void version1Entries_areTreatedAsMiss() {
+        // Produit {id: 1, name: "A"} puis réponse sans lastModified, tels qu'écrits par le format 1
+        byte[] product = {ProductCacheSerializer.MAGIC, 1, 0, 1, 0b11, 1, 1, 'A'};
+        byte[] response = {ProductCacheSerializer.MAGIC, 1, 0, 4, 4, 'j', 's', 'o', 'n', 3, 'W', '/', '1', 3, '{', '}', 0};
+
+        assertNull(serializer.deserialize(product));
+        assertNull(serializer.deserialize(response));
+    }
+
+    @Test
+    void otherValuesAndJsonMode_useJson() {
+        byte[] map = serializer.serialize(Map.of("k", "v"));
+        assertEquals('{', map[0]);
+
+        ProductCacheSerializer jsonWriter = new ProductCacheSerializer(json, false, 2048);
+        byte[] bytes = jsonWriter.serialize(product(1L, "A", null, 1.0));
+        assertEquals('{', bytes[0]);
+        // Retour arrière : le mode JSON relit les entrées binaires déjà écrites
+        assertEquals("A", ((ProductDTO) jsonWriter.deserialize(serializer.serialize(product(1L, "A", null, 1.0)))).getName());
+    }
+
+    static List<ProductDTO> catalog(int size) {
+        List<ProductDTO> catalog = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            catalog.add(product((long) i, "Product " + i, "Description of product " + i, 10.0 + i));
+        }
+        return catalog;
+    }
+
+    private static ProductDTO product(Long id, String name, String description, Double price) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setDescription(description);
+        dto.setCategory("home");
+        dto.setPrice(price);
+        return dto;
+    }
+}
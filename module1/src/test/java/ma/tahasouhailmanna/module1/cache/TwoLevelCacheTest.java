@@ -0,0 +1,290 @@
+package ma.tahasouhailmanna.module1.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheTest {
+
+    private ConcurrentMapCache remote;
+    private CacheInvalidationPublisher publisher;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache("product", false);
+        publisher = mock(CacheInvalidationPublisher.class);
+        cache = new TwoLevelCache("product", remote, new LocalCacheSpec(100, Duration.ofMinutes(1)), publisher);
+    }
+
+    @Test
+    void get_servesFromLocalAfterFirstRemoteHit() {
+        remote.put(1L, "P1");
+
+        assertEquals("P1", cache.get(1L).get());
+        remote.evict(1L);
+        assertEquals("P1", cache.get(1L).get());
+
+        assertEquals(1, cache.getRemoteHits());
+        assertEquals(1, cache.getLocalHits());
+        assertEquals(0.5, cache.localHitRatio());
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.getRemoteMisses());
+    }
+
+    @Test
+    void putAndEvict_writeThroughAndPublish() {
+        cache.put(1L, "P1");
+        assertEquals("P1", remote.get(1L).get());
+        verify(publisher).publishEvict("product", "1");
+
+        cache.evict(1L);
+        assertNull(remote.get(1L));
+        assertNull(cache.get(1L));
+        verify(publisher, times(2)).publishEvict("product", "1");
+
+        cache.clear();
+        verify(publisher).publishClear("product");
+    }
+
+    @Test
+    void put_nullValueEvicts() {
+        cache.put(1L, "P1");
+        cache.put(1L, null);
+
+        assertNull(remote.get(1L));
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void syncGet_fillsBothLevelsWithoutPublishing() {
+        assertEquals("P1", cache.get(1L, () -> "P1"));
+
+        assertEquals("P1", remote.get(1L).get());
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void syncGet_nullLoadStoresNothingAndPublishesNothing() {
+        assertNull(cache.get(1L, () -> null));
+
+        assertNull(remote.get(1L));
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void listener_dropsLocalCopyOnRemoteInvalidation() {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(
+                new ConcurrentMapCacheManager("product"), Map.of(),
+                new LocalCacheSpec(100, Duration.ofMinutes(1)), publisher, new SimpleMeterRegistry());
+        TwoLevelCache managed = (TwoLevelCache) manager.getCache("product");
+        CacheInvalidationListener listener = new CacheInvalidationListener(manager, mock(CacheGenerations.class), "this-node");
+        managed.put(1L, "P1");
+
+        // Message émis par ce nœud : ignoré, l'entrée reste servie par le L1
+        listener.handle("this-node\nE\nproduct\n1");
+        managed.get(1L);
+        assertEquals(1, managed.getLocalHits());
+
+        // Un autre nœud a modifié l'entrée : le L1 est purgé, la lecture repasse par le L2
+        listener.handle("other-node\nE\nproduct\n1");
+        managed.get(1L);
+        assertEquals(1, managed.getRemoteHits());
+
+        listener.handle("other-node\nC\nproduct\n");
+        managed.get(1L);
+        assertEquals(2, managed.getRemoteHits());
+
+        managed.put(2L, "P2");
+        listener.handle("other-node\nM\nproduct\n1\n2");
+        managed.getAll(List.of(1L, 2L));
+        assertEquals(4, managed.getRemoteHits());
+    }
+
+    @Test
+    void getAll_readsLocalThenRemainingKeysFromRemote() {
+        cache.put(1L, "P1");
+        remote.put(2L, "P2");
+
+        assertEquals(Arrays.asList("P1", "P2", null), cache.getAll(List.of(1L, 2L, 3L)));
+        assertEquals(1, cache.getLocalHits());
+        assertEquals(1, cache.getRemoteHits());
+        assertEquals(1, cache.getRemoteMisses());
+
+        // P2 est maintenant dans le L1
+        assertEquals(Arrays.asList("P1", "P2"), cache.getAll(List.of(1L, 2L)));
+        assertEquals(3, cache.getLocalHits());
+    }
+
+    @Test
+    void putAll_writesBothLevelsWithoutPublishing() {
+        Map<Long, String> values = new LinkedHashMap<>();
+        values.put(1L, "P1");
+        values.put(2L, "P2");
+        values.put(3L, null);
+
+        cache.putAll(values);
+
+        assertEquals("P2", remote.get(2L).get());
+        assertNull(remote.get(3L));
+        remote.clear();
+        assertEquals(Arrays.asList("P1", "P2"), cache.getAll(List.of(1L, 2L)));
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void evictAll_dropsBothLevelsAndPublishesOnce() {
+        cache.put(1L, "P1");
+        cache.put(2L, "P2");
+        cache.put(3L, "P3");
+        clearInvocations(publisher);
+
+        cache.evictAll(List.of(1L, 2L));
+
+        assertNull(remote.get(1L));
+        assertNull(remote.get(2L));
+        assertEquals(Arrays.asList(null, null, "P3"), cache.getAll(List.of(1L, 2L, 3L)));
+        verify(publisher).publishEvictAll("product", List.of("1", "2"));
+        verifyNoMoreInteractions(publisher);
+    }
+
+    @Test
+    void evictAll_usesOneRemoteCallWhenRemoteIsMultiKey() {
+        org.springframework.cache.Cache multiKeyRemote = mock(org.springframework.cache.Cache.class,
+                withSettings().extraInterfaces(MultiKeyCache.class));
+        TwoLevelCache grouped = new TwoLevelCache("product", multiKeyRemote,
+                new LocalCacheSpec(100, Duration.ofMinutes(1)), publisher);
+
+        grouped.evictAll(List.of(1L, 2L));
+
+        verify((MultiKeyCache) multiKeyRemote).evictAll(List.of(1L, 2L));
+        verify(multiKeyRemote, never()).evict(any());
+    }
+
+    @Test
+    void syncGet_loadsOncePerKeyUnderConcurrentMisses() throws Exception {
+        int callers = 32;
+        AtomicInteger loads1 = new AtomicInteger();
+        AtomicInteger loads2 = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                long key = i % 2 == 0 ? 1L : 2L;
+                AtomicInteger loads = key == 1L ? loads1 : loads2;
+                results.add(pool.submit(() -> cache.get(key, () -> {
+                    loads.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "P" + key;
+                })));
+            }
+            // Tous les appelants non élus attendent le chargement en cours
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (cache.getCoalescedLoads() < callers - 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (int i = 0; i < callers; i++) {
+                assertEquals(i % 2 == 0 ? "P1" : "P2", results.get(i).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads1.get());
+        assertEquals(1, loads2.get());
+        assertEquals(callers - 2, cache.getCoalescedLoads());
+        assertEquals("P1", remote.get(1L).get());
+    }
+
+    @Test
+    void syncGet_propagatesLoaderFailureToWaitingCallers() {
+        assertThrows(org.springframework.cache.Cache.ValueRetrievalException.class,
+                () -> cache.get(1L, () -> {
+                    throw new IllegalStateException("db down");
+                }));
+        // L'échec n'est pas mis en cache : le prochain appel recharge
+        assertEquals("P1", cache.get(1L, () -> "P1"));
+    }
+
+    @Test
+    void syncGet_refreshesAheadNearRemoteExpiry() {
+        AtomicLong now = new AtomicLong();
+        List<Runnable> background = new ArrayList<>();
+        TwoLevelCache refreshing = new TwoLevelCache("product", remote,
+                new LocalCacheSpec(100, Duration.ofMinutes(1)).withRefreshAhead(Duration.ofMinutes(10), 0.1),
+                publisher, now::get, background::add);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", refreshing.get(1L, () -> "v" + loads.incrementAndGet()));
+        now.addAndGet(Duration.ofMinutes(8).toNanos());
+        // Hors de la fenêtre (derniers 10 % du TTL) : servi depuis le cache
+        assertEquals("v1", refreshing.get(1L, () -> "v" + loads.incrementAndGet()));
+
+        now.set(Duration.ofMinutes(10).toNanos() - 1);
+        // Rechargement confié à l'exécuteur : l'appelant repart aussitôt avec la valeur en place
+        assertEquals("v1", refreshing.get(1L, () -> "v" + loads.incrementAndGet()));
+        // Rechargement déjà en attente : pas de second
+        assertEquals("v1", refreshing.get(1L, () -> "v" + loads.incrementAndGet()));
+        assertEquals(1, background.size());
+        assertEquals(1, loads.get());
+
+        background.get(0).run();
+        assertEquals(1, refreshing.getEarlyRefreshes());
+        assertEquals("v2", remote.get(1L).get());
+        assertEquals("v2", refreshing.get(1L, () -> "v" + loads.incrementAndGet()));
+    }
+
+    @Test
+    void syncGet_failedEarlyRefreshKeepsServingCurrentValue() {
+        AtomicLong now = new AtomicLong();
+        List<Runnable> background = new ArrayList<>();
+        TwoLevelCache refreshing = new TwoLevelCache("product", remote,
+                new LocalCacheSpec(100, Duration.ofMinutes(1)).withRefreshAhead(Duration.ofMinutes(10), 0.1),
+                publisher, now::get, background::add);
+        refreshing.get(1L, () -> "v1");
+        now.set(Duration.ofMinutes(10).toNanos() - 1);
+
+        assertEquals("v1", refreshing.get(1L, () -> {
+            throw new IllegalStateException("db down");
+        }));
+        background.get(0).run();
+
+        assertEquals("v1", refreshing.get(1L, () -> "v2"));
+        assertEquals("v1", remote.get(1L).get());
+        // Plus de chargement en cours : le tirage suivant peut retenter
+        assertEquals(2, background.size());
+    }
+
+    @Test
+    void refreshAhead_probabilityRisesOverWindow() {
+        LocalCacheSpec.RefreshAhead spec = new LocalCacheSpec.RefreshAhead(Duration.ofSeconds(100), 0.2);
+        long second = Duration.ofSeconds(1).toNanos();
+
+        assertFalse(spec.shouldRefresh(80 * second, 0.0));
+        assertTrue(spec.shouldRefresh(90 * second, 0.49));
+        assertFalse(spec.shouldRefresh(90 * second, 0.51));
+        assertTrue(spec.shouldRefresh(100 * second, 0.99));
+        assertThrows(IllegalArgumentException.class, () -> new LocalCacheSpec.RefreshAhead(Duration.ofSeconds(1), 0));
+    }
+}
@@ -0,0 +1,94 @@
+package ma.tahasouhailmanna.module1.config;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Expect: 100-continue sur un vrai Tomcat : le "100 Continue" n'est envoyé que si l'application lit le corps.
+ */
+class WebConfigTest {
+
+    private WebServer server;
+
+    @BeforeEach
+    void setUp() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        new WebConfig(null).continueOnRead().customize(factory);
+        server = factory.getWebServer(context -> context.addServlet("probe", new HttpServlet() {
+            @Override
+            protected void doPut(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                // /skip : réponse sans lire le corps, comme un contenu déjà stocké
+                if (request.getRequestURI().equals("/read")) {
+                    request.getInputStream().readAllBytes();
+                    response.setStatus(HttpServletResponse.SC_CREATED);
+                } else {
+                    response.setStatus(HttpServletResponse.SC_OK);
+                }
+            }
+        }).addMapping("/*"));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void continueOnRead_answersWithoutAskingForUnreadBody() throws IOException {
+        try (Socket socket = expectContinue("/skip")) {
+            assertEquals("HTTP/1.1 200", statusLine(socket));
+        }
+    }
+
+    @Test
+    void continueOnRead_asksForBodyWhenApplicationReadsIt() throws IOException {
+        try (Socket socket = expectContinue("/read")) {
+            BufferedReader in = reader(socket);
+            assertEquals("HTTP/1.1 100", in.readLine().substring(0, 12));
+            OutputStream out = socket.getOutputStream();
+            out.write("hello".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String line = in.readLine();
+            while (line != null && !line.startsWith("HTTP/1.1 2")) {
+                line = in.readLine();
+            }
+            assertNotNull(line);
+            assertEquals("HTTP/1.1 201", line.substring(0, 12));
+        }
+    }
+
+    // En-têtes seuls : le corps n'est envoyé qu'après un "100 Continue"
+    private Socket expectContinue(String path) throws IOException {
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        socket.setSoTimeout(5000);
+        OutputStream out = socket.getOutputStream();
+        out.write(("PUT " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n"
+                + "Expect: 100-continue\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return socket;
+    }
+
+    private static String statusLine(Socket socket) throws IOException {
+        return reader(socket).readLine().substring(0, 12);
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+}
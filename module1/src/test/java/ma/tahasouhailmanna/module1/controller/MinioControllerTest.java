@@ -0,0 +1,176 @@
+package ma.tahasouhailmanna.module1.controller;
+
+import ma.tahasouhailmanna.module1.advice.GlobalExceptionHandler;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.dto.StoredObject;
+import ma.tahasouhailmanna.module1.service.ImageVariantService;
+import ma.tahasouhailmanna.module1.service.MinioObjectCache;
+import ma.tahasouhailmanna.module1.service.MinioObjectCache.CachedObject;
+import ma.tahasouhailmanna.module1.service.MinioService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MinioController.class)
+@Import({GlobalExceptionHandler.class, MinioProperties.class})
+class MinioControllerTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+    private static final ZonedDateTime MODIFIED = ZonedDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MinioService minioService;
+
+    @MockBean
+    private MinioObjectCache objectCache;
+
+    @MockBean
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = Files.write(directory.resolve("cached"), CONTENT);
+        when(objectCache.get("products/1/a.png")).thenReturn(Optional.of(
+                new CachedObject("e1", CONTENT.length, "image/png", MODIFIED, file)));
+        when(objectCache.get("big.bin")).thenReturn(Optional.of(
+                new CachedObject("e2", CONTENT.length, "application/octet-stream", MODIFIED, null)));
+    }
+
+    @Test
+    void download_servesCachedFileWithValidators() throws Exception {
+        mockMvc.perform(get("/api/minio/products/1/a.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"e1\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=30"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length));
+        verify(minioService, never()).getObject(any(), any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void download_notModifiedWhenEtagMatches() throws Exception {
+        mockMvc.perform(get("/api/minio/products/1/a.png").header(HttpHeaders.IF_NONE_MATCH, "\"e1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void download_servesSingleRange() throws Exception {
+        mockMvc.perform(get("/api/minio/products/1/a.png").header(HttpHeaders.RANGE, "bytes=5-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("56789"))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-9/20"));
+        mockMvc.perform(get("/api/minio/products/1/a.png").header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("hij"));
+        // If-Range périmé : objet complet
+        mockMvc.perform(get("/api/minio/products/1/a.png")
+                        .header(HttpHeaders.RANGE, "bytes=5-9")
+                        .header(HttpHeaders.IF_RANGE, "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+        mockMvc.perform(get("/api/minio/products/1/a.png").header(HttpHeaders.RANGE, "bytes=50-60"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */20"));
+    }
+
+    @Test
+    void download_streamsUncachedObjectFromMinio() throws Exception {
+        when(minioService.getObject("big.bin", "e2", 10, 5))
+                .thenReturn(new ByteArrayInputStream(CONTENT, 10, 5));
+
+        mockMvc.perform(get("/api/minio/big.bin").header(HttpHeaders.RANGE, "bytes=10-14"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("abcde"));
+    }
+
+    @Test
+    void download_notFound() throws Exception {
+        when(objectCache.get("missing.png")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/minio/missing.png"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message", is("Object missing.png not found")));
+    }
+
+    @Test
+    void uploadContent_createdThenDeduplicated() throws Exception {
+        String sha256 = "a".repeat(64);
+        when(minioService.uploadContent(startsWith("image/png"), any(), isNull()))
+                .thenReturn(new StoredObject("http://minio/products/content/" + sha256, sha256, false));
+        when(minioService.uploadContent(startsWith("image/png"), any(), eq(sha256)))
+                .thenReturn(new StoredObject("http://minio/products/content/" + sha256, sha256, true));
+
+        mockMvc.perform(put("/api/minio/content").contentType("image/png").content(CONTENT))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.sha256", is(sha256)))
+                .andExpect(jsonPath("$.deduplicated", is(false)));
+        mockMvc.perform(put("/api/minio/content").contentType("image/png").header("X-Content-SHA256", sha256)
+                        .content(CONTENT))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deduplicated", is(true)));
+    }
+
+    @Test
+    void uploadContent_requestsImageVariants() throws Exception {
+        String sha256 = "d".repeat(64);
+        when(minioService.uploadContent(any(), any(), isNull()))
+                .thenReturn(new StoredObject("http://minio/products/content/" + sha256, sha256, false));
+        when(minioService.objectName("http://minio/products/content/" + sha256))
+                .thenReturn(Optional.of("content/" + sha256));
+
+        mockMvc.perform(put("/api/minio/content").contentType("image/png").content(CONTENT))
+                .andExpect(status().isCreated());
+        verify(imageVariantService).requestVariants(eq("content/" + sha256), startsWith("image/png"));
+    }
+
+    @Test
+    void findContent_notFound() throws Exception {
+        when(minioService.findContent("b".repeat(64))).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/minio/content").param("sha256", "b".repeat(64)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void download_contentAddressedObjectIsImmutable() throws Exception {
+        Path file = Files.write(directory.resolve("content"), CONTENT);
+        when(objectCache.get("content/" + "c".repeat(64))).thenReturn(Optional.of(
+                new CachedObject("e3", CONTENT.length, "image/png", MODIFIED, file)));
+
+        mockMvc.perform(get("/api/minio/content/" + "c".repeat(64)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+    }
+}
@@ -1,46 +1,133 @@
 package ma.tahasouhailmanna.module1.controller;
 
 import ma.tahasouhailmanna.module1.advice.GlobalExceptionHandler;
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.cache.ProductResponseCache;
 import ma.tahasouhailmanna.module1.criteria.ProductCriteria;
+import ma.tahasouhailmanna.module1.dto.CursorPage;
+import ma.tahasouhailmanna.module1.dto.PresignedUpload;
+import ma.tahasouhailmanna.module1.dto.ProductBatchItemResult;
+import ma.tahasouhailmanna.module1.dto.ProductBatchResponse;
+import ma.tahasouhailmanna.module1.dto.ProductChanges;
 import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductPage;
+import ma.tahasouhailmanna.module1.dto.ProductVersion;
+import ma.tahasouhailmanna.module1.dto.StockReservation;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.InsufficientStockException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import ma.tahasouhailmanna.module1.service.ProductBatchService;
+import ma.tahasouhailmanna.module1.service.ProductImageService;
+import ma.tahasouhailmanna.module1.service.ProductLookupService;
+import ma.tahasouhailmanna.module1.service.ProductStockService;
 import ma.tahasouhailmanna.module1.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.ServletException;
 
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProductController.class)
-@Import(GlobalExceptionHandler.class)
+@Import({GlobalExceptionHandler.class, ProductControllerTest.ResponseCacheConfig.class})
 class ProductControllerTest {
 
+    @TestConfiguration
+    static class ResponseCacheConfig {
+        @Bean
+        ConcurrentMapCache productResponses() {
+            return new ConcurrentMapCache(ProductResponseCache.CACHE);
+        }
+
+        @Bean
+        ProductResponseCache productResponseCache(ConcurrentMapCache productResponses, ObjectMapper objectMapper) {
+            ProductCacheKeys keys = mock(ProductCacheKeys.class);
+            when(keys.all()).thenReturn("all");
+            when(keys.catalogVersion()).thenReturn("0.7");
+            when(keys.productResponse(anyLong())).thenAnswer(inv -> "id:" + inv.getArgument(0));
+            return new ProductResponseCache(productResponses, keys, objectMapper, 256);
+        }
+    }
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductBatchService productBatchService;
+
+    @MockBean
+    private ProductLookupService productLookupService;
+
+    @MockBean
+    private ProductStockService productStockService;
+
+    @MockBean
+    private ProductImageService productImageService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ConcurrentMapCache productResponses;
+
+    @BeforeEach
+    void clearResponseCache() {
+        productResponses.clear();
+    }
+
     private ProductDTO sampleDto(Long id) {
-        return new ProductDTO(id, "P1", 100.0, "desc", "img", 5, "cat");
+        ProductDTO dto = new ProductDTO();
+        dto.setId(id);
+        dto.setName("P1");
+        dto.setPrice(100.0);
+        dto.setDescription("desc");
+        dto.setCategory("cat");
+        dto.setVersion(3L);
+        dto.setUpdatedAt(Instant.parse("2026-01-15T08:00:00Z"));
+        return dto;
     }
 
     @Test
@@ -53,6 +140,113 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$[0].id", is(1)));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAllProducts_ndjsonStream() throws Exception {
+        doAnswer(inv -> {
+            Consumer<ProductDTO> consumer = inv.getArgument(0);
+            consumer.accept(sampleDto(1L));
+            consumer.accept(sampleDto(2L));
+            return null;
+        }).when(productService).streamAllProducts(any());
+
+        MvcResult result = mockMvc.perform(get("/api/products").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2L, objectMapper.readValue(lines[1], ProductDTO.class).getId());
+    }
+
+    @Test
+    void getProductsByIds_returnsLookupInRequestOrder() throws Exception {
+        when(productLookupService.getProducts(List.of(2L, 1L))).thenReturn(List.of(sampleDto(2L), sampleDto(1L)));
+
+        mockMvc.perform(get("/api/products").param("ids", "2,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(2)))
+                .andExpect(jsonPath("$[1].id", is(1)));
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    void lookupProducts_acceptsIdsInBody() throws Exception {
+        when(productLookupService.getProducts(List.of(3L))).thenReturn(List.of(sampleDto(3L)));
+
+        mockMvc.perform(post("/api/products/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(3)));
+    }
+
+    @Test
+    void reserveStock_conflictWhenInsufficient() throws Exception {
+        when(productStockService.reserve(1L, 3)).thenReturn(new StockReservation(1L, 3));
+        when(productStockService.reserve(2L, 3)).thenThrow(new InsufficientStockException("Insufficient stock"));
+
+        mockMvc.perform(post("/api/products/{id}/reserve", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"quantity\":3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.quantity", is(3)));
+        mockMvc.perform(post("/api/products/{id}/reserve", 2)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"quantity\":3}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message", is("Insufficient stock")));
+        mockMvc.perform(post("/api/products/{id}/reserve", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"quantity\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void image_presignAttachAndRedirect() throws Exception {
+        when(productImageService.presignUpload(eq(1L), any())).thenReturn(new PresignedUpload(
+                "http://minio/products", Map.of("key", "products/1/abc"), "products/1/abc", Instant.EPOCH));
+        when(productImageService.attachImage(1L, "products/1/abc")).thenReturn(sampleDto(1L));
+        when(productImageService.imageUrl(1L, null)).thenReturn("http://minio/products/products/1/abc?X-Amz-Signature=s");
+        when(productImageService.imageUrl(1L, "thumb"))
+                .thenReturn("http://minio/products/products/1/abc_100x100.jpg?X-Amz-Signature=s");
+        when(productImageService.variantUrls(1L))
+                .thenReturn(Map.of("thumb", "http://minio/products/products/1/abc_100x100.jpg?X-Amz-Signature=s"));
+
+        mockMvc.perform(post("/api/products/{id}/image/upload", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"contentType\":\"image/png\",\"size\":2048}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.objectName", is("products/1/abc")))
+                .andExpect(jsonPath("$.fields.key", is("products/1/abc")));
+        mockMvc.perform(post("/api/products/{id}/image/upload", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"contentType\":\"image/png\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/api/products/{id}/image", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"objectName\":\"products/1/abc\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)));
+        mockMvc.perform(get("/api/products/{id}/image", 1))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "http://minio/products/products/1/abc?X-Amz-Signature=s"));
+        mockMvc.perform(get("/api/products/{id}/image", 1).param("variant", "thumb"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location",
+                        "http://minio/products/products/1/abc_100x100.jpg?X-Amz-Signature=s"));
+        mockMvc.perform(get("/api/products/{id}/image/variants", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.thumb", is("http://minio/products/products/1/abc_100x100.jpg?X-Amz-Signature=s")));
+    }
+
     @Test
     void getProductById_found() throws Exception {
         when(productService.getProductById(1L)).thenReturn(Optional.of(sampleDto(1L)));
@@ -62,6 +256,36 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.id", is(1)));
     }
 
+    @Test
+    void getChanges_returnsUpsertsTombstonesAndToken() throws Exception {
+        when(productService.getChanges("abc", 50)).thenReturn(
+                new ProductChanges(List.of(sampleDto(1L)), List.of(7L), "def", false));
+
+        mockMvc.perform(get("/api/products/changes").param("since", "abc").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserts[0].id", is(1)))
+                .andExpect(jsonPath("$.deleted[0]", is(7)))
+                .andExpect(jsonPath("$.nextToken", is("def")))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+    }
+
+    @Test
+    void getChanges_invalidToken_badRequest() throws Exception {
+        when(productService.getChanges(eq("bad"), any())).thenThrow(new BadRequestException("Invalid change token"));
+
+        mockMvc.perform(get("/api/products/changes").param("since", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Invalid change token")));
+    }
+
+    @Test
+    void unexpectedIllegalArgument_isNotReportedAsClientError() {
+        when(productService.getChanges(isNull(), any())).thenThrow(new IllegalArgumentException("internal detail"));
+
+        // Aucun handler : erreur serveur, le message interne n'est pas renvoyé comme un 400
+        assertThrows(ServletException.class, () -> mockMvc.perform(get("/api/products/changes")));
+    }
+
     @Test
     void getProductById_notFound() throws Exception {
         when(productService.getProductById(99L)).thenReturn(Optional.empty());
@@ -70,6 +294,108 @@ class ProductControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getProductById_servedFromResponseCache_withEtag() throws Exception {
+        when(productService.getProductById(1L)).thenReturn(Optional.of(sampleDto(1L)));
+
+        String etag = mockMvc.perform(get("/api/products/{id}", 1))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Vary", org.hamcrest.Matchers.containsString("Accept-Encoding")))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/products/{id}", 1).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(jsonPath("$.name", is("P1")));
+        mockMvc.perform(get("/api/products/{id}", 1).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(productService, times(1)).getProductById(1L);
+    }
+
+    @Test
+    void getAllProducts_gzipWhenAccepted() throws Exception {
+        List<ProductDTO> products = LongStream.rangeClosed(1, 20).mapToObj(this::sampleDto).toList();
+        when(productService.getAllProducts()).thenReturn(products);
+
+        byte[] plain = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+        MvcResult gzipped = mockMvc.perform(get("/api/products").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        byte[] body = gzipped.getResponse().getContentAsByteArray();
+        assertTrue(body.length < plain.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertArrayEquals(plain, in.readAllBytes());
+        }
+        // ETag faible : même validateur pour la variante gzip
+        assertEquals(gzipped.getResponse().getHeader("ETag"),
+                mockMvc.perform(get("/api/products")).andReturn().getResponse().getHeader("ETag"));
+        verify(productService, times(1)).getAllProducts();
+    }
+
+    @Test
+    void getAllProducts_notModified_withoutLoadingList() throws Exception {
+        when(productService.getAllProducts()).thenReturn(List.of(sampleDto(1L)));
+
+        String etag = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"catalog-0.7\""))
+                .andReturn().getResponse().getHeader("ETag");
+        productResponses.clear();
+        mockMvc.perform(get("/api/products").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/products").param("fields", "id").accept("application/cbor")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        verify(productService, times(1)).getAllProducts();
+        verify(productService, never()).getAllProducts(any());
+    }
+
+    @Test
+    void getProductById_conditional_comparesVersionOnly() throws Exception {
+        when(productService.getProductVersion(1L))
+                .thenReturn(Optional.of(new ProductVersion(3L, Instant.parse("2026-01-15T08:00:00Z"))));
+
+        mockMvc.perform(get("/api/products/{id}", 1).accept("application/cbor").header("If-None-Match", "W/\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"3\""));
+        mockMvc.perform(get("/api/products/{id}", 1).header("If-Modified-Since", "Thu, 15 Jan 2026 09:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(productService, never()).getProductById(any());
+    }
+
+    @Test
+    void getProductById_conditional_changedVersion_returnsBody() throws Exception {
+        when(productService.getProductVersion(1L))
+                .thenReturn(Optional.of(new ProductVersion(3L, Instant.parse("2026-01-15T08:00:00Z"))));
+        when(productService.getProductById(1L)).thenReturn(Optional.of(sampleDto(1L)));
+
+        mockMvc.perform(get("/api/products/{id}", 1).header("If-None-Match", "W/\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"3\""))
+                .andExpect(header().string("Last-Modified", "Thu, 15 Jan 2026 08:00:00 GMT"))
+                .andExpect(jsonPath("$.version", is(3)));
+    }
+
+    @Test
+    void partialUpdate_staleVersion_conflict() throws Exception {
+        when(productService.partialUpdateProduct(eq(1L), any(ProductDTO.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(ProductDTO.class, 1L));
+
+        mockMvc.perform(patch("/api/products/{id}", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\": 5.0, \"version\": 2}"))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void createProduct_ok() throws Exception {
         ProductDTO req = sampleDto(null);
@@ -90,6 +416,58 @@ class ProductControllerTest {
         verify(productService).deleteProduct(1L);
     }
 
+    @Test
+    void updateProduct_ok() throws Exception {
+        when(productService.updateProduct(eq(1L), any(ProductDTO.class))).thenReturn(sampleDto(1L));
+
+        mockMvc.perform(put("/api/products/{id}", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleDto(null))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)));
+    }
+
+    @Test
+    void partialUpdateProduct_notFound() throws Exception {
+        when(productService.partialUpdateProduct(eq(99L), any(ProductDTO.class)))
+                .thenThrow(new ResourceNotFoundException("Product 99 not found"));
+
+        mockMvc.perform(patch("/api/products/{id}", 99)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\": 12.5}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void createProducts_batch_ok() throws Exception {
+        when(productBatchService.createAll(anyList())).thenReturn(new ProductBatchResponse(List.of(
+                new ProductBatchItemResult(0, 10L, ProductBatchItemResult.Status.CREATED, null, sampleDto(10L)),
+                new ProductBatchItemResult(1, null, ProductBatchItemResult.Status.INVALID, "name must not be blank", null))));
+
+        mockMvc.perform(post("/api/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(sampleDto(null), new ProductDTO()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded", is(1)))
+                .andExpect(jsonPath("$.failed", is(1)))
+                .andExpect(jsonPath("$.items[0].status", is("CREATED")))
+                .andExpect(jsonPath("$.items[1].status", is("INVALID")));
+    }
+
+    @Test
+    void deleteProducts_batch_ok() throws Exception {
+        when(productBatchService.deleteAll(List.of(1L, 2L))).thenReturn(new ProductBatchResponse(List.of(
+                new ProductBatchItemResult(0, 1L, ProductBatchItemResult.Status.DELETED, null, null),
+                new ProductBatchItemResult(1, 2L, ProductBatchItemResult.Status.NOT_FOUND, "Product 2 not found", null))));
+
+        mockMvc.perform(delete("/api/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[1].status", is("NOT_FOUND")));
+    }
+
     @Test
     void search_generic_ok() throws Exception {
         when(productService.search(any(ProductCriteria.class), any()))
@@ -104,6 +482,93 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.content[0].id", is(1)));
     }
 
+    @Test
+    void search_text_ok() throws Exception {
+        when(productService.textSearch(eq("lampe"), any(ProductCriteria.class), any()))
+                .thenReturn(new PageImpl<>(List.of(sampleDto(1L)), PageRequest.of(0, 20), 1));
+
+        mockMvc.perform(get("/api/products/search/text")
+                        .param("q", "lampe")
+                        .param("category", "home"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id", is(1)));
+    }
+
+    @Test
+    void search_fields_returnsOnlyRequestedFields() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("price", 100.0);
+        when(productService.search(any(ProductCriteria.class), any(), eq(List.of("id", "price"))))
+                .thenReturn(new PageImpl<>(List.of(row), PageRequest.of(0, 20), 1));
+
+        mockMvc.perform(get("/api/products/search")
+                        .param("category", "cat")
+                        .param("fields", "id, price,id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id", is(1)))
+                .andExpect(jsonPath("$.content[0].price", is(100.0)))
+                .andExpect(jsonPath("$.content[0].name").doesNotExist());
+    }
+
+    @Test
+    void getAll_unknownField_badRequest() throws Exception {
+        mockMvc.perform(get("/api/products").param("fields", "id,quantity"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", org.hamcrest.Matchers.containsString("quantity")));
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void getById_cbor_whenAccepted() throws Exception {
+        when(productService.getProductById(1L)).thenReturn(Optional.of(sampleDto(1L)));
+
+        MvcResult result = mockMvc.perform(get("/api/products/1").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn();
+
+        ProductDTO decoded = new CBORMapper().findAndRegisterModules()
+                .readValue(result.getResponse().getContentAsByteArray(), ProductDTO.class);
+        assertEquals("P1", decoded.getName());
+        assertEquals(100.0, decoded.getPrice());
+    }
+
+    @Test
+    void search_smile_whenAccepted_jsonByDefault() throws Exception {
+        when(productService.search(any(ProductCriteria.class), any()))
+                .thenReturn(new ProductPage(new PageImpl<>(List.of(sampleDto(1L), sampleDto(2L)), PageRequest.of(0, 20), 2)));
+
+        MvcResult result = mockMvc.perform(get("/api/products/search").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn();
+        ProductPage decoded = new ObjectMapper(new SmileFactory()).findAndRegisterModules()
+                .readValue(result.getResponse().getContentAsByteArray(), ProductPage.class);
+        assertEquals(2, decoded.getTotalElements());
+        assertEquals(2L, decoded.getContent().get(1).getId());
+
+        mockMvc.perform(get("/api/products/search").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void search_cursor_ok() throws Exception {
+        when(productService.searchByCursor(any(ProductCriteria.class), eq(""), eq(1), any()))
+                .thenReturn(new CursorPage<>(List.of(sampleDto(1L)), 1, true, "abc"));
+
+        mockMvc.perform(get("/api/products/search")
+                        .param("category", "cat")
+                        .param("cursor", "")
+                        .param("size", "1")
+                        .param("sort", "price,asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.nextCursor", is("abc")));
+    }
+
     @Test
     void search_byName_ok() throws Exception {
         when(productService.findByName("p")).thenReturn(List.of(sampleDto(1L)));
@@ -0,0 +1,106 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'écriture / lecture et taille des réponses produit en JSON, CBOR et Smile :
+ * un ProductDTO seul et une ProductPage de 1000 éléments. Les tailles sont affichées avant la mesure des temps.
+ * <p>
+ * Lancement : {@code java -cp target/classes:target/test-classes:<classpath de test>
+ * ma.tahasouhailmanna.module1.dto.ProductFormatBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductFormatBenchmark {
+
+    @Param({"1", "1000"})
+    public int products;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private Object value;
+    private Class<?> type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        mapper = mapper(format);
+        List<ProductDTO> catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            catalog.add(new ProductDTO((long) i, "Product " + i, "Description of product " + i, "home", 10.0 + i));
+        }
+        if (products == 1) {
+            value = catalog.get(0);
+            type = ProductDTO.class;
+        } else {
+            value = new ProductPage(new PageImpl<>(catalog, PageRequest.of(0, products), 10 * products));
+            type = ProductPage.class;
+        }
+        encoded = mapper.writeValueAsBytes(value);
+    }
+
+    private static ObjectMapper mapper(String format) {
+        // Même construction que WebConfig
+        return switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+    }
+
+    @Benchmark
+    public byte[] encode() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return mapper.readValue(encoded, type);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int size : new int[]{1, 1000}) {
+            StringBuilder line = new StringBuilder(String.format("%5d products:", size));
+            for (String format : new String[]{"json", "cbor", "smile"}) {
+                ProductFormatBenchmark b = new ProductFormatBenchmark();
+                b.products = size;
+                b.format = format;
+                b.setUp();
+                line.append(String.format(" %s %8d B", format, b.encoded.length));
+            }
+            System.out.println(line);
+        }
+        new Runner(new OptionsBuilder().include(ProductFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,36 @@
+package ma.tahasouhailmanna.module1.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPageTest {
+
+    @Test
+    void roundTripsThroughRedisSerializer() {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(7L);
+        dto.setName("Phone");
+        dto.setPrice(99.0);
+        Page<ProductDTO> page = new PageImpl<>(List.of(dto),
+                PageRequest.of(2, 1, Sort.by(Sort.Order.desc("price"), Sort.Order.asc("id"))), 10);
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+
+        Object restored = serializer.deserialize(serializer.serialize(new ProductPage(page)));
+
+        ProductPage copy = assertInstanceOf(ProductPage.class, restored);
+        assertEquals(10, copy.getTotalElements());
+        assertEquals(2, copy.getNumber());
+        assertEquals(1, copy.getSize());
+        assertEquals(page.getSort(), copy.getSort());
+        assertEquals("Phone", copy.getContent().get(0).getName());
+        assertEquals(7L, copy.getContent().get(0).getId());
+    }
+}
@@ -0,0 +1,147 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.config.ProductChangesProperties;
+import ma.tahasouhailmanna.module1.criteria.ProductCriteria;
+import ma.tahasouhailmanna.module1.mapper.ProductMapperImpl;
+import ma.tahasouhailmanna.module1.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Forme du SQL émis pour chaque combinaison de filtres « chaude » : chaque prédicat doit rester
+ * sous la forme couverte par un index de V4/V5 (colonne nue, ou exactement lower(colonne)).
+ * Un échec ici signifie qu'une requête ne peut plus utiliser son index en production.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ma.tahasouhailmanna.module1.repository.SqlCapture")
+@ActiveProfiles("test")
+@Import({ProductService.class, ProductMapperImpl.class, ProductChangesProperties.class})
+class ProductQueryShapeTest {
+
+    // Prédicats couverts par un index (alias de table quelconque ; seul le côté colonne compte)
+    private static final String CATEGORY_EQ = "lower\\(\\w+\\.category\\)=";          // product_category_*_idx
+    private static final String PRICE_MIN = "\\w+\\.price>=\\?";                          // product_category_price_idx / product_price_idx
+    private static final String PRICE_MAX = "\\w+\\.price<=\\?";
+    private static final String PRICE_BETWEEN = "\\w+\\.price between \\? and \\?";       // product_price_idx
+    private static final String QUANTITY_MIN = "\\w+\\.quantity>=\\?";                    // product_category_quantity_idx / product_quantity_idx
+    private static final String QUANTITY_MAX = "\\w+\\.quantity<=\\?";
+    private static final String NAME_LIKE = "lower\\(\\w+\\.name\\) like ";            // product_name_trgm_idx
+    private static final String DESCRIPTION_LIKE = "lower\\(\\w+\\.description\\) like "; // product_description_trgm_idx
+
+    // Formes qui empêchent l'usage des index ci-dessus
+    private static final List<Pattern> FORBIDDEN = List.of(
+            Pattern.compile("upper\\("),
+            Pattern.compile("lower\\(lower\\("),
+            Pattern.compile("cast\\(\\w+\\.(price|quantity)"),
+            Pattern.compile("coalesce\\(\\w+\\.(category|price|quantity)"));
+
+    @Autowired
+    private ProductService productService;
+
+    @MockBean
+    private ProductCacheKeys productCacheKeys;
+
+    @BeforeEach
+    void setUp() {
+        SqlCapture.clear();
+    }
+
+    static Stream<Arguments> hotQueries() {
+        return Stream.of(
+                Arguments.of("category", search(c -> c.setCategory("Home")), List.of(CATEGORY_EQ)),
+                Arguments.of("category + price range", search(c -> {
+                    c.setCategory("Home");
+                    c.setMinPrice(10.0);
+                    c.setMaxPrice(50.0);
+                }), List.of(CATEGORY_EQ, PRICE_MIN, PRICE_MAX)),
+                Arguments.of("category + min quantity", search(c -> {
+                    c.setCategory("Home");
+                    c.setMinQuantity(1);
+                }), List.of(CATEGORY_EQ, QUANTITY_MIN)),
+                Arguments.of("price range", search(c -> {
+                    c.setMinPrice(10.0);
+                    c.setMaxPrice(50.0);
+                }), List.of(PRICE_MIN, PRICE_MAX)),
+                Arguments.of("quantity range", search(c -> {
+                    c.setMinQuantity(1);
+                    c.setMaxQuantity(5);
+                }), List.of(QUANTITY_MIN, QUANTITY_MAX)),
+                Arguments.of("name + category", search(c -> {
+                    c.setName("Lamp");
+                    c.setCategory("Home");
+                }), List.of(NAME_LIKE, CATEGORY_EQ)),
+                Arguments.of("description", search(c -> c.setDescription("led")), List.of(DESCRIPTION_LIKE)),
+                Arguments.of("category, sparse fields", (Consumer<ProductService>) s -> {
+                    ProductCriteria criteria = new ProductCriteria();
+                    criteria.setCategory("Home");
+                    s.search(criteria, PageRequest.of(0, 20), List.of("id", "price"));
+                }, List.of(CATEGORY_EQ)),
+                Arguments.of("findByCategory", (Consumer<ProductService>) s -> s.findByCategory("Home"),
+                        List.of(CATEGORY_EQ)),
+                Arguments.of("findByPriceBetween", (Consumer<ProductService>) s -> s.findByPriceBetween(10.0, 50.0),
+                        List.of(PRICE_BETWEEN)),
+                Arguments.of("findByName", (Consumer<ProductService>) s -> s.findByName("Lamp"), List.of(NAME_LIKE)),
+                Arguments.of("findByDescription", (Consumer<ProductService>) s -> s.findByDescription("led"),
+                        List.of(DESCRIPTION_LIKE)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    void hotQuery_keepsIndexFriendlyShape(String label, Consumer<ProductService> call, List<String> required) {
+        call.accept(productService);
+
+        List<String> selects = SqlCapture.statements().stream()
+                .filter(sql -> sql.startsWith("select") && sql.contains(" from product "))
+                .toList();
+        assertFalse(selects.isEmpty(), "no product query captured for " + label);
+        for (String sql : selects) {
+            String where = sql.substring(sql.indexOf(" where ") + 1);
+            for (String predicate : required) {
+                assertTrue(Pattern.compile(predicate).matcher(where).find(),
+                        label + ": expected predicate /" + predicate + "/ in: " + sql);
+            }
+            for (Pattern forbidden : FORBIDDEN) {
+                assertFalse(forbidden.matcher(where).find(),
+                        label + ": non-indexable form /" + forbidden + "/ in: " + sql);
+            }
+        }
+    }
+
+    @Test
+    void sparseFields_selectOnlyRequestedColumns() {
+        ProductCriteria criteria = new ProductCriteria();
+        criteria.setCategory("Home");
+        productService.search(criteria, PageRequest.of(0, 20), List.of("id", "price"));
+
+        String sql = SqlCapture.statements().stream()
+                .filter(s -> s.startsWith("select") && s.contains(" from product "))
+                .findFirst().orElseThrow();
+        String projection = sql.substring("select".length(), sql.indexOf(" from product "));
+        assertTrue(Pattern.compile("^\\s*\\w+\\.id,\\s*\\w+\\.price\\s*$").matcher(projection).find(), sql);
+    }
+
+    private static Consumer<ProductService> search(Consumer<ProductCriteria> filters) {
+        return service -> {
+            ProductCriteria criteria = new ProductCriteria();
+            filters.accept(criteria);
+            service.search(criteria, PageRequest.of(0, 20));
+        };
+    }
+}
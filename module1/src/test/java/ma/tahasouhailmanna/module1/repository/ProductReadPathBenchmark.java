@@ -0,0 +1,121 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.mapper.ProductMapper;
+import ma.tahasouhailmanna.module1.mapper.ProductMapperImpl;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.model.ProductTombstone;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecture entité + MapStruct (ancien chemin) vs projection JPQL en DTO, sur H2 en mémoire :
+ * une catégorie (200 lignes) et la liste complète (2 000 lignes). Le profileur GC donne
+ * l'allocation par requête (gc.alloc.rate.norm, octets/op).
+ * <p>
+ * Lancement : {@code java -cp target/classes:target/test-classes:<classpath de test>
+ * ma.tahasouhailmanna.module1.repository.ProductReadPathBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProductReadPathBenchmark {
+    private static final int ROWS = 2_000;
+    private static final int CATEGORIES = 10;
+
+    private SessionFactory sessionFactory;
+    private ProductMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Product.class)
+                // Déclare product_change_seq, valeur par défaut de product.change_seq
+                .addAnnotatedClass(ProductTombstone.class)
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:read-path;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.connection.username", "sa")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .buildSessionFactory();
+        mapper = new ProductMapperImpl();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < ROWS; i++) {
+                session.persist(Product.builder()
+                        .name("Product " + i)
+                        .description("Description of product " + i + " with a few more words")
+                        .category("cat" + (i % CATEGORIES))
+                        .price(10.0 + i)
+                        .quantity(i)
+                        .imageUrl("https://cdn.example.com/products/" + i + ".jpg")
+                        .sku("SKU-" + i)
+                        .available(true)
+                        .discount(0.1)
+                        .build());
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public List<ProductDTO> categoryEntityMapper() {
+        return sessionFactory.fromTransaction(session -> session
+                .createQuery("select p from Product p where lower(p.category) = lower(:category)", Product.class)
+                .setParameter("category", "CAT3")
+                .getResultList().stream().map(mapper::toDto).toList());
+    }
+
+    @Benchmark
+    public List<ProductDTO> categoryProjection() {
+        return sessionFactory.fromTransaction(session -> session
+                .createQuery(ProductRepository.SELECT_DTO + " where lower(p.category) = lower(:category)", ProductDTO.class)
+                .setParameter("category", "CAT3")
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<ProductDTO> allEntityMapper() {
+        return sessionFactory.fromTransaction(session -> session
+                .createQuery("select p from Product p", Product.class)
+                .getResultList().stream().map(mapper::toDto).toList());
+    }
+
+    @Benchmark
+    public List<ProductDTO> allProjection() {
+        return sessionFactory.fromTransaction(session -> session
+                .createQuery(ProductRepository.SELECT_DTO, ProductDTO.class)
+                .getResultList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductReadPathBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
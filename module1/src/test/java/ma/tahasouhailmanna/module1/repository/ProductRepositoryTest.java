@@ -0,0 +1,260 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import jakarta.persistence.EntityManager;
+import ma.tahasouhailmanna.module1.criteria.ProductCursor;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductVersion;
+import ma.tahasouhailmanna.module1.model.Product;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private static List<Product> products(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Product.builder().name("P" + i).price(10.0 + i).category("cat").quantity(i).build())
+                .toList();
+    }
+
+    @Test
+    void saveAll_batchesInserts() {
+        int count = 120;
+
+        productRepository.saveAll(products(count));
+        entityManager.flush();
+
+        assertEquals(count, statistics.getEntityInsertCount());
+        // 3 appels à la séquence (blocs de 50) + au plus 3 lots d'INSERT (batch_size 50),
+        // contre 120 INSERT + 120 lectures d'id avec IDENTITY
+        assertTrue(statistics.getPrepareStatementCount() <= 6,
+                "prepared statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void saveAll_allocatesDistinctIdsFromSequence() {
+        List<Product> saved = productRepository.saveAll(products(60));
+        entityManager.flush();
+
+        assertEquals(60, saved.stream().map(Product::getId).distinct().count());
+        assertTrue(saved.stream().allMatch(p -> p.getId() != null));
+    }
+
+    private List<Long> walk(Sort.Order order, int pageSize) {
+        List<Long> seen = new ArrayList<>();
+        ProductCursor after = null;
+        while (true) {
+            List<Product> page = productRepository.findByKeyset(Specification.where(null), order, after, pageSize);
+            page.forEach(p -> seen.add(p.getId()));
+            if (page.size() < pageSize) {
+                return seen;
+            }
+            after = ProductCursor.decode(ProductCursor.after(page.get(page.size() - 1), order).encode());
+        }
+    }
+
+    @Test
+    void findByKeyset_walksAllRowsWithDuplicatesAndNulls() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            Double price = i % 5 == 0 ? null : (double) (i % 4);
+            products.add(Product.builder().name("P" + i).price(price).quantity(i).build());
+        }
+        productRepository.saveAll(products);
+        entityManager.flush();
+
+        for (Sort.Order order : List.of(Sort.Order.asc("price"), Sort.Order.desc("price"), Sort.Order.desc("id"))) {
+            List<Long> ids = walk(order, 4);
+            assertEquals(23, ids.size(), order.toString());
+            assertEquals(23, ids.stream().distinct().count(), order.toString());
+        }
+
+        List<Long> byPrice = walk(Sort.Order.asc("price"), 5);
+        List<Product> ordered = byPrice.stream().map(id -> productRepository.findById(id).orElseThrow()).toList();
+        // NULLS LAST : les prix nuls terminent le parcours
+        assertNull(ordered.get(ordered.size() - 1).getPrice());
+        assertNotNull(ordered.get(0).getPrice());
+    }
+
+    @Test
+    void streamAll_readsEveryRowWithoutManagedEntities() {
+        productRepository.saveAll(products(30));
+        entityManager.flush();
+        entityManager.clear();
+
+        try (Stream<ProductDTO> stream = productRepository.streamAll(10)) {
+            List<ProductDTO> read = stream.toList();
+            assertEquals(30, read.size());
+            assertEquals("P0", read.get(0).getName());
+        }
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findDtos_projectsColumnsWithoutLoadingEntities() {
+        productRepository.saveAll(products(30));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        Specification<Product> cheap = (root, query, cb) -> cb.lessThan(root.get("price"), 25.0);
+        Page<ProductDTO> page = productRepository.findDtos(cheap, PageRequest.of(1, 10, Sort.by(Sort.Order.desc("price"))));
+
+        assertEquals(15, page.getTotalElements());
+        assertEquals(5, page.getContent().size());
+        assertEquals(14.0, page.getContent().get(0).getPrice());
+        assertEquals("P4", page.getContent().get(0).getName());
+        assertEquals(0, statistics.getEntityLoadCount());
+        // Dernière page incomplète : le total s'en déduit, pas de COUNT
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findFields_selectsOnlyRequestedColumns() {
+        productRepository.saveAll(products(30));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        Specification<Product> cheap = (root, query, cb) -> cb.lessThan(root.get("price"), 25.0);
+        Page<Map<String, Object>> page = productRepository.findFields(cheap,
+                PageRequest.of(0, 10, Sort.by(Sort.Order.desc("price"))), List.of("price", "name"));
+
+        assertEquals(15, page.getTotalElements());
+        assertEquals(10, page.getContent().size());
+        assertEquals(List.of("price", "name"), List.copyOf(page.getContent().get(0).keySet()));
+        assertEquals(24.0, page.getContent().get(0).get("price"));
+        assertEquals("P14", page.getContent().get(0).get("name"));
+        assertEquals(0, statistics.getEntityLoadCount());
+        // Page pleine : requête de contenu + COUNT
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void version_incrementsOnUpdate_andIsReadWithoutTheRow() {
+        Product product = productRepository.saveAndFlush(Product.builder().name("A").price(1.0).build());
+        assertEquals(0L, product.getVersion());
+        assertNotNull(product.getUpdatedAt());
+
+        product.setPrice(2.0);
+        productRepository.saveAndFlush(product);
+        entityManager.clear();
+        statistics.clear();
+
+        ProductVersion version = productRepository.findVersionById(product.getId()).orElseThrow();
+        assertEquals(1L, version.version());
+        assertEquals("W/\"1\"", version.etag());
+        assertFalse(version.updatedAt().isBefore(product.getUpdatedAt()));
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(productRepository.findVersionById(-1L).isEmpty());
+    }
+
+    @Test
+    void textMatch_ranksByRelevanceAndComposesWithFilters() {
+        productRepository.saveAll(List.of(
+                Product.builder().name("Lampe de bureau").description("LED").category("home").build(),
+                Product.builder().name("Lampe").description("Simple").category("home").build(),
+                Product.builder().name("Applique").description("Lampe murale").category("home").build(),
+                Product.builder().name("Petite lampe").description(null).category("home").build(),
+                Product.builder().name("Lampe frontale").description("Randonnée").category("outdoor").build(),
+                Product.builder().name("Chaise").description("Bois").category("home").build()));
+        entityManager.flush();
+
+        Specification<Product> home = (root, query, cb) -> cb.equal(cb.lower(root.get("category")), "home");
+        Page<Product> page = productRepository.findAll(
+                home.and(ProductSearchFunctions.textMatch("LAMPE", true)), PageRequest.of(0, 10));
+
+        // Nom exact, puis préfixe, puis nom contenant le terme, puis description seule
+        assertEquals(List.of("Lampe", "Lampe de bureau", "Petite lampe", "Applique"),
+                page.getContent().stream().map(Product::getName).toList());
+        assertEquals(4, page.getTotalElements());
+    }
+
+    @Test
+    void textMatch_treatsWildcardsLiterally() {
+        productRepository.saveAll(List.of(
+                Product.builder().name("Remise 50% Lampe").description("promo_ete").category("home").build(),
+                Product.builder().name("Lampe 500W").description("Halogène").category("home").build(),
+                Product.builder().name("Chaise").description("Bois").category("home").build()));
+        entityManager.flush();
+
+        assertEquals(List.of("Remise 50% Lampe"), names(ProductSearchFunctions.textMatch("%", true)));
+        assertEquals(List.of("Remise 50% Lampe"), names(ProductSearchFunctions.textMatch("50%", true)));
+        assertEquals(List.of("Remise 50% Lampe"), names(ProductSearchFunctions.textMatch("_", false)));
+        assertEquals(List.of(), names(ProductSearchFunctions.textMatch("\\", false)));
+    }
+
+    private List<String> names(Specification<Product> spec) {
+        return productRepository.findAll(spec, PageRequest.of(0, 10)).getContent().stream()
+                .map(Product::getName).toList();
+    }
+
+    @Test
+    void containingIgnoreCase_escapesWildcardsAndIgnoresCase() {
+        productRepository.saveAll(List.of(
+                Product.builder().name("Remise 50% Lampe").category("Home").build(),
+                Product.builder().name("Lampe 500W").category("HOME").build()));
+        entityManager.flush();
+
+        assertEquals(List.of("Remise 50% Lampe"),
+                productRepository.findByNameContainingIgnoreCase("50%").stream().map(ProductDTO::getName).toList());
+        assertEquals(2, productRepository.findByNameContainingIgnoreCase("LAMPE").size());
+        assertEquals(2, productRepository.findByCategoryIgnoreCase("home").size());
+    }
+
+    @Test
+    void changeSeq_reassignedOnTouch_andReadInOrder() {
+        Product a = productRepository.save(Product.builder().name("A").price(1.0).build());
+        Product b = productRepository.save(Product.builder().name("B").price(2.0).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Object[]> inserted = productRepository.findChangedSince(0, Limit.unlimited());
+        assertEquals(List.of("A", "B"), inserted.stream().map(r -> ((ProductDTO) r[1]).getName()).toList());
+        long afterInsert = (Long) inserted.get(1)[0];
+
+        assertEquals(1, productRepository.touchChanges(List.of(a.getId())));
+        statistics.clear();
+
+        List<Object[]> changed = productRepository.findChangedSince(afterInsert, Limit.of(10));
+        assertEquals(1, changed.size());
+        assertEquals(a.getId(), ((ProductDTO) changed.get(0)[1]).getId());
+        assertTrue((Long) changed.get(0)[0] > afterInsert);
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(List.of(b.getId(), a.getId()), productRepository.findChangedSince(0, Limit.of(10)).stream()
+                .map(r -> ((ProductDTO) r[1]).getId()).toList());
+    }
+}
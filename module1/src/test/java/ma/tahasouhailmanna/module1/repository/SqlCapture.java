@@ -0,0 +1,27 @@
+package ma.tahasouhailmanna.module1.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Enregistre le SQL émis par Hibernate (propriété hibernate.session_factory.statement_inspector).
+ */
+public class SqlCapture implements StatementInspector {
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    static void clear() {
+        STATEMENTS.clear();
+    }
+
+    static List<String> statements() {
+        return List.copyOf(STATEMENTS);
+    }
+}
@@ -0,0 +1,122 @@
+package ma.tahasouhailmanna.module1.service;
+
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.config.CsvProcessingProperties;
+import ma.tahasouhailmanna.module1.dto.CsvIngestionReport;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Import par lots sans transaction de test : chaque lot est validé par le service, comme en production.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({CsvIngestionService.class, CsvProcessingProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CsvIngestionServiceTest {
+
+    private static final String HEADER = "name,price,description,imageUrl,quantity,category,sku,available,discount";
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private CsvIngestionService csvIngestionService;
+    @Autowired
+    private CsvProcessingProperties properties;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @MockBean
+    private ProductCacheKeys productCacheKeys;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBaseDir(dir.toString());
+        properties.setInputDir("in");
+        properties.setOutputDir("out");
+        properties.setBatchSize(2);
+        // Valeur par défaut posée par V3__product_id_sequence.sql, absente du schéma généré par Hibernate
+        jdbcTemplate.execute("ALTER TABLE product ALTER COLUMN id SET DEFAULT nextval('product_seq')");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        // Lignes insérées en SQL sans version : suppression directe plutôt que par entité
+        jdbcTemplate.update("DELETE FROM product");
+    }
+
+    private void write(String fileName, String... lines) throws IOException {
+        Path input = dir.resolve("in");
+        Files.createDirectories(input);
+        Files.write(input.resolve(fileName), List.of(lines), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void ingestFile_insertsValidRowsAndRejectsBadOnes() throws IOException {
+        write("products.csv", HEADER,
+                "Lamp,10.5,Desk lamp,,3.0,Home,SKU1,True,0.1",
+                "Chair,25,\"Oak chair,",
+                "two lines\",,7.0,Home,SKU2,False,",
+                "Broken,abc,,,1,Home,SKU3,True,",
+                "Table,99,,,1,Home,SKU4,1,",
+                "Stool,5,\"never closed,,1,Home,SKU5,True,");
+
+        CsvIngestionReport report = csvIngestionService.ingestFile("products.csv");
+
+        assertEquals(5, report.getRowsRead());
+        assertEquals(3, report.getRowsInserted());
+        assertEquals(2, report.getRowsRejected());
+        assertEquals(List.of("Chair", "Lamp", "Table"),
+                productRepository.findAll().stream().map(Product::getName).sorted().toList());
+        Product chair = productRepository.findAll().stream()
+                .filter(p -> p.getName().equals("Chair")).findFirst().orElseThrow();
+        assertEquals("Oak chair,\ntwo lines", chair.getDescription());
+        assertEquals(7, chair.getQuantity());
+
+        String rejects = Files.readString(Path.of(report.getRejectedFile()), StandardCharsets.UTF_8);
+        assertTrue(rejects.contains("Broken,abc,,,1,Home,SKU3,True,,\"invalid price: abc\""));
+        assertTrue(rejects.contains("\"unterminated quoted field\""));
+        verify(productCacheKeys).catalogChanged();
+    }
+
+    @Test
+    void ingestFile_keepsCommittedChunksAndEvictsWhenALaterChunkFails() throws IOException {
+        // Nom plus long que la colonne : le deuxième lot échoue en base, après validation du premier
+        write("products.csv", HEADER,
+                "First,1,,,1,Home,,,",
+                "Second,2,,,1,Home,,,",
+                "Third,3,,,1,Home,,,",
+                "x".repeat(300) + ",4,,,1,Home,,,");
+
+        assertThrows(DataAccessException.class, () -> csvIngestionService.ingestFile("products.csv"));
+
+        assertEquals(List.of("First", "Second"),
+                productRepository.findAll().stream().map(Product::getName).sorted().toList());
+        // Lots déjà validés visibles : les listes en cache sont invalidées malgré l'échec
+        verify(productCacheKeys).catalogChanged();
+    }
+}
@@ -0,0 +1,233 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import ma.tahasouhailmanna.module1.config.ImageVariantProperties;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.model.ImageVariant;
+import ma.tahasouhailmanna.module1.repository.ImageVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ImageVariantServiceTest {
+
+    private static final String ORIGINAL = "content/" + "a".repeat(64);
+
+    private S3StandIn s3;
+    private ImageVariantRepository variantRepository;
+    private ImageVariantProperties properties;
+    private MeterRegistry meterRegistry;
+    private MinioService minioService;
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3 = new S3StandIn(true);
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setUrl(s3.endpoint());
+        minioProperties.setBucket("products");
+        minioService = new MinioService(
+                MinioClient.builder().endpoint(s3.endpoint()).credentials("access", "secret").region("us-east-1").build(),
+                new MinioMultipartClient(MinioAsyncClient.builder().endpoint(s3.endpoint())
+                        .credentials("access", "secret").region("us-east-1").build()),
+                minioProperties);
+        variantRepository = mock(ImageVariantRepository.class);
+        properties = new ImageVariantProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (imageVariantService != null) {
+            imageVariantService.shutdown();
+        }
+        s3.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ImageVariantService service() {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(meterRegistry);
+        imageVariantService = new ImageVariantService(minioService, variantRepository, properties, provider);
+        return imageVariantService;
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, 0, 0xFFFF0000);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private BufferedImage stored(String name) throws IOException {
+        byte[] data = s3.object("products", name);
+        assertNotNull(data, name + " not stored");
+        return ImageIO.read(new ByteArrayInputStream(data));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void process_storesResizedJpegsNextToOriginal() throws Exception {
+        s3.put("products", ORIGINAL, "image/png", png(1200, 600));
+
+        service().process(ORIGINAL);
+
+        BufferedImage thumb = stored(ORIGINAL + "_100x100.jpg");
+        assertEquals(100, thumb.getWidth());
+        assertEquals(50, thumb.getHeight());
+        assertEquals(320, stored(ORIGINAL + "_320x320.jpg").getWidth());
+        assertEquals(400, stored(ORIGINAL + "_800x800.jpg").getHeight());
+
+        ArgumentCaptor<List<ImageVariant>> saved = ArgumentCaptor.forClass(List.class);
+        verify(variantRepository).saveAll(saved.capture());
+        assertEquals(List.of("thumb", "small", "medium"), saved.getValue().stream().map(ImageVariant::getName).toList());
+        assertEquals(ORIGINAL + "_100x100.jpg", saved.getValue().get(0).getObjectName());
+        assertEquals(1, meterRegistry.get("image.variants.processing").tag("variant", "thumb").timer().count());
+    }
+
+    @Test
+    void process_neverUpscalesAndSkipsRecordedVariants() throws Exception {
+        s3.put("products", ORIGINAL, "image/png", png(200, 100));
+        when(variantRepository.findByOriginalObject(ORIGINAL)).thenReturn(List.of(
+                ImageVariant.builder().originalObject(ORIGINAL).name("thumb").build(),
+                ImageVariant.builder().originalObject(ORIGINAL).name("small").build()));
+
+        service().process(ORIGINAL);
+
+        assertNull(s3.object("products", ORIGINAL + "_100x100.jpg"));
+        assertNull(s3.object("products", ORIGINAL + "_320x320.jpg"));
+        BufferedImage medium = stored(ORIGINAL + "_800x800.jpg");
+        assertEquals(200, medium.getWidth());
+        assertEquals(100, medium.getHeight());
+    }
+
+    @Test
+    void process_ignoresUndecodableObjects() throws Exception {
+        s3.put("products", ORIGINAL, "image/png", "not an image".getBytes());
+
+        service().process(ORIGINAL);
+
+        verify(variantRepository, never()).saveAll(any());
+        assertNull(s3.object("products", ORIGINAL + "_100x100.jpg"));
+    }
+
+    @Test
+    void requestVariants_skipsImagesWhenQueueIsFull() throws Exception {
+        properties.setWorkers(1);
+        properties.setQueueCapacity(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        when(variantRepository.findByOriginalObject(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            finished.countDown();
+            return List.of();
+        });
+        ImageVariantService service = service();
+
+        service.requestVariants("products/1/a", "image/png");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        service.requestVariants("products/1/b", "image/png");
+        assertEquals(1.0, meterRegistry.get("image.variants.queue").gauge().value());
+
+        // File pleine : ni attente ni exception, l'image est simplement comptée comme non mise en file
+        service.requestVariants("products/1/c", "image/png");
+        assertEquals(1.0, meterRegistry.get("image.variants.rejected").counter().count());
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        verify(variantRepository, never()).findByOriginalObject("products/1/c");
+    }
+
+    @Test
+    void requestVariants_ignoresNonImages() {
+        ImageVariantService service = service();
+
+        service.requestVariants("report.pdf", "application/pdf");
+        service.requestVariants("unknown", null);
+
+        verifyNoInteractions(variantRepository);
+    }
+
+    @Test
+    void requestVariants_neverWaitsAndRequestsEachImageOncePerInterval() throws Exception {
+        properties.setWorkers(1);
+        properties.setQueueCapacity(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch secondProcessed = new CountDownLatch(1);
+        when(variantRepository.findByOriginalObject("products/1/a")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(variantRepository.findByOriginalObject("products/1/b")).thenAnswer(invocation -> {
+            secondProcessed.countDown();
+            return List.of();
+        });
+        ImageVariantService service = service();
+
+        service.requestVariants("products/1/a");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // Aucune place : ignorée sans attente ni exception, et pas retenue comme déjà demandée
+        service.requestVariants("products/1/b");
+        assertEquals(1, secondProcessed.getCount());
+        release.countDown();
+
+        // Place rendue en fin de tâche : une lecture suivante la redemande
+        for (int i = 0; i < 250 && secondProcessed.getCount() > 0; i++) {
+            service.requestVariants("products/1/b");
+            secondProcessed.await(20, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(0, secondProcessed.getCount());
+
+        // Déjà demandée dans l'intervalle : pas remise en file
+        service.requestVariants("products/1/a");
+        verify(variantRepository, after(200).times(1)).findByOriginalObject("products/1/a");
+    }
+
+    @Test
+    void deleteVariants_removesObjectsAndRows() throws Exception {
+        s3.put("products", ORIGINAL + "_100x100.jpg", "image/jpeg", new byte[]{1});
+        when(variantRepository.findByOriginalObject(ORIGINAL)).thenReturn(List.of(ImageVariant.builder()
+                .originalObject(ORIGINAL).name("thumb").objectName(ORIGINAL + "_100x100.jpg").build()));
+
+        service().deleteVariants(ORIGINAL);
+
+        assertNull(s3.object("products", ORIGINAL + "_100x100.jpg"));
+        verify(variantRepository).deleteByOriginalObject(ORIGINAL);
+    }
+
+    @Test
+    void checkVariant_rejectsNamesOutsideSpecs() {
+        ImageVariantService service = service();
+
+        service.checkVariant("thumb");
+        assertThrows(BadRequestException.class, () -> service.checkVariant("huge"));
+        assertEquals(3, service.variantCount());
+    }
+}
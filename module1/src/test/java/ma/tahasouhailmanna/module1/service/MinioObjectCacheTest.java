@@ -0,0 +1,153 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.service.MinioObjectCache.CachedObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinioObjectCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private S3StandIn s3;
+    private MinioProperties properties;
+    private MinioObjectCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3 = new S3StandIn(true);
+        properties = new MinioProperties();
+        properties.setUrl(s3.endpoint());
+        properties.setBucket("products");
+        properties.setCacheDir(directory.toString());
+        properties.setCacheMaxSize(DataSize.ofBytes(250));
+        properties.setCacheMaxObjectSize(DataSize.ofBytes(200));
+        properties.setCacheRevalidateAfter(Duration.ofHours(1));
+        MinioService minioService = new MinioService(
+                MinioClient.builder().endpoint(s3.endpoint()).credentials("access", "secret").region("us-east-1").build(),
+                new MinioMultipartClient(MinioAsyncClient.builder().endpoint(s3.endpoint())
+                        .credentials("access", "secret").region("us-east-1").build()),
+                properties);
+        cache = new MinioObjectCache(minioService, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+        s3.close();
+    }
+
+    private static byte[] bytes(int size, int value) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    @Test
+    void get_downloadsOnceThenServesFromDisk() throws Exception {
+        s3.put("products", "a.png", "image/png", bytes(100, 1));
+
+        CachedObject first = cache.get("a.png").orElseThrow();
+        CachedObject second = cache.get("a.png").orElseThrow();
+
+        assertSame(first, second);
+        assertArrayEquals(bytes(100, 1), Files.readAllBytes(first.file()));
+        assertEquals("image/png", first.contentType());
+        assertEquals(100, cache.size());
+        assertEquals(1, s3.requests("HEAD"));
+        assertEquals(1, s3.requests("GET"));
+    }
+
+    @Test
+    void get_revalidatesStaleEntryAgainstEtag() throws Exception {
+        properties.setCacheRevalidateAfter(Duration.ZERO);
+        s3.put("products", "a.png", "image/png", bytes(100, 1));
+        CachedObject first = cache.get("a.png").orElseThrow();
+
+        // Inchangé : HEAD seulement, même fichier
+        assertSame(first, cache.get("a.png").orElseThrow());
+        assertEquals(2, s3.requests("HEAD"));
+        assertEquals(1, s3.requests("GET"));
+
+        // Modifié : nouvelle version téléchargée, ancien fichier supprimé
+        s3.put("products", "a.png", "image/png", bytes(100, 2));
+        CachedObject changed = cache.get("a.png").orElseThrow();
+        assertNotEquals(first.etag(), changed.etag());
+        assertArrayEquals(bytes(100, 2), Files.readAllBytes(changed.file()));
+        assertFalse(Files.exists(first.file()));
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsedBeyondMaxSize() throws Exception {
+        s3.put("products", "a.png", "image/png", bytes(100, 1));
+        s3.put("products", "b.png", "image/png", bytes(100, 2));
+        s3.put("products", "c.png", "image/png", bytes(100, 3));
+        CachedObject a = cache.get("a.png").orElseThrow();
+        CachedObject b = cache.get("b.png").orElseThrow();
+        cache.get("a.png");
+
+        CachedObject c = cache.get("c.png").orElseThrow();
+
+        assertTrue(Files.exists(a.file()));
+        assertFalse(Files.exists(b.file()));
+        assertTrue(Files.exists(c.file()));
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    void get_describesLargeObjectsWithoutCachingThem() throws Exception {
+        s3.put("products", "big.bin", "application/octet-stream", bytes(201, 1));
+
+        CachedObject big = cache.get("big.bin").orElseThrow();
+
+        assertNull(big.file());
+        assertEquals(201, big.size());
+        assertEquals(0, cache.size());
+        assertEquals(0, s3.requests("GET"));
+        assertTrue(cache.get("missing.png").isEmpty());
+    }
+
+    @Test
+    void get_cachesEmptyObjectWithoutGet() throws Exception {
+        s3.put("products", "empty.txt", "text/plain", new byte[0]);
+
+        CachedObject empty = cache.get("empty.txt").orElseThrow();
+
+        assertEquals(0, empty.size());
+        assertEquals(0, Files.size(empty.file()));
+        assertEquals(0, s3.requests("GET"));
+    }
+
+    @Test
+    void instances_keepSeparateDirectoriesAndRemoveAbandonedOnes() throws Exception {
+        s3.put("products", "a.png", "image/png", bytes(100, 1));
+        CachedObject a = cache.get("a.png").orElseThrow();
+        Path abandoned = Files.createDirectory(directory.resolve("instance-crashed"));
+        Files.createFile(abandoned.resolve(".lock"));
+        Files.write(abandoned.resolve("stale"), bytes(10, 1));
+
+        MinioObjectCache other = new MinioObjectCache(null, properties);
+        other.close();
+
+        // Le répertoire d'une instance vivante survit au démarrage d'une autre ; celui d'une instance arrêtée non
+        assertTrue(Files.exists(a.file()));
+        assertFalse(Files.exists(abandoned));
+        cache.close();
+        assertFalse(Files.exists(a.file().getParent()));
+    }
+}
@@ -0,0 +1,248 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.StatObjectResponse;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.dto.PresignedUpload;
+import ma.tahasouhailmanna.module1.dto.StoredObject;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinioServiceTest {
+
+    private static final int PART_SIZE = 1024 * 1024;
+
+    private S3StandIn s3;
+    private MinioService minioService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3 = new S3StandIn(true);
+        MinioProperties properties = new MinioProperties();
+        properties.setUrl(s3.endpoint());
+        properties.setAccessKey("access");
+        properties.setSecretKey("secret");
+        properties.setBucket("products");
+        properties.setPartSize(DataSize.ofBytes(PART_SIZE));
+        properties.setUploadConcurrency(2);
+        minioService = new MinioService(
+                MinioClient.builder().endpoint(s3.endpoint()).credentials("access", "secret").region("us-east-1").build(),
+                new MinioMultipartClient(MinioAsyncClient.builder().endpoint(s3.endpoint())
+                        .credentials("access", "secret").region("us-east-1").build()),
+                properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3.close();
+    }
+
+    private static byte[] payload(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void uploadStream_sendsBoundedParallelParts() throws Exception {
+        byte[] data = payload(5 * PART_SIZE + 123);
+
+        String url = minioService.uploadStream("big.bin", "application/octet-stream", new ByteArrayInputStream(data));
+
+        assertEquals(s3.endpoint() + "/products/big.bin", url);
+        assertArrayEquals(data, s3.object("products", "big.bin"));
+        assertEquals(6, s3.partRequests());
+        assertTrue(s3.maxConcurrentParts() <= 2, "concurrent parts: " + s3.maxConcurrentParts());
+    }
+
+    @Test
+    void uploadStream_smallerThanAPartIsASinglePut() throws Exception {
+        byte[] data = payload(1000);
+
+        minioService.uploadStream("small.bin", null, new ByteArrayInputStream(data));
+
+        assertArrayEquals(data, s3.object("products", "small.bin"));
+        assertEquals(0, s3.partRequests());
+    }
+
+    @Test
+    void uploadStream_exactMultipleOfPartSize() throws Exception {
+        byte[] data = payload(2 * PART_SIZE);
+
+        minioService.uploadStream("even.bin", null, new ByteArrayInputStream(data));
+
+        assertArrayEquals(data, s3.object("products", "even.bin"));
+        assertEquals(2, s3.partRequests());
+    }
+
+    @Test
+    void uploadStream_abortsMultipartUploadWhenBodyFails() {
+        InputStream failing = new InputStream() {
+            private int read;
+
+            @Override
+            public int read() throws IOException {
+                if (++read > 2 * PART_SIZE + 10) {
+                    throw new IOException("client disconnected");
+                }
+                return 1;
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> minioService.uploadStream("broken.bin", null, failing));
+        assertEquals("client disconnected", e.getMessage());
+        assertEquals(1, s3.aborted());
+        assertNull(s3.object("products", "broken.bin"));
+    }
+
+    @Test
+    void presignUpload_policyPinsObjectTypeAndSize() throws Exception {
+        PresignedUpload upload = minioService.presignUpload("products/1/abc", "image/png", 2048);
+
+        assertEquals(s3.endpoint() + "/products", upload.getUrl());
+        assertEquals("products/1/abc", upload.getFields().get("key"));
+        assertEquals("image/png", upload.getFields().get("Content-Type"));
+        assertNotNull(upload.getFields().get("x-amz-signature"));
+        String policy = new String(Base64.getDecoder().decode(upload.getFields().get("policy")), StandardCharsets.UTF_8);
+        assertTrue(policy.contains("[\"eq\",\"$key\",\"products/1/abc\"]"), policy);
+        assertTrue(policy.contains("[\"eq\",\"$Content-Type\",\"image/png\"]"), policy);
+        assertTrue(policy.contains("[\"content-length-range\",2048,2048]"), policy);
+    }
+
+    @Test
+    void downloadUrl_isPresignedOnceThenReused() {
+        String url = minioService.downloadUrl("products/1/abc");
+
+        assertTrue(url.startsWith(s3.endpoint() + "/products/products/1/abc?"), url);
+        assertTrue(url.contains("X-Amz-Expires=3600"), url);
+        assertTrue(url.contains("X-Amz-Signature="), url);
+        assertSame(url, minioService.downloadUrl("products/1/abc"));
+        assertNotEquals(url, minioService.downloadUrl("products/1/def"));
+    }
+
+    @Test
+    void statObject_emptyWhenMissing() throws Exception {
+        minioService.uploadStream("products/1/abc", "image/png", new ByteArrayInputStream(payload(100)));
+
+        StatObjectResponse stat = minioService.statObject("products/1/abc").orElseThrow();
+        assertEquals(100, stat.size());
+        assertEquals("image/png", stat.contentType());
+        assertTrue(minioService.statObject("products/1/missing").isEmpty());
+    }
+
+    @Test
+    void objectName_reversesObjectUrl() {
+        assertEquals(Optional.of("products/1/abc"), minioService.objectName(minioService.objectUrl("products/1/abc")));
+        assertTrue(minioService.objectName("https://cdn.example.com/a.png").isEmpty());
+        assertTrue(minioService.objectName(null).isEmpty());
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    @Test
+    void uploadFile_storesUnderContentHashAndSkipsDuplicates() throws Exception {
+        byte[] data = payload(1000);
+
+        StoredObject first = minioService.uploadFile(new MockMultipartFile("file", "a.png", "image/png", data));
+        StoredObject second = minioService.uploadFile(new MockMultipartFile("file", "b.png", "image/png", data));
+
+        assertEquals(s3.endpoint() + "/products/content/" + sha256(data), first.getUrl());
+        assertFalse(first.isDeduplicated());
+        assertEquals(first.getUrl(), second.getUrl());
+        assertTrue(second.isDeduplicated());
+        assertEquals(1, s3.requests("PUT"));
+        assertArrayEquals(data, s3.object("products", "content/" + sha256(data)));
+    }
+
+    @Test
+    void uploadContent_smallBodyHashedThenPutOnce() throws Exception {
+        byte[] data = payload(1000);
+
+        StoredObject first = minioService.uploadContent("image/png", new ByteArrayInputStream(data), null);
+        StoredObject second = minioService.uploadContent("image/png", new ByteArrayInputStream(data), null);
+
+        assertEquals(sha256(data), first.getSha256());
+        assertFalse(first.isDeduplicated());
+        assertTrue(second.isDeduplicated());
+        assertEquals(1, s3.requests("PUT"));
+        assertTrue(minioService.findContent(sha256(data).toUpperCase()).isPresent());
+    }
+
+    @Test
+    void uploadContent_largeBodyCopiedFromStagingOrAbortedWhenKnown() throws Exception {
+        byte[] data = payload(3 * PART_SIZE + 5);
+
+        StoredObject first = minioService.uploadContent("image/png", new ByteArrayInputStream(data), null);
+
+        assertFalse(first.isDeduplicated());
+        assertArrayEquals(data, s3.object("products", "content/" + sha256(data)));
+        assertEquals(1, s3.requests("DELETE"));
+        assertEquals(0, s3.aborted());
+
+        StoredObject second = minioService.uploadContent("image/png", new ByteArrayInputStream(data), null);
+
+        assertTrue(second.isDeduplicated());
+        assertEquals(first.getUrl(), second.getUrl());
+        assertEquals(1, s3.aborted());
+    }
+
+    @Test
+    void uploadContent_announcedHashSkipsOrVerifiesBody() throws Exception {
+        byte[] data = payload(1000);
+        minioService.uploadContent("image/png", new ByteArrayInputStream(data), null);
+        InputStream unread = new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("body should not be read");
+            }
+        };
+
+        assertTrue(minioService.uploadContent("image/png", unread, sha256(data)).isDeduplicated());
+        byte[] other = payload(2000);
+        assertThrows(BadRequestException.class,
+                () -> minioService.uploadContent("image/png", new ByteArrayInputStream(other), "0".repeat(64)));
+        assertThrows(BadRequestException.class,
+                () -> minioService.uploadContent("image/png", new ByteArrayInputStream(other), "not-a-hash"));
+        assertNull(s3.object("products", "content/" + sha256(other)));
+        assertTrue(minioService.findContent(sha256(other)).isEmpty());
+    }
+
+    @Test
+    void ensureStagingLifecycle_addsExpiryRuleOnceAndKeepsOtherRules() {
+        s3.lifecycle("products", "<LifecycleConfiguration><Rule><ID>archive</ID><Status>Enabled</Status>"
+                + "<Filter><Prefix>archive/</Prefix></Filter><Expiration><Days>30</Days></Expiration></Rule>"
+                + "</LifecycleConfiguration>");
+
+        minioService.ensureStagingLifecycle();
+
+        String lifecycle = s3.lifecycle("products");
+        assertTrue(lifecycle.contains("<ID>archive</ID>"), lifecycle);
+        assertTrue(lifecycle.contains("<ID>" + MinioService.STAGING_RULE + "</ID>"), lifecycle);
+        assertTrue(lifecycle.contains("<Prefix>staging/</Prefix>"), lifecycle);
+        assertTrue(lifecycle.contains("<Days>1</Days>"), lifecycle);
+
+        // Règle déjà en place : aucune réécriture
+        int puts = s3.requests("PUT");
+        minioService.ensureStagingLifecycle();
+        assertEquals(puts, s3.requests("PUT"));
+    }
+}
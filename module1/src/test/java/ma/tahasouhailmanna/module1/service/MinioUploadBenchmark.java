@@ -0,0 +1,179 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload d'un corps de requête vers un stockage compatible S3 local ({@link S3StandIn}, corps comptés puis jetés) :
+ * <ul>
+ *     <li>spooled : chemin multipart/form-data, corps copié dans un fichier temporaire
+ *     (comme StandardServletMultipartResolver), haché, puis putObject sous son SHA-256 ({@link MinioService#uploadFile}) ;</li>
+ *     <li>streaming : {@link MinioService#uploadStream}, parties lues depuis le flux et envoyées en parallèle ;</li>
+ *     <li>content : {@link MinioService#uploadContent}, même envoi que streaming, haché au passage, puis copie
+ *     côté serveur sous la clé SHA-256 : l'écart avec streaming est le coût de l'adressage par contenu.</li>
+ * </ul>
+ * Contenu différent à chaque invocation : la déduplication n'intervient pas.
+ * Le profileur GC donne l'allocation par upload (gc.alloc.rate.norm).
+ * <p>
+ * Lancement : {@code java -cp target/classes:target/test-classes:<classpath de test>
+ * ma.tahasouhailmanna.module1.service.MinioUploadBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MinioUploadBenchmark {
+
+    @Param({"64"})
+    public int megabytes;
+
+    @Param({"spooled", "streaming", "content"})
+    public String path;
+
+    private S3StandIn s3;
+    private MinioService minioService;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        s3 = new S3StandIn(false);
+        MinioProperties properties = new MinioProperties();
+        properties.setUrl(s3.endpoint());
+        properties.setBucket("products");
+        minioService = new MinioService(
+                MinioClient.builder().endpoint(s3.endpoint()).credentials("access", "secret").region("us-east-1").build(),
+                new MinioMultipartClient(MinioAsyncClient.builder().endpoint(s3.endpoint())
+                        .credentials("access", "secret").region("us-east-1").build()),
+                properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        s3.close();
+    }
+
+    @Benchmark
+    public String upload() throws Exception {
+        InputStream body = new RequestBody((long) megabytes << 20, invocation++);
+        if ("streaming".equals(path)) {
+            return minioService.uploadStream("bench.bin", "application/octet-stream", body);
+        }
+        if ("content".equals(path)) {
+            return minioService.uploadContent("application/octet-stream", body, null).getUrl();
+        }
+        Path spool = Files.createTempFile("upload", ".tmp");
+        try {
+            Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+            return minioService.uploadFile(new SpooledFile(spool)).getUrl();
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    // Corps de requête simulé : octets générés à la lecture, sans tampon de la taille de l'objet ; seed varie le contenu
+    private static final class RequestBody extends InputStream {
+        private final int seed;
+        private long remaining;
+
+        RequestBody(long size, int seed) {
+            this.remaining = size;
+            this.seed = seed;
+        }
+
+        @Override
+        public int read() {
+            return remaining-- > 0 ? (int) ((remaining + seed) & 0x7F) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, remaining);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) (remaining - i + seed);
+            }
+            remaining -= n;
+            return n;
+        }
+    }
+
+    // Fichier multipart tel que le conteneur le livre après l'avoir écrit sur disque
+    private record SpooledFile(Path path) implements MultipartFile {
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "bench.bin";
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return path.toFile().length();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(MinioUploadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,237 @@
+package ma.tahasouhailmanna.module1.service;
+
+import ma.tahasouhailmanna.module1.cache.CacheInvalidationPublisher;
+import ma.tahasouhailmanna.module1.cache.LocalCacheSpec;
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.cache.TwoLevelCacheManager;
+import ma.tahasouhailmanna.module1.config.ProductBatchProperties;
+import ma.tahasouhailmanna.module1.dto.ProductBatchItemResult;
+import ma.tahasouhailmanna.module1.dto.ProductBatchItemResult.Status;
+import ma.tahasouhailmanna.module1.dto.ProductBatchResponse;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.mapper.ProductMapperImpl;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.model.ProductTombstone;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import ma.tahasouhailmanna.module1.repository.ProductTombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Sans transaction de test : chaque lot est validé (ou annulé) par le service lui-même, comme en production.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ProductBatchService.class, ProductMapperImpl.class, ProductBatchProperties.class,
+        ProductBatchServiceTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductBatchServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        CacheInvalidationPublisher cacheInvalidationPublisher() {
+            return mock(CacheInvalidationPublisher.class);
+        }
+
+        // Deux niveaux comme en production : les invalidations groupées passent par MultiKeyCache
+        @Bean
+        CacheManager cacheManager(CacheInvalidationPublisher publisher) {
+            return new TwoLevelCacheManager(new ConcurrentMapCacheManager("product", "products", "productResponses"),
+                    Map.of(), new LocalCacheSpec(100, Duration.ofMinutes(1)), publisher, null);
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @Autowired
+    private ProductBatchService productBatchService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductTombstoneRepository tombstoneRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private ProductBatchProperties properties;
+    @Autowired
+    private CacheInvalidationPublisher publisher;
+    @MockBean
+    private ProductCacheKeys productCacheKeys;
+
+    @BeforeEach
+    void stubResponseKeys() {
+        when(productCacheKeys.productResponse(anyLong())).thenAnswer(inv -> "id:" + inv.getArgument(0));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        properties.setChunkSize(new ProductBatchProperties().getChunkSize());
+        productRepository.deleteAll();
+        tombstoneRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        clearInvocations(publisher);
+    }
+
+    private static ProductDTO dto(Long id, String name, Double price) {
+        ProductDTO d = new ProductDTO();
+        d.setId(id);
+        d.setName(name);
+        d.setPrice(price);
+        d.setCategory("cat");
+        return d;
+    }
+
+    @Test
+    void createAll_reportsPerItemResults() {
+        ProductBatchResponse response = productBatchService.createAll(List.of(
+                dto(99L, "A", 1.0), dto(null, "", 2.0), dto(null, "C", 3.0)));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(1, response.getFailed());
+        assertEquals(Status.CREATED, response.getItems().get(0).getStatus());
+        assertNotEquals(99L, response.getItems().get(0).getId());
+        assertEquals(Status.INVALID, response.getItems().get(1).getStatus());
+        assertEquals(Status.CREATED, response.getItems().get(2).getStatus());
+        assertEquals(2, productRepository.count());
+        verify(productCacheKeys).productsChanged("cat");
+    }
+
+    @Test
+    void partialUpdateAll_updatesExistingAndEvictsCache() {
+        Product saved = productRepository.save(Product.builder().name("A").price(1.0).quantity(3).build());
+        cacheManager.getCache("product").put(saved.getId(), "stale");
+        cacheManager.getCache("productResponses").put("id:" + saved.getId(), "stale");
+
+        ProductDTO patch = new ProductDTO();
+        patch.setId(saved.getId());
+        patch.setPrice(9.5);
+        ProductBatchResponse response = productBatchService.partialUpdateAll(List.of(patch, dto(-1L, "X", 1.0)));
+
+        assertEquals(Status.UPDATED, response.getItems().get(0).getStatus());
+        assertEquals(9.5, response.getItems().get(0).getProduct().getPrice());
+        assertEquals("A", response.getItems().get(0).getProduct().getName());
+        assertEquals(Status.NOT_FOUND, response.getItems().get(1).getStatus());
+        assertNull(cacheManager.getCache("product").get(saved.getId()));
+        assertNull(cacheManager.getCache("productResponses").get("id:" + saved.getId()));
+        assertEquals(3, productRepository.findById(saved.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void deleteAll_deletesExistingOnly() {
+        Product a = productRepository.save(Product.builder().name("A").price(1.0).build());
+        Product b = productRepository.save(Product.builder().name("B").price(2.0).build());
+
+        ProductBatchResponse response = productBatchService.deleteAll(List.of(a.getId(), -1L, b.getId()));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(Status.NOT_FOUND, response.getItems().get(1).getStatus());
+        assertEquals(0, productRepository.count());
+        verify(productCacheKeys).catalogChanged();
+        // Suppressions visibles dans le flux de modifications
+        assertEquals(Set.of(a.getId(), b.getId()), tombstoneRepository.findAll().stream()
+                .map(ProductTombstone::getProductId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void deleteAll_evictsTheBatchWithOneMessagePerCache() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(productRepository.save(Product.builder().name("P" + i).price(1.0).build()).getId());
+        }
+        clearInvocations(publisher);
+
+        productBatchService.deleteAll(ids);
+
+        Set<String> keys = ids.stream().map(String::valueOf).collect(Collectors.toSet());
+        verify(publisher).publishEvictAll(eq("product"), argThat(k -> Set.copyOf(k).equals(keys)));
+        verify(publisher).publishEvictAll(eq("productResponses"),
+                argThat(k -> k.size() == 3 && k.stream().allMatch(key -> keys.contains(key.substring(3)))));
+        verify(publisher, never()).publishEvict(anyString(), anyString());
+    }
+
+    @Test
+    void createAll_rejectsEmptyBatch() {
+        assertThrows(BadRequestException.class, () -> productBatchService.createAll(List.of()));
+    }
+
+    @Test
+    void createAll_keepsCommittedChunksWhenALaterChunkFails() {
+        properties.setChunkSize(2);
+
+        // Nom plus long que la colonne : l'INSERT du deuxième lot échoue, le premier est déjà validé
+        ProductBatchResponse response = productBatchService.createAll(List.of(
+                dto(null, "A", 1.0), dto(null, "B", 2.0), dto(null, "x".repeat(300), 3.0), dto(null, "D", 4.0)));
+
+        assertEquals(List.of(Status.CREATED, Status.CREATED, Status.FAILED, Status.FAILED),
+                response.getItems().stream().map(ProductBatchItemResult::getStatus).toList());
+        assertEquals(Set.of("A", "B"),
+                productRepository.findAll().stream().map(Product::getName).collect(Collectors.toSet()));
+        verify(productCacheKeys).productsChanged("cat");
+    }
+
+    @Test
+    void partialUpdateAll_evictsCommittedChunksWhenALaterChunkFails() {
+        properties.setChunkSize(2);
+        Product a = productRepository.save(Product.builder().name("A").price(1.0).category("cat").build());
+        Product b = productRepository.save(Product.builder().name("B").price(1.0).category("cat").build());
+        Product c = productRepository.save(Product.builder().name("C").price(1.0).category("cat").build());
+        for (Product p : List.of(a, b, c)) {
+            cacheManager.getCache("product").put(p.getId(), "stale");
+            cacheManager.getCache("productResponses").put("id:" + p.getId(), "stale");
+        }
+
+        ProductDTO priceA = new ProductDTO();
+        priceA.setId(a.getId());
+        priceA.setPrice(9.0);
+        ProductDTO priceB = new ProductDTO();
+        priceB.setId(b.getId());
+        priceB.setPrice(9.0);
+        ProductDTO tooLong = new ProductDTO();
+        tooLong.setId(c.getId());
+        tooLong.setName("x".repeat(300));
+        ProductBatchResponse response = productBatchService.partialUpdateAll(List.of(priceA, priceB, tooLong));
+
+        assertEquals(List.of(Status.UPDATED, Status.UPDATED, Status.FAILED),
+                response.getItems().stream().map(ProductBatchItemResult::getStatus).toList());
+        // Premier lot validé et évincé ; le lot annulé garde ses lignes et ses entrées de cache
+        assertEquals(9.0, productRepository.findById(a.getId()).orElseThrow().getPrice());
+        assertEquals(9.0, productRepository.findById(b.getId()).orElseThrow().getPrice());
+        assertEquals("C", productRepository.findById(c.getId()).orElseThrow().getName());
+        assertNull(cacheManager.getCache("product").get(a.getId()));
+        assertNull(cacheManager.getCache("productResponses").get("id:" + b.getId()));
+        assertNotNull(cacheManager.getCache("product").get(c.getId()));
+        verify(productCacheKeys).productsChanged("cat");
+    }
+}
@@ -0,0 +1,184 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.minio.StatObjectResponse;
+import ma.tahasouhailmanna.module1.config.MinioProperties;
+import ma.tahasouhailmanna.module1.dto.ImageUploadRequest;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.dto.ProductVersion;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import okhttp3.Headers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImageServiceTest {
+
+    @Mock
+    private ProductService productService;
+    @Mock
+    private MinioService minioService;
+    @Mock
+    private ImageVariantService imageVariantService;
+    @Spy
+    private MinioProperties properties = new MinioProperties();
+
+    @InjectMocks
+    private ProductImageService productImageService;
+
+    private static StatObjectResponse stat(String contentType, long size) {
+        return new StatObjectResponse(Headers.of("Content-Type", contentType, "Content-Length", String.valueOf(size),
+                "ETag", "\"e\"", "Last-Modified", "Thu, 01 Jan 2026 00:00:00 GMT"), "products", null, "products/1/abc");
+    }
+
+    @Test
+    void presignUpload_namesObjectUnderProduct() throws Exception {
+        when(productService.getProductVersion(1L)).thenReturn(Optional.of(new ProductVersion(1L, Instant.EPOCH)));
+
+        productImageService.presignUpload(1L, new ImageUploadRequest("image/png", 2048L));
+
+        verify(minioService).presignUpload(startsWith("products/1/"), eq("image/png"), eq(2048L));
+    }
+
+    @Test
+    void presignUpload_rejectsTypeSizeAndUnknownProduct() {
+        when(productService.getProductVersion(1L)).thenReturn(Optional.of(new ProductVersion(1L, Instant.EPOCH)));
+        when(productService.getProductVersion(2L)).thenReturn(Optional.empty());
+
+        assertThrows(BadRequestException.class,
+                () -> productImageService.presignUpload(1L, new ImageUploadRequest("text/html", 10L)));
+        assertThrows(BadRequestException.class,
+                () -> productImageService.presignUpload(1L, new ImageUploadRequest("image/png", 11L * 1024 * 1024)));
+        assertThrows(ResourceNotFoundException.class,
+                () -> productImageService.presignUpload(2L, new ImageUploadRequest("image/png", 10L)));
+        verifyNoInteractions(minioService);
+    }
+
+    @Test
+    void attachImage_checksUploadedObjectThenUpdatesProduct() throws Exception {
+        ProductDTO dto = new ProductDTO(1L, "P1", null, "cat", 10.0);
+        when(minioService.statObject("products/1/abc")).thenReturn(Optional.of(stat("image/png", 2048)));
+        when(minioService.objectUrl("products/1/abc")).thenReturn("http://minio/products/products/1/abc");
+        when(productService.attachImage(1L, "http://minio/products/products/1/abc")).thenReturn(dto);
+
+        assertSame(dto, productImageService.attachImage(1L, "products/1/abc"));
+        // Variantes demandées seulement une fois l'image rattachée
+        InOrder order = inOrder(productService, imageVariantService);
+        order.verify(productService).attachImage(1L, "http://minio/products/products/1/abc");
+        order.verify(imageVariantService).requestVariants("products/1/abc");
+    }
+
+    @Test
+    void attachImage_deletesReplacedImageAfterAttach() throws Exception {
+        when(productService.getImageUrl(1L)).thenReturn(Optional.of("http://minio/products/products/1/old"));
+        when(minioService.objectName("http://minio/products/products/1/old")).thenReturn(Optional.of("products/1/old"));
+        when(minioService.statObject("products/1/abc")).thenReturn(Optional.of(stat("image/png", 2048)));
+        when(minioService.objectUrl("products/1/abc")).thenReturn("http://minio/products/products/1/abc");
+
+        productImageService.attachImage(1L, "products/1/abc");
+
+        InOrder order = inOrder(productService, imageVariantService, minioService);
+        order.verify(productService).attachImage(1L, "http://minio/products/products/1/abc");
+        order.verify(imageVariantService).deleteVariants("products/1/old");
+        order.verify(minioService).removeObject("products/1/old");
+    }
+
+    @Test
+    void attachImage_keepsSharedContentAndFailedAttachImages() throws Exception {
+        when(productService.getImageUrl(1L)).thenReturn(Optional.of("http://minio/products/content/abc"));
+        when(minioService.objectName("http://minio/products/content/abc")).thenReturn(Optional.of("content/abc"));
+        when(minioService.statObject("products/1/abc")).thenReturn(Optional.of(stat("image/png", 2048)));
+        when(minioService.objectUrl("products/1/abc")).thenReturn("http://minio/products/products/1/abc");
+
+        productImageService.attachImage(1L, "products/1/abc");
+
+        verify(imageVariantService, never()).deleteVariants(anyString());
+        verify(minioService, never()).removeObject(anyString());
+    }
+
+    @Test
+    void attachImage_requestsNoVariantsWhenAttachFails() throws Exception {
+        when(minioService.statObject("products/1/abc")).thenReturn(Optional.of(stat("image/png", 2048)));
+        when(minioService.objectUrl("products/1/abc")).thenReturn("http://minio/products/products/1/abc");
+        when(productService.attachImage(1L, "http://minio/products/products/1/abc"))
+                .thenThrow(new ResourceNotFoundException("Product 1 not found"));
+
+        assertThrows(ResourceNotFoundException.class, () -> productImageService.attachImage(1L, "products/1/abc"));
+        verifyNoInteractions(imageVariantService);
+    }
+
+    @Test
+    void attachImage_rejectsForeignOrMissingObject() throws Exception {
+        when(minioService.statObject("products/1/missing")).thenReturn(Optional.empty());
+
+        assertThrows(BadRequestException.class, () -> productImageService.attachImage(1L, "products/2/abc"));
+        assertThrows(BadRequestException.class, () -> productImageService.attachImage(1L, "products/1/../2/abc"));
+        assertThrows(ResourceNotFoundException.class, () -> productImageService.attachImage(1L, "products/1/missing"));
+        verify(productService, never()).attachImage(anyLong(), anyString());
+        verifyNoInteractions(imageVariantService);
+    }
+
+    @Test
+    void imageUrl_presignsBucketObjectsAndKeepsExternalUrls() {
+        when(productService.getImageUrl(1L)).thenReturn(Optional.of("http://minio/products/products/1/abc"));
+        when(productService.getImageUrl(2L)).thenReturn(Optional.of("https://cdn.example.com/a.png"));
+        when(productService.getImageUrl(3L)).thenReturn(Optional.empty());
+        when(minioService.objectName("http://minio/products/products/1/abc")).thenReturn(Optional.of("products/1/abc"));
+        when(minioService.objectName("https://cdn.example.com/a.png")).thenReturn(Optional.empty());
+        when(minioService.downloadUrl("products/1/abc")).thenReturn("http://minio/signed");
+
+        assertEquals("http://minio/signed", productImageService.imageUrl(1L, null));
+        assertEquals("https://cdn.example.com/a.png", productImageService.imageUrl(2L, null));
+        assertThrows(ResourceNotFoundException.class, () -> productImageService.imageUrl(3L, null));
+    }
+
+    @Test
+    void imageUrl_prefersGeneratedVariantAndFallsBackToOriginal() {
+        when(productService.getImageUrl(1L)).thenReturn(Optional.of("http://minio/products/products/1/abc"));
+        when(minioService.objectName("http://minio/products/products/1/abc")).thenReturn(Optional.of("products/1/abc"));
+        when(imageVariantService.variantObject("products/1/abc", "thumb"))
+                .thenReturn(Optional.of("products/1/abc_100x100.jpg"));
+        when(imageVariantService.variantObject("products/1/abc", "medium")).thenReturn(Optional.empty());
+        when(minioService.downloadUrl("products/1/abc_100x100.jpg")).thenReturn("http://minio/thumb");
+        when(minioService.downloadUrl("products/1/abc")).thenReturn("http://minio/original");
+
+        assertEquals("http://minio/thumb", productImageService.imageUrl(1L, "thumb"));
+        assertEquals("http://minio/original", productImageService.imageUrl(1L, "medium"));
+        // Variante manquante (tâche perdue à l'arrêt) : génération redemandée
+        verify(imageVariantService).requestVariants("products/1/abc");
+    }
+
+    @Test
+    void imageUrl_rejectsUnknownVariant() {
+        doThrow(new BadRequestException("Unknown image variant: huge")).when(imageVariantService).checkVariant("huge");
+
+        assertThrows(BadRequestException.class, () -> productImageService.imageUrl(1L, "huge"));
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void variantUrls_requestsMissingVariants() {
+        when(productService.getImageUrl(1L)).thenReturn(Optional.of("http://minio/products/products/1/abc"));
+        when(minioService.objectName("http://minio/products/products/1/abc")).thenReturn(Optional.of("products/1/abc"));
+        when(imageVariantService.variantObjects("products/1/abc"))
+                .thenReturn(Map.of("thumb", "products/1/abc_100x100.jpg"));
+        when(imageVariantService.variantCount()).thenReturn(3);
+        when(minioService.downloadUrl("products/1/abc_100x100.jpg")).thenReturn("http://minio/thumb");
+
+        assertEquals(Map.of("thumb", "http://minio/thumb"), productImageService.variantUrls(1L));
+        verify(imageVariantService).requestVariants("products/1/abc");
+    }
+}
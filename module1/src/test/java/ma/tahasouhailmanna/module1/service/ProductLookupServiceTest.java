@@ -0,0 +1,112 @@
+package ma.tahasouhailmanna.module1.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import ma.tahasouhailmanna.module1.cache.CacheInvalidationPublisher;
+import ma.tahasouhailmanna.module1.cache.LocalCacheSpec;
+import ma.tahasouhailmanna.module1.cache.TwoLevelCacheManager;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import({ProductLookupService.class, ProductLookupServiceTest.Config.class})
+class ProductLookupServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        CacheManager cacheManager() {
+            return new TwoLevelCacheManager(new ConcurrentMapCacheManager("product"), Map.of(),
+                    new LocalCacheSpec(100, Duration.ofMinutes(1)), mock(CacheInvalidationPublisher.class), null);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private ProductLookupService productLookupService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache("product").clear();
+        for (int i = 0; i < 4; i++) {
+            ids.add(productRepository.save(Product.builder().name("P" + i).price(1.0 + i).build()).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getProducts_keepsRequestOrder_loadsMissesInOneQuery_andBackfills() {
+        ProductDTO cached = new ProductDTO(ids.get(2), "cached", null, null, 9.0);
+        cacheManager.getCache("product").put(ids.get(2), cached);
+
+        List<ProductDTO> result = productLookupService.getProducts(
+                List.of(ids.get(3), ids.get(2), -1L, ids.get(0), ids.get(3)));
+
+        assertEquals(List.of(ids.get(3), ids.get(2), ids.get(0)), result.stream().map(ProductDTO::getId).toList());
+        assertEquals("cached", result.get(1).getName());
+        // Un seul SELECT ... IN pour les trois ids absents du cache, sans entité chargée
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals("P0", cacheManager.getCache("product").get(ids.get(0), ProductDTO.class).getName());
+
+        statistics.clear();
+        assertEquals(3, productLookupService.getProducts(List.of(ids.get(0), ids.get(2), ids.get(3))).size());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        assertEquals(2, meterRegistry.get("product.lookup.keys").tag("result", "hit").summary().count());
+        assertEquals(4, meterRegistry.get("product.lookup.keys").tag("result", "hit").summary().totalAmount());
+        assertEquals(3, meterRegistry.get("product.lookup.keys").tag("result", "miss").summary().totalAmount());
+    }
+
+    @Test
+    void getProducts_rejectsEmptyOrOversizedRequests() {
+        assertThrows(BadRequestException.class, () -> productLookupService.getProducts(List.of()));
+        List<Long> tooMany = new ArrayList<>();
+        for (long i = 0; i <= ProductLookupService.MAX_IDS; i++) {
+            tooMany.add(i);
+        }
+        assertThrows(BadRequestException.class, () -> productLookupService.getProducts(tooMany));
+    }
+}
@@ -0,0 +1,150 @@
+package ma.tahasouhailmanna.module1.service;
+
+import ma.tahasouhailmanna.module1.cache.CacheInvalidationPublisher;
+import ma.tahasouhailmanna.module1.cache.LocalCacheSpec;
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.cache.TwoLevelCacheManager;
+import ma.tahasouhailmanna.module1.config.ProductChangesProperties;
+import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.mapper.ProductMapperImpl;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.repository.ProductChangesPurgeRepository;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import ma.tahasouhailmanna.module1.repository.ProductTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Vérifie le comportement des annotations de cache à travers le proxy Spring (N appels concurrents, une requête).
+ */
+@SpringJUnitConfig(ProductServiceCachingTest.Config.class)
+class ProductServiceCachingTest {
+
+    private static final int CALLERS = 24;
+
+    @Configuration
+    @EnableCaching
+    @Import({ProductService.class, ProductMapperImpl.class, ProductChangesProperties.class})
+    static class Config {
+        @Bean
+        ProductRepository productRepository() {
+            return mock(ProductRepository.class);
+        }
+
+        @Bean
+        ProductTombstoneRepository productTombstoneRepository() {
+            return mock(ProductTombstoneRepository.class);
+        }
+
+        @Bean
+        ProductChangesPurgeRepository productChangesPurgeRepository() {
+            return mock(ProductChangesPurgeRepository.class);
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate() {
+            return mock(JdbcTemplate.class);
+        }
+
+        @Bean
+        ProductCacheKeys productCacheKeys() {
+            ProductCacheKeys keys = mock(ProductCacheKeys.class);
+            when(keys.all()).thenReturn("all:0.0");
+            return keys;
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return new TwoLevelCacheManager(new ConcurrentMapCacheManager("product", "products"), Map.of(),
+                    new LocalCacheSpec(100, Duration.ofMinutes(1)), mock(CacheInvalidationPublisher.class), null);
+        }
+    }
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        clearInvocations(productRepository);
+    }
+
+    @Test
+    void getProductById_concurrentMissesQueryOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Product product = Product.builder().id(1L).name("P1").build();
+        when(productRepository.findById(1L)).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(product);
+        });
+
+        List<Optional<ProductDTO>> results = runConcurrently(() -> productService.getProductById(1L), release);
+
+        verify(productRepository, times(1)).findById(1L);
+        results.forEach(r -> assertEquals("P1", r.orElseThrow().getName()));
+    }
+
+    @Test
+    void getAllProducts_concurrentMissesQueryOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findAllDtos()).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(new ProductDTO(1L, "P1", null, null, null));
+        });
+
+        List<List<ProductDTO>> results = runConcurrently(() -> productService.getAllProducts(), release);
+
+        verify(productRepository, times(1)).findAllDtos();
+        results.forEach(r -> assertEquals(1, r.size()));
+    }
+
+    // Lance CALLERS appels simultanés ; la requête simulée ne rend la main qu'une fois tous les appels partis
+    private static <T> List<T> runConcurrently(Callable<T> call, CountDownLatch release) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch started = new CountDownLatch(CALLERS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(pool.submit(() -> {
+                    started.countDown();
+                    return call.call();
+                }));
+            }
+            started.await(5, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            release.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> f : futures) {
+                results.add(f.get(5, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -1,11 +1,26 @@
 package ma.tahasouhailmanna.module1.service;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import ma.tahasouhailmanna.module1.cache.ProductCacheKeys;
+import ma.tahasouhailmanna.module1.config.ProductChangesProperties;
+import ma.tahasouhailmanna.module1.criteria.ProductChangeToken;
 import ma.tahasouhailmanna.module1.criteria.ProductCriteria;
+import ma.tahasouhailmanna.module1.criteria.ProductCursor;
+import ma.tahasouhailmanna.module1.dto.CursorPage;
+import ma.tahasouhailmanna.module1.dto.ProductChanges;
 import ma.tahasouhailmanna.module1.dto.ProductDTO;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.ChangeTokenExpiredException;
 import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
 import ma.tahasouhailmanna.module1.mapper.ProductMapper;
 import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.model.ProductChangesPurge;
+import ma.tahasouhailmanna.module1.model.ProductTombstone;
+import ma.tahasouhailmanna.module1.repository.ProductChangesPurgeRepository;
 import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import ma.tahasouhailmanna.module1.repository.ProductTombstoneRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,8 +28,13 @@ import org.mockito.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +49,16 @@ class ProductServiceTest {
     private ProductRepository productRepository;
     @Mock
     private ProductMapper productMapper;
+    @Mock
+    private ProductCacheKeys productCacheKeys;
+    @Mock
+    private ProductTombstoneRepository tombstoneRepository;
+    @Mock
+    private ProductChangesPurgeRepository purgeRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Spy
+    private ProductChangesProperties changesProperties = new ProductChangesProperties();
 
     @InjectMocks
     private ProductService productService;
@@ -48,33 +78,41 @@ class ProductServiceTest {
         product.setQuantity(5);
         product.setCategory("cat");
 
-        dto = new ProductDTO(
-                1L, "P1", 100.0, "desc", "img", 5, "cat"
-        );
+        dto = dto(1L);
+    }
+
+    private static ProductDTO dto(Long id) {
+        ProductDTO d = new ProductDTO();
+        d.setId(id);
+        d.setName("P1");
+        d.setPrice(100.0);
+        d.setDescription("desc");
+        d.setCategory("cat");
+        return d;
     }
 
     @Test
     void getAllProducts_ok() {
-        when(productRepository.findAll()).thenReturn(List.of(product));
-        when(productMapper.toDTO(product)).thenReturn(dto);
+        when(productRepository.findAllDtos()).thenReturn(List.of(dto));
 
         List<ProductDTO> result = productService.getAllProducts();
 
         assertEquals(1, result.size());
-        assertEquals(1L, result.get(0).id());
-        verify(productRepository).findAll();
-        verify(productMapper).toDTO(product);
+        assertEquals(1L, result.get(0).getId());
+        verify(productRepository).findAllDtos();
+        // Projection : ni entité ni mapper sur ce chemin
+        verifyNoInteractions(productMapper);
     }
 
     @Test
     void getProductById_ok() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(productMapper.toDTO(product)).thenReturn(dto);
+        when(productMapper.toDto(product)).thenReturn(dto);
 
         Optional<ProductDTO> result = productService.getProductById(1L);
 
         assertTrue(result.isPresent());
-        assertEquals(1L, result.get().id());
+        assertEquals(1L, result.get().getId());
     }
 
     @Test
@@ -82,13 +120,13 @@ class ProductServiceTest {
         when(productMapper.toEntity(dto)).thenReturn(new Product());
         Product saved = new Product();
         saved.setId(10L);
-        when(productRepository.save(any(Product.class))).thenReturn(saved);
-        when(productMapper.toDTO(saved)).thenReturn(new ProductDTO(10L, "P1", 100.0, "desc", "img", 5, "cat"));
+        when(productRepository.saveAndFlush(any(Product.class))).thenReturn(saved);
+        when(productMapper.toDto(saved)).thenReturn(dto(10L));
 
         ProductDTO created = productService.saveProduct(dto);
 
-        assertEquals(10L, created.id());
-        verify(productRepository).save(any(Product.class));
+        assertEquals(10L, created.getId());
+        verify(productRepository).saveAndFlush(any(Product.class));
     }
 
     @Test
@@ -98,14 +136,16 @@ class ProductServiceTest {
         when(productMapper.toEntity(dto)).thenReturn(incoming);
         Product saved = new Product();
         saved.setId(1L);
-        when(productRepository.save(incoming)).thenReturn(saved);
-        when(productMapper.toDTO(saved)).thenReturn(dto);
+        when(productRepository.saveAndFlush(incoming)).thenReturn(saved);
+        when(productMapper.toDto(saved)).thenReturn(dto);
 
         ProductDTO updated = productService.updateProduct(1L, dto);
 
-        assertEquals(1L, updated.id());
+        assertEquals(1L, updated.getId());
         verify(productRepository).findById(1L);
-        verify(productRepository).save(incoming);
+        verify(productRepository).saveAndFlush(incoming);
+        verify(productRepository).touchChanges(List.of(1L));
+        verify(productCacheKeys).productsChanged("cat", null);
     }
 
     @Test
@@ -113,7 +153,7 @@ class ProductServiceTest {
         when(productRepository.findById(1L)).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class, () -> productService.updateProduct(1L, dto));
         verify(productRepository).findById(1L);
-        verify(productRepository, never()).save(any());
+        verify(productRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -121,14 +161,28 @@ class ProductServiceTest {
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
         Product saved = new Product();
         saved.setId(1L);
-        when(productRepository.save(product)).thenReturn(saved);
-        when(productMapper.toDTO(saved)).thenReturn(dto);
+        when(productRepository.saveAndFlush(product)).thenReturn(saved);
+        when(productMapper.toDto(saved)).thenReturn(dto);
 
         ProductDTO updated = productService.partialUpdateProduct(1L, dto);
 
-        assertEquals(1L, updated.id());
+        assertEquals(1L, updated.getId());
         verify(productMapper).updateEntityFromDto(eq(dto), eq(product));
-        verify(productRepository).save(product);
+        verify(productRepository).saveAndFlush(product);
+    }
+
+    @Test
+    void partialUpdateProduct_staleVersion_conflict() {
+        product.setVersion(3L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        ProductDTO patch = new ProductDTO();
+        patch.setPrice(5.0);
+        patch.setVersion(2L);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> productService.partialUpdateProduct(1L, patch));
+        verify(productMapper, never()).updateEntityFromDto(any(), any());
+        verify(productRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -141,9 +195,8 @@ class ProductServiceTest {
     @Test
     void search_ok() {
         PageRequest pr = PageRequest.of(0, 10);
-        when(productRepository.findAll(any(Specification.class), eq(pr)))
-                .thenReturn(new PageImpl<>(List.of(product), pr, 1));
-        when(productMapper.toDTO(product)).thenReturn(dto);
+        when(productRepository.findDtos(any(Specification.class), eq(pr)))
+                .thenReturn(new PageImpl<>(List.of(dto), pr, 1));
 
         ProductCriteria criteria = new ProductCriteria();
         criteria.setName("p");
@@ -151,14 +204,166 @@ class ProductServiceTest {
         Page<ProductDTO> page = productService.search(criteria, pr);
 
         assertEquals(1, page.getTotalElements());
-        assertEquals(1L, page.getContent().get(0).id());
-        verify(productRepository).findAll(any(Specification.class), eq(pr));
+        assertEquals(1L, page.getContent().get(0).getId());
+        verify(productRepository).findDtos(any(Specification.class), eq(pr));
+    }
+
+    @Test
+    void deleteProduct_invalidatesOnlyItsCategory() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        productService.deleteProduct(1L);
+
+        verify(productRepository).delete(product);
+        verify(tombstoneRepository).save(argThat(t -> t.getProductId().equals(1L)));
+        verify(productCacheKeys).productsChanged("cat");
+        verify(productCacheKeys, never()).catalogChanged();
+    }
+
+    @Test
+    void deleteProduct_missingIsNoop() {
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        productService.deleteProduct(1L);
+
+        verify(productRepository, never()).delete(any(Product.class));
+        verifyNoInteractions(productCacheKeys);
+    }
+
+    @Test
+    void getChanges_mergesWritesAndDeletesInPositionOrder() {
+        Instant old = Instant.now().minusSeconds(60);
+        ProductDTO first = dto(1L);
+        first.setUpdatedAt(old);
+        ProductDTO second = dto(3L);
+        second.setUpdatedAt(old);
+        when(productRepository.findChangedSince(eq(10L), any()))
+                .thenReturn(List.of(new Object[]{11L, first}, new Object[]{14L, second}));
+        when(tombstoneRepository.findByChangeSeqGreaterThanOrderByChangeSeq(eq(10L), any()))
+                .thenReturn(List.of(new ProductTombstone(12L, 2L, old), new ProductTombstone(15L, 4L, old)));
+
+        ProductChanges changes = productService.getChanges(ProductChangeToken.encode(10), 3);
+
+        assertEquals(List.of(1L, 3L), changes.getUpserts().stream().map(ProductDTO::getId).toList());
+        assertEquals(List.of(2L), changes.getDeleted());
+        assertEquals(14L, ProductChangeToken.decode(changes.getNextToken()));
+        assertTrue(changes.isHasMore());
+    }
+
+    @Test
+    void getChanges_stopsAtWritesNewerThanSettleDelay() {
+        ProductDTO settled = dto(1L);
+        settled.setUpdatedAt(Instant.now().minusSeconds(60));
+        ProductDTO recent = dto(2L);
+        recent.setUpdatedAt(Instant.now());
+        when(productRepository.findChangedSince(eq(0L), any()))
+                .thenReturn(List.of(new Object[]{1L, settled}, new Object[]{2L, recent}));
+        when(tombstoneRepository.findByChangeSeqGreaterThanOrderByChangeSeq(eq(0L), any()))
+                .thenReturn(List.of(new ProductTombstone(3L, 9L, Instant.now().minusSeconds(60))));
+
+        ProductChanges changes = productService.getChanges(null, null);
+
+        // La suppression (position 3) attend elle aussi : le jeton ne dépasse pas la position 2
+        assertEquals(List.of(1L), changes.getUpserts().stream().map(ProductDTO::getId).toList());
+        assertTrue(changes.getDeleted().isEmpty());
+        assertEquals(1L, ProductChangeToken.decode(changes.getNextToken()));
+        assertFalse(changes.isHasMore());
+    }
+
+    @Test
+    void getChanges_holdsBackBehindOldestOpenWriteTransaction() {
+        // Import commencé il y a 10 minutes, encore ouvert : ses positions, invisibles, peuvent précéder la 2
+        when(jdbcTemplate.queryForObject(anyString(), eq(OffsetDateTime.class)))
+                .thenReturn(OffsetDateTime.now().minusMinutes(10));
+        ProductDTO beforeImport = dto(1L);
+        beforeImport.setUpdatedAt(Instant.now().minusSeconds(3600));
+        ProductDTO duringImport = dto(2L);
+        duringImport.setUpdatedAt(Instant.now().minusSeconds(60));
+        when(productRepository.findChangedSince(eq(0L), any()))
+                .thenReturn(List.of(new Object[]{1L, beforeImport}, new Object[]{2L, duringImport}));
+
+        ProductChanges changes = productService.getChanges(null, null);
+
+        assertEquals(List.of(1L), changes.getUpserts().stream().map(ProductDTO::getId).toList());
+        assertEquals(1L, ProductChangeToken.decode(changes.getNextToken()));
+    }
+
+    @Test
+    void getChanges_rejectsTokenOlderThanPurgedTombstones() {
+        when(purgeRepository.findById(ProductChangesPurge.ID))
+                .thenReturn(Optional.of(new ProductChangesPurge(ProductChangesPurge.ID, 20L, Instant.now())));
+
+        assertThrows(ChangeTokenExpiredException.class,
+                () -> productService.getChanges(ProductChangeToken.encode(10), null));
+        assertDoesNotThrow(() -> productService.getChanges(ProductChangeToken.encode(20), null));
+        assertDoesNotThrow(() -> productService.getChanges(null, null));
+    }
+
+    @Test
+    void pruneTombstones_recordsPurgedPosition() {
+        when(tombstoneRepository.findLastChangeSeqDeletedBefore(any())).thenReturn(42L);
+        when(tombstoneRepository.deleteThrough(42L)).thenReturn(3);
+
+        assertEquals(3, productService.pruneTombstones());
+
+        verify(purgeRepository).save(argThat(p -> p.getPurgedThrough() == 42L));
+    }
+
+    @Test
+    void getChanges_rejectsInvalidToken() {
+        assertThrows(BadRequestException.class, () -> productService.getChanges("not a token", null));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void searchByCursor_returnsNextCursorWithoutCount() {
+        Product second = new Product();
+        second.setId(2L);
+        second.setPrice(150.0);
+        when(productRepository.findByKeyset(any(), eq(Sort.Order.asc("price")), isNull(), eq(2)))
+                .thenReturn(List.of(product, second));
+        when(productMapper.toDto(product)).thenReturn(dto);
+
+        CursorPage<ProductDTO> page = productService.searchByCursor(new ProductCriteria(), "", 1, Sort.by("price"));
+
+        assertTrue(page.isHasNext());
+        assertEquals(1, page.getContent().size());
+        assertEquals(Sort.Direction.ASC, ProductCursor.decode(page.getNextCursor()).getDirection());
+        assertEquals(1L, ProductCursor.decode(page.getNextCursor()).getId());
+        verify(productRepository, never()).count(any(Specification.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void searchByCursor_normalizesTextFilters() {
+        when(productRepository.findByKeyset(any(), any(), isNull(), anyInt())).thenReturn(List.of());
+        ProductCriteria criteria = new ProductCriteria();
+        criteria.setName(" Phone ");
+        criteria.setCategory("Electronics");
+
+        productService.searchByCursor(criteria, null, 10, Sort.unsorted());
+
+        ArgumentCaptor<Specification<Product>> spec = ArgumentCaptor.forClass(Specification.class);
+        verify(productRepository).findByKeyset(spec.capture(), any(), isNull(), eq(11));
+        Root<Product> root = mock(Root.class);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+        // Même forme que search() : lower(colonne) comparé à un motif déjà en minuscules
+        verify(cb).like(any(), eq("%phone%"));
+        verify(cb).equal(any(), eq("electronics"));
+    }
+
+    @Test
+    void searchByCursor_rejectsSortChange() {
+        String cursor = new ProductCursor("price", Sort.Direction.ASC, 100.0, 1L).encode();
+
+        assertThrows(BadRequestException.class,
+                () -> productService.searchByCursor(new ProductCriteria(), cursor, 10, Sort.by("name")));
     }
 
     @Test
     void findByName_ok() {
-        when(productRepository.findByNameContainingIgnoreCase("p")).thenReturn(List.of(product));
-        when(productMapper.toDTO(product)).thenReturn(dto);
+        when(productRepository.findByNameContainingIgnoreCase("p")).thenReturn(List.of(dto));
 
         List<ProductDTO> list = productService.findByName("p");
 
@@ -168,8 +373,7 @@ class ProductServiceTest {
 
     @Test
     void findByDescription_ok() {
-        when(productRepository.findByDescriptionContainingIgnoreCase("d")).thenReturn(List.of(product));
-        when(productMapper.toDTO(product)).thenReturn(dto);
+        when(productRepository.findByDescriptionContainingIgnoreCase("d")).thenReturn(List.of(dto));
 
         List<ProductDTO> list = productService.findByDescription("d");
 
@@ -179,8 +383,7 @@ class ProductServiceTest {
 
     @Test
     void findByCategory_ok() {
-        when(productRepository.findByCategoryIgnoreCase("cat")).thenReturn(List.of(product));
-        when(productMapper.toDTO(product)).thenReturn(dto);
+        when(productRepository.findByCategoryIgnoreCase("cat")).thenReturn(List.of(dto));
 
         List<ProductDTO> list = productService.findByCategory("cat");
 
@@ -190,8 +393,7 @@ class ProductServiceTest {
 
     @Test
     void findByPriceBetween_ok() {
-        when(productRepository.findByPriceBetween(10.0, 200.0)).thenReturn(List.of(product));
-        when(productMapper.toDTO(product)).thenReturn(dto);
+        when(productRepository.findByPriceBetween(10.0, 200.0)).thenReturn(List.of(dto));
 
         List<ProductDTO> list = productService.findByPriceBetween(10.0, 200.0);
 
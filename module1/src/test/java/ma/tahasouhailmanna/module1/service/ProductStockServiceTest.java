@@ -0,0 +1,141 @@
+package ma.tahasouhailmanna.module1.service;
+
+import ma.tahasouhailmanna.module1.config.ProductStockProperties;
+import ma.tahasouhailmanna.module1.dto.StockReservation;
+import ma.tahasouhailmanna.module1.exception.BadRequestException;
+import ma.tahasouhailmanna.module1.exception.InsufficientStockException;
+import ma.tahasouhailmanna.module1.exception.ResourceNotFoundException;
+import ma.tahasouhailmanna.module1.model.Product;
+import ma.tahasouhailmanna.module1.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Réservations réellement concurrentes : sans transaction de test, chaque appel valide la sienne.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ProductStockService.class, ProductStockProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductStockServiceTest {
+
+    private static final int STOCK = 100;
+    private static final int BUYERS = 16;
+    private static final int ATTEMPTS_PER_BUYER = 20;
+
+    @Autowired
+    private ProductStockService productStockService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAll();
+    }
+
+    private Long product(int quantity) {
+        return productRepository.save(Product.builder().name("Hot").price(1.0).quantity(quantity).build()).getId();
+    }
+
+    @Test
+    void reserve_concurrentBuyersNeverOversell() throws Exception {
+        assertNoOversell(productStockService);
+    }
+
+    @Test
+    void reserve_combinedConcurrentBuyersNeverOversell() throws Exception {
+        ProductStockProperties properties = new ProductStockProperties();
+        properties.setCombineReservations(true);
+        properties.setCombineStripes(4);
+
+        assertNoOversell(new ProductStockService(productRepository, transactionTemplate, properties));
+    }
+
+    private void assertNoOversell(ProductStockService service) throws Exception {
+        Long id = product(STOCK);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        try {
+            List<Future<?>> buyers = new ArrayList<>();
+            for (int b = 0; b < BUYERS; b++) {
+                buyers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_BUYER; i++) {
+                        try {
+                            reserved.addAndGet(service.reserve(id, 1).getQuantity());
+                        } catch (InsufficientStockException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> buyer : buyers) {
+                buyer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 320 tentatives pour 100 unités : exactement 100 réservées, stock à zéro, jamais négatif
+        assertEquals(STOCK, reserved.get());
+        assertEquals(BUYERS * ATTEMPTS_PER_BUYER - STOCK, rejected.get());
+        assertEquals(0, productRepository.findById(id).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void reserveAll_isAllOrNothing() {
+        Long a = product(5);
+        Long b = product(1);
+
+        InsufficientStockException e = assertThrows(InsufficientStockException.class,
+                () -> productStockService.reserveAll(List.of(new StockReservation(a, 2), new StockReservation(b, 2))));
+        assertTrue(e.getMessage().contains(String.valueOf(b)));
+        assertEquals(5, productRepository.findById(a).orElseThrow().getQuantity());
+
+        List<StockReservation> done = productStockService.reserveAll(List.of(
+                new StockReservation(b, 1), new StockReservation(a, 2), new StockReservation(a, 1)));
+        assertEquals(List.of(a, b), done.stream().map(StockReservation::getId).toList());
+        assertEquals(3, done.get(0).getQuantity());
+        assertEquals(2, productRepository.findById(a).orElseThrow().getQuantity());
+        assertEquals(0, productRepository.findById(b).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void reserveAll_rejectsOverflowingTotal() {
+        Long a = product(5);
+
+        assertThrows(BadRequestException.class, () -> productStockService.reserveAll(List.of(
+                new StockReservation(a, Integer.MAX_VALUE), new StockReservation(a, 1))));
+        assertEquals(5, productRepository.findById(a).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void reserve_unknownProductIsNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> productStockService.reserve(-1L, 1));
+        assertThrows(BadRequestException.class, () -> productStockService.reserve(product(1), 0));
+    }
+}
@@ -0,0 +1,278 @@
+package ma.tahasouhailmanna.module1.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serveur compatible S3 minimal, en mémoire, pour tests et benchmarks : PUT, copie, HEAD, GET (Range, If-Match)
+ * et DELETE d'objet, upload multipart (création, parties, finalisation, abandon), cycle de vie du bucket
+ * (configuration conservée telle quelle). Signatures non vérifiées.
+ * Sans conservation ({@code keepData = false}) les corps sont lus puis jetés, seuls les octets sont comptés ;
+ * les objets restent visibles (HEAD, copie) avec un contenu vide.
+ */
+class S3StandIn implements AutoCloseable {
+    private static final String NS = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+    private final boolean keepData;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, String> contentTypes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Map<String, String> lifecycles = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger uploadIds = new AtomicInteger();
+    private final AtomicInteger partRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentParts = new AtomicInteger();
+    private final AtomicInteger concurrentParts = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicInteger aborted = new AtomicInteger();
+
+    S3StandIn(boolean keepData) throws IOException {
+        this.keepData = keepData;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    byte[] object(String bucket, String name) {
+        return objects.get(bucket + "/" + name);
+    }
+
+    // Dépôt direct, sans passer par le client MinIO
+    void put(String bucket, String name, String contentType, byte[] data) {
+        objects.put(bucket + "/" + name, data);
+        contentTypes.put(bucket + "/" + name, contentType);
+    }
+
+    // Configuration de cycle de vie reçue (XML), null si aucune
+    String lifecycle(String bucket) {
+        return lifecycles.get(bucket);
+    }
+
+    void lifecycle(String bucket, String xml) {
+        lifecycles.put(bucket, xml);
+    }
+
+    // Requêtes reçues par méthode HTTP (HEAD, GET, ...)
+    int requests(String method) {
+        AtomicInteger count = requests.get(method);
+        return count == null ? 0 : count.get();
+    }
+
+    int partRequests() {
+        return partRequests.get();
+    }
+
+    int maxConcurrentParts() {
+        return maxConcurrentParts.get();
+    }
+
+    long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    int aborted() {
+        return aborted.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String key = exchange.getRequestURI().getPath().substring(1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            requests.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+            if (query.containsKey("lifecycle")) {
+                if ("PUT".equals(method)) {
+                    lifecycles.put(key, new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                    exchange.sendResponseHeaders(200, -1);
+                } else if (lifecycles.containsKey(key)) {
+                    xml(exchange, lifecycles.get(key));
+                } else {
+                    error(exchange, 404, "NoSuchLifecycleConfiguration", key);
+                }
+            } else if ("POST".equals(method) && query.containsKey("uploads")) {
+                String uploadId = "upload-" + uploadIds.incrementAndGet();
+                uploads.put(uploadId, new ConcurrentHashMap<>());
+                xml(exchange, "<InitiateMultipartUploadResult xmlns=\"" + NS + "\"><Bucket>" + bucket(key)
+                        + "</Bucket><Key>" + name(key) + "</Key><UploadId>" + uploadId
+                        + "</UploadId></InitiateMultipartUploadResult>");
+            } else if ("PUT".equals(method) && query.containsKey("partNumber")) {
+                partRequests.incrementAndGet();
+                maxConcurrentParts.accumulateAndGet(concurrentParts.incrementAndGet(), Math::max);
+                try {
+                    byte[] data = read(exchange.getRequestBody());
+                    uploads.get(query.get("uploadId")).put(Integer.parseInt(query.get("partNumber")), data);
+                    etag(exchange, "part-" + query.get("partNumber"));
+                } finally {
+                    concurrentParts.decrementAndGet();
+                }
+            } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+                read(exchange.getRequestBody());
+                Map<Integer, byte[]> parts = new TreeMap<>(uploads.remove(query.get("uploadId")));
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                parts.values().forEach(out::writeBytes);
+                objects.put(key, out.toByteArray());
+                xml(exchange, "<CompleteMultipartUploadResult xmlns=\"" + NS + "\"><Location>/" + key
+                        + "</Location><Bucket>" + bucket(key) + "</Bucket><Key>" + name(key)
+                        + "</Key><ETag>\"done\"</ETag></CompleteMultipartUploadResult>");
+            } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+                uploads.remove(query.get("uploadId"));
+                aborted.incrementAndGet();
+                exchange.sendResponseHeaders(204, -1);
+            } else if ("PUT".equals(method) && exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                String source = URLDecoder.decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"),
+                        StandardCharsets.UTF_8).substring(1);
+                byte[] data = objects.get(source);
+                objects.put(key, data);
+                contentTypes.put(key, exchange.getRequestHeaders().getFirst("Content-Type"));
+                xml(exchange, "<CopyObjectResult xmlns=\"" + NS + "\"><ETag>\"" + etag(data)
+                        + "\"</ETag><LastModified>2026-01-01T00:00:00.000Z</LastModified></CopyObjectResult>");
+            } else if ("PUT".equals(method)) {
+                byte[] data = read(exchange.getRequestBody());
+                objects.put(key, data);
+                contentTypes.put(key, exchange.getRequestHeaders().getFirst("Content-Type"));
+                etag(exchange, etag(data));
+            } else if ("DELETE".equals(method)) {
+                objects.remove(key);
+                exchange.sendResponseHeaders(204, -1);
+            } else if ("HEAD".equals(method)) {
+                byte[] data = objects.get(key);
+                if (data == null) {
+                    // HttpServer ferme la connexion après un HEAD en erreur : le client ne doit pas la réutiliser
+                    exchange.getResponseHeaders().add("Connection", "close");
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                describe(exchange, key, data);
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(data.length));
+                exchange.sendResponseHeaders(200, -1);
+            } else if ("GET".equals(method) && objects.containsKey(key)) {
+                byte[] data = objects.get(key);
+                String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+                if (ifMatch != null && !ifMatch.replace("\"", "").equals(etag(data))) {
+                    exchange.sendResponseHeaders(412, -1);
+                    return;
+                }
+                int start = 0;
+                int end = data.length - 1;
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (range != null) {
+                    String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                    start = Integer.parseInt(bounds[0]);
+                    end = bounds[1].isEmpty() ? end : Math.min(end, Integer.parseInt(bounds[1]));
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+                }
+                describe(exchange, key, data);
+                exchange.sendResponseHeaders(range != null ? 206 : 200, end - start + 1);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(data, start, end - start + 1);
+                }
+            } else {
+                exchange.sendResponseHeaders(200, -1);
+            }
+        }
+    }
+
+    // Corps conservé seulement si demandé ; sinon lu par blocs et compté
+    private byte[] read(InputStream in) throws IOException {
+        if (keepData) {
+            byte[] data = in.readAllBytes();
+            bytesReceived.addAndGet(data.length);
+            return data;
+        }
+        byte[] chunk = new byte[64 * 1024];
+        for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+            bytesReceived.addAndGet(n);
+        }
+        return new byte[0];
+    }
+
+    private void describe(HttpExchange exchange, String key, byte[] data) {
+        exchange.getResponseHeaders().add("Content-Type", contentTypes.getOrDefault(key, "application/octet-stream"));
+        exchange.getResponseHeaders().add("Last-Modified", "Thu, 01 Jan 2026 00:00:00 GMT");
+        exchange.getResponseHeaders().add("ETag", "\"" + etag(data) + "\"");
+    }
+
+    private static String etag(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void etag(HttpExchange exchange, String etag) throws IOException {
+        exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private static void xml(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String code, String bucket) throws IOException {
+        byte[] bytes = ("<Error><Code>" + code + "</Code><Message>" + code + "</Message><BucketName>" + bucket
+                + "</BucketName><Resource>/" + bucket + "</Resource><RequestId>0</RequestId><HostId>0</HostId>"
+                + "</Error>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new TreeMap<>();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(eq < 0 ? pair : pair.substring(0, eq), eq < 0 ? "" : pair.substring(eq + 1));
+        }
+        return params;
+    }
+
+    private static String bucket(String key) {
+        return key.substring(0, key.indexOf('/'));
+    }
+
+    private static String name(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,160 @@
+package ma.tahasouhailmanna.module1.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockReservationCombinerTest {
+
+    private static final int WAITING = 5;
+
+    @Test
+    void reserve_requestsArrivingDuringAnUpdateGoOutAsOneWave() throws Exception {
+        CountDownLatch inStore = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> calls = new CopyOnWriteArrayList<>();
+        StockReservationCombiner combiner = new StockReservationCombiner((id, quantity) -> {
+            calls.add(quantity);
+            if (calls.size() == 1) {
+                inStore.countDown();
+                await(release);
+            }
+            return 1;
+        }, 1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WAITING + 1);
+        try {
+            Future<Boolean> first = pool.submit(() -> combiner.reserve(1L, 1));
+            assertTrue(inStore.await(5, TimeUnit.SECONDS));
+            CountDownLatch started = new CountDownLatch(WAITING);
+            List<Future<Boolean>> others = new ArrayList<>();
+            for (int i = 0; i < WAITING; i++) {
+                others.add(pool.submit(() -> {
+                    started.countDown();
+                    return combiner.reserve(1L, 2);
+                }));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            // Premier UPDATE bloqué en base : les suivants ne font que s'ajouter à la file
+            assertEquals(1, calls.size());
+            release.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            for (Future<Boolean> other : others) {
+                assertTrue(other.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // Une vague de 5 demandes envoyée par l'appelant bloqué, à son retour
+        assertEquals(List.of(1, 2 * WAITING), calls);
+        assertEquals(WAITING - 1, combiner.getCombinedRequests());
+    }
+
+    @Test
+    void reserve_callerReturnsAfterItsOwnWaveAndHandsOver() throws Exception {
+        CountDownLatch firstInStore = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondInStore = new CountDownLatch(1);
+        CountDownLatch releaseSecond = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        StockReservationCombiner combiner = new StockReservationCombiner((id, quantity) -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                firstInStore.countDown();
+                await(releaseFirst);
+            } else if (call == 2) {
+                secondInStore.countDown();
+                await(releaseSecond);
+            }
+            return 1;
+        }, 1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = pool.submit(() -> combiner.reserve(1L, 1));
+            assertTrue(firstInStore.await(5, TimeUnit.SECONDS));
+            Future<Boolean> second = pool.submit(() -> combiner.reserve(2L, 1));
+            Thread.sleep(100);
+            releaseFirst.countDown();
+
+            // La vague suivante est envoyée par le second appelant : le premier rend déjà son résultat
+            assertTrue(secondInStore.await(5, TimeUnit.SECONDS));
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertFalse(second.isDone());
+            releaseSecond.countDown();
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+        } finally {
+            releaseFirst.countDown();
+            releaseSecond.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void reserve_errorInAWaveFailsItsCallersAndFreesTheStripe() throws Exception {
+        CountDownLatch inStore = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        StockReservationCombiner combiner = new StockReservationCombiner((id, quantity) -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                inStore.countDown();
+                await(release);
+                return 1;
+            }
+            if (call == 2) {
+                throw new AssertionError("store broken");
+            }
+            return 1;
+        }, 1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WAITING + 1);
+        try {
+            Future<Boolean> first = pool.submit(() -> combiner.reserve(1L, 1));
+            assertTrue(inStore.await(5, TimeUnit.SECONDS));
+            CountDownLatch started = new CountDownLatch(WAITING);
+            List<Future<Boolean>> others = new ArrayList<>();
+            for (int i = 0; i < WAITING; i++) {
+                others.add(pool.submit(() -> {
+                    started.countDown();
+                    return combiner.reserve(1L, 2);
+                }));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            // Vague en échec : chaque appelant reçoit une erreur au lieu d'attendre indéfiniment
+            for (Future<Boolean> other : others) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> other.get(5, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof AssertionError || e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        assertTrue(combiner.reserve(1L, 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ma.tahasouhailmanna.module1.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvLineParserTest {
+
+    private final CsvLineParser parser = new CsvLineParser(9);
+
+    @Test
+    void parse_plainFields() {
+        int count = parser.parse("ProductE,108.83,High quality,http://example.com/producte.jpg,74.0,Electronics,SKU0000,True,0.33");
+
+        assertEquals(9, count);
+        assertEquals("ProductE", parser.field(0));
+        assertEquals("74.0", parser.field(4));
+        assertEquals("0.33", parser.field(8));
+    }
+
+    @Test
+    void parse_emptyFields() {
+        assertEquals(9, parser.parse(",,,,,,,,"));
+        for (int i = 0; i < 9; i++) {
+            assertEquals("", parser.field(i));
+        }
+    }
+
+    @Test
+    void parse_quotedFields() {
+        int count = parser.parse("\"Chair, oak\",10,\"He said \"\"hi\"\"\",");
+
+        assertEquals(4, count);
+        assertEquals("Chair, oak", parser.field(0));
+        assertEquals("10", parser.field(1));
+        assertEquals("He said \"hi\"", parser.field(2));
+        assertEquals("", parser.field(3));
+    }
+
+    @Test
+    void parse_tooManyFields() {
+        assertEquals(-1, parser.parse("a,b,c,d,e,f,g,h,i,j"));
+    }
+
+    @Test
+    void parse_quotedFieldWithLineBreak() {
+        int count = parser.parse("Chair,\"Oak,\nsolid\",10");
+
+        assertEquals(3, count);
+        assertEquals("Oak,\nsolid", parser.field(1));
+    }
+
+    @Test
+    void endsInQuotes_tracksQuotedFieldsAcrossLines() {
+        assertFalse(CsvLineParser.endsInQuotes("a,\"b, c\",d", false));
+        assertTrue(CsvLineParser.endsInQuotes("a,\"first line", false));
+        assertTrue(CsvLineParser.endsInQuotes("still \"\"quoted\"\"", true));
+        assertFalse(CsvLineParser.endsInQuotes("end\",10", true));
+        // Guillemet au milieu d'un champ non entouré : caractère ordinaire, comme dans parse
+        assertFalse(CsvLineParser.endsInQuotes("TV 12\",10", false));
+        assertTrue(CsvLineParser.endsInQuotes("\"", false));
+    }
+}